@@ -3,6 +3,7 @@ package sheep;
 import sheep.expression.CoreFactory;
 import sheep.expression.ExpressionFactory;
 import sheep.features.Feature;
+import sheep.features.fill.FillRange;
 import sheep.features.files.FileLoading;
 import sheep.features.files.FileSaving;
 import sheep.fun.FunException;
@@ -11,6 +12,7 @@ import sheep.games.random.RandomFreeCell;
 import sheep.games.random.RandomTetrosTile;
 import sheep.games.snake.Snake;
 import sheep.games.tetros.Tetros;
+import sheep.parsing.CachingParser;
 import sheep.parsing.Parser;
 import sheep.parsing.SimpleParser;
 import sheep.sheets.GameSheet;
@@ -35,7 +37,7 @@ public class Main {
      */
     public static void main(String[] args) throws FunException {
         ExpressionFactory factory = new CoreFactory();
-        Parser parser = new SimpleParser(factory);
+        Parser parser = new CachingParser(new SimpleParser(factory), 4096);
 
         Sheet sheet = new GameSheet(parser, new HashMap<>(),
                 factory.createEmpty(), 20, 5);
@@ -43,6 +45,7 @@ public class Main {
         Feature[] features = new Feature[]{
                 new FileLoading(sheet),
                 new FileSaving(sheet),
+                new FillRange(sheet),
                 new Life(sheet),
                 new Snake(sheet, new RandomFreeCell(sheet, new Random())),
                 new Tetros(sheet, new RandomTetrosTile(new Random()))
@@ -0,0 +1,52 @@
+package sheep.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A transaction that applies each collected update one at a time
+ * using {@link SheetUpdate#update(int, int, String)} when committed.
+ * <p>
+ * Used by sheets that cannot apply many updates at once.
+ * Updates are not atomic, committing stops at the first failed update
+ * but the updates before it remain applied.
+ */
+class DeferredTransaction implements Transaction {
+    private record Cell(int row, int column) {
+
+    }
+
+    private final SheetUpdate updater;
+    private final Map<Cell, String> updates = new LinkedHashMap<>();
+
+    /**
+     * Construct a new transaction over the given sheet.
+     *
+     * @param updater The sheet to update when the transaction is committed.
+     */
+    public DeferredTransaction(SheetUpdate updater) {
+        this.updater = updater;
+    }
+
+    @Override
+    public UpdateResponse update(int row, int column, String input) {
+        updates.put(new Cell(row, column), input);
+        return UpdateResponse.success();
+    }
+
+    @Override
+    public UpdateResponse commit() {
+        try {
+            for (Map.Entry<Cell, String> update : updates.entrySet()) {
+                Cell cell = update.getKey();
+                UpdateResponse response = updater.update(cell.row(), cell.column(), update.getValue());
+                if (!response.isSuccess()) {
+                    return response;
+                }
+            }
+            return UpdateResponse.success();
+        } finally {
+            updates.clear();
+        }
+    }
+}
@@ -14,4 +14,39 @@ public interface SheetUpdate {
      * @return An {@link UpdateResponse} indicating success or failure with a message.
      */
     UpdateResponse update(int row, int column, String input);
+
+    /**
+     * Begin a new transaction to update many cells at once.
+     * <p>
+     * By default, the updates of the transaction are applied one at a time
+     * with {@link SheetUpdate#update(int, int, String)} when it is committed.
+     * Implementations that can validate and recalculate many cells together
+     * should override this method.
+     *
+     * @return A new, empty transaction over this sheet.
+     */
+    default Transaction begin() {
+        return new DeferredTransaction(this);
+    }
+
+    /**
+     * Begin a frame of updates, such as the updates made by a single tick of a game.
+     * <p>
+     * Implementations may defer the updates made during a frame, keeping only the
+     * last update of each cell, and apply them together when the frame ends.
+     * Updates made during a frame may then succeed, with any failure reported by
+     * {@link SheetUpdate#endFrame()}.
+     * By default, updates are applied immediately and frames have no effect.
+     */
+    default void beginFrame() {
+    }
+
+    /**
+     * End the current frame, applying any updates deferred during the frame.
+     *
+     * @return An {@link UpdateResponse} indicating whether the deferred updates were applied.
+     */
+    default UpdateResponse endFrame() {
+        return UpdateResponse.success();
+    }
 }
@@ -37,4 +37,32 @@ public interface SheetView {
      * @return A {@link ViewElement} that details how to render the cell's formula.
      */
     ViewElement formulaAt(int row, int column);
+
+    /**
+     * Register a callback to run whenever values change without an update,
+     * such as when stale values are recalculated in the background.
+     * <p>
+     * The callback may run on any thread.
+     * By default, values only change when the sheet is updated,
+     * so the callback is never run.
+     *
+     * @param callback The method to invoke.
+     */
+    default void onRecalculated(Runnable callback) {
+    }
+
+    /**
+     * Report the region of the sheet that is currently visible,
+     * so that the values of visible cells may be recalculated first.
+     * <p>
+     * By default, every value is recalculated as the sheet is updated,
+     * so the viewport is ignored.
+     *
+     * @param firstRow The first visible row.
+     * @param firstColumn The first visible column.
+     * @param lastRow The last visible row.
+     * @param lastColumn The last visible column.
+     */
+    default void viewportChanged(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+    }
 }
@@ -0,0 +1,61 @@
+package sheep.core;
+
+/**
+ * A group of cell updates that are applied to a sheet together.
+ * <p>
+ * Updates are collected with {@link Transaction#update(int, int, String)}
+ * and only take effect once {@link Transaction#commit()} is called.
+ * If the same cell is updated multiple times, only the last update is applied.
+ * <pre>
+ * {@code
+ * Transaction transaction = sheet.begin();
+ * transaction.update(0, 0, "1");
+ * transaction.update(1, 0, "A0 + 1");
+ * UpdateResponse response = transaction.commit();
+ * }</pre>
+ */
+public interface Transaction {
+    /**
+     * Add an update of a cell's value to the transaction.
+     *
+     * @param row The row index to update.
+     * @param column The column index to update.
+     * @param input The value as a string to replace within the sheet.
+     * @requires input != null
+     * @return An {@link UpdateResponse} indicating whether the update
+     *         could be added to the transaction.
+     */
+    UpdateResponse update(int row, int column, String input);
+
+    /**
+     * Add updates filling a range of cells with a formula written at one corner of
+     * the range, moving the formula's cell references relative to each filled cell.
+     * <p>
+     * For example, filling A3 to A100 with "A2 + A1" updates A4 to "A3 + A2"
+     * and A100 to "A99 + A98".
+     * By default, transactions cannot fill ranges, and the response fails
+     * with "Unable to fill: [input]" without adding any updates.
+     * Callers may then update each cell of the range instead.
+     *
+     * @param row The row of the cell the input is written at.
+     * @param column The column of the cell the input is written at.
+     * @param toRow The row of the opposite corner of the range.
+     * @param toColumn The column of the opposite corner of the range.
+     * @param input The formula as written at the given cell.
+     * @requires input != null
+     * @return An {@link UpdateResponse} indicating whether the updates
+     *         could be added to the transaction.
+     */
+    default UpdateResponse fill(int row, int column, int toRow, int toColumn, String input) {
+        return UpdateResponse.fail("Unable to fill: " + input);
+    }
+
+    /**
+     * Apply every update collected by the transaction to the sheet.
+     * <p>
+     * After committing, the transaction is empty and may be reused.
+     *
+     * @return An {@link UpdateResponse} indicating success or failure with a message.
+     */
+    UpdateResponse commit();
+}
@@ -6,11 +6,15 @@ package sheep.core;
  * <p>
  * A colour is defined by the {@link java.awt.Color} class,
  * i.e. "black" is {@link java.awt.Color#black}.
+ * <p>
+ * An element may be stale, when the content is a previous value of the cell
+ * that is still being recalculated.
  */
 public class ViewElement {
     private final String content;
     private final String background;
     private final String foreground;
+    private final boolean stale;
 
     /**
      * Construct a new view element.
@@ -21,9 +25,23 @@ public class ViewElement {
      * @requires content != null &amp;&amp; background != null &amp;&amp; foreground != null
      */
     public ViewElement(String content, String background, String foreground) {
+        this(content, background, foreground, false);
+    }
+
+    /**
+     * Construct a new view element that may be stale.
+     *
+     * @param content A string to render as the value for a cell.
+     * @param background A name of a colour to render as the cell background.
+     * @param foreground A name of a colour to render as the cell foreground (text colour).
+     * @param stale Whether the content is out of date and still being recalculated.
+     * @requires content != null &amp;&amp; background != null &amp;&amp; foreground != null
+     */
+    public ViewElement(String content, String background, String foreground, boolean stale) {
         this.content = content;
         this.background = background;
         this.foreground = foreground;
+        this.stale = stale;
     }
 
     /**
@@ -49,4 +67,12 @@ public class ViewElement {
     public String getForeground() {
         return foreground;
     }
+
+    /**
+     * Whether the content is out of date, as the cell is still being recalculated.
+     * @return true if the content is a previous value of the cell.
+     */
+    public boolean isStale() {
+        return stale;
+    }
 }
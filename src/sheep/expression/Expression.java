@@ -1,6 +1,13 @@
 package sheep.expression;
 
+import sheep.expression.compiled.CompiledFormula;
+import sheep.expression.compiled.FormulaCompiler;
+import sheep.sheets.CellLocation;
+
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -39,6 +46,27 @@ public abstract class Expression {
      */
     public abstract Set<String> dependencies();
 
+    /**
+     * The set of cells referenced by the expression.
+     * <p>
+     * These are the dependencies of the expression that are cell references,
+     * already resolved to their cell locations. Dependencies which are not
+     * cell references, such as built-ins, are not included.
+     * <p>
+     * By default, the cells are resolved from {@link #dependencies()} on each call.
+     * The expressions of the spreadsheet compute their references once when
+     * they are constructed and return the same set on every call.
+     *
+     * @return An unmodifiable set of the cell locations depended upon by the expression.
+     */
+    public Set<CellLocation> cellReferences() {
+        Set<CellLocation> references = new HashSet<>();
+        for (String dependency : dependencies()) {
+            CellLocation.maybeReference(dependency).ifPresent(references::add);
+        }
+        return Collections.unmodifiableSet(references);
+    }
+
     /**
      * Evaluate the expression to a numeric value.
      *
@@ -61,6 +89,38 @@ public abstract class Expression {
      */
     public abstract Expression value(Map<String, Expression> state) throws TypeError;
 
+    /**
+     * Evaluate the expression directly to a numeric value.
+     * <p>
+     * The result must be the same as calling {@link Expression#value()} on the result
+     * of {@link Expression#value(Map)}, which is the default implementation.
+     * Subclasses may override this method to avoid creating intermediate expressions.
+     *
+     * @param state A mapping of references to the expression they hold.
+     * @return The numeric value of the result of evaluating this expression.
+     * @throws TypeError If the result of evaluating this expression is not numeric,
+     *                   or a type error occurs in the process of evaluation.
+     */
+    public long evalLong(Map<String, Expression> state) throws TypeError {
+        return value(state).value();
+    }
+
+    /**
+     * Compile the expression into a form that evaluates directly to a number.
+     * <p>
+     * The compiled formula must evaluate to the same number as calling
+     * {@link Expression#value()} on the result of {@link Expression#value(Map)},
+     * and must throw a {@link TypeError} whenever either of those would.
+     * Expressions that cannot be compiled return an empty optional,
+     * which is the default for all expressions.
+     *
+     * @param compiler The compiler used to resolve references.
+     * @return The compiled expression, or empty if the expression cannot be compiled.
+     */
+    public Optional<CompiledFormula> compile(FormulaCompiler compiler) {
+        return Optional.empty();
+    }
+
     /**
      * True if the expression is a reference.
      * The abstract class, expression, should return false by default.
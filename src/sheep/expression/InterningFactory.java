@@ -0,0 +1,147 @@
+package sheep.expression;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An expression factory that shares a single instance between equal expressions.
+ * <p>
+ * Expressions are immutable, so every cell holding the same formula,
+ * or a formula with the same sub-expression, can share the same objects.
+ * Expressions are constructed by another factory, then replaced by an
+ * earlier equal expression if there is one. Sub-expressions created by
+ * this factory are already shared, so comparing a new expression with an
+ * earlier one is cheap, as equal sub-expressions are the same instance.
+ * <p>
+ * Small constants are created once, and every empty expression is the same instance.
+ * Shared expressions are only weakly held, so expressions which are no longer
+ * used by any cell are still garbage collected.
+ * <p>
+ * The factory may be used by many threads at once.
+ * <pre>
+ * {@code
+ * ExpressionFactory factory = new InterningFactory();
+ * Parser parser = new SimpleParser(factory);
+ * parser.parse("A1 + 1") == parser.parse("A1 + 1"); // true
+ * }</pre>
+ */
+public class InterningFactory implements ExpressionFactory {
+    private static final int SMALL_MIN = -128;
+    private static final int SMALL_MAX = 1024;
+
+    private final ExpressionFactory base;
+    private final Expression empty;
+    private final Expression[] smallConstants = new Expression[SMALL_MAX - SMALL_MIN];
+    // the value is held weakly as well, otherwise it would keep its own key alive
+    private final Map<Expression, WeakReference<Expression>> shared = new WeakHashMap<>();
+
+    /**
+     * Construct a new factory that shares the core expressions of {@link CoreFactory}.
+     */
+    public InterningFactory() {
+        this(new CoreFactory());
+    }
+
+    /**
+     * Construct a new factory that shares the expressions created by another factory.
+     * The other factory's expressions must be immutable and must implement
+     * {@link Object#equals(Object)} and {@link Object#hashCode()} structurally.
+     *
+     * @param base The factory used to construct new expressions.
+     */
+    public InterningFactory(ExpressionFactory base) {
+        this.base = base;
+        this.empty = base.createEmpty();
+    }
+
+    /**
+     * The shared instance of an expression.
+     * If an equal expression has been shared before, that expression is returned,
+     * otherwise the given expression becomes the shared instance.
+     *
+     * @param expression An expression to share.
+     * @return An expression equal to the given expression.
+     */
+    public Expression intern(Expression expression) {
+        synchronized (shared) {
+            WeakReference<Expression> existing = shared.get(expression);
+            Expression canonical = existing == null ? null : existing.get();
+            if (canonical != null) {
+                return canonical;
+            }
+            shared.put(expression, new WeakReference<>(expression));
+            return expression;
+        }
+    }
+
+    /**
+     * The number of distinct expressions currently shared,
+     * excluding small constants and the empty expression.
+     *
+     * @return The number of shared expressions.
+     */
+    public int size() {
+        synchronized (shared) {
+            return shared.size();
+        }
+    }
+
+    /**
+     * The shared reference to the given identifier.
+     *
+     * @requires identifier != ""
+     * @param identifier A reference to either a cell or a built-in.
+     * @return A reference that stores the given identifier.
+     */
+    @Override
+    public Expression createReference(String identifier) {
+        return intern(base.createReference(identifier));
+    }
+
+    /**
+     * The shared constant with the given value.
+     * Constants between {@value #SMALL_MIN} and {@value #SMALL_MAX} (exclusive)
+     * are kept for the lifetime of the factory.
+     *
+     * @param value A value for the constant to store.
+     * @return A constant that stores the given value.
+     */
+    @Override
+    public Expression createConstant(long value) {
+        if (value < SMALL_MIN || value >= SMALL_MAX) {
+            return intern(base.createConstant(value));
+        }
+        int index = (int) value - SMALL_MIN;
+        Expression constant = smallConstants[index];
+        if (constant == null) {
+            // a racing thread at worst stores the same shared instance again
+            constant = intern(base.createConstant(value));
+            smallConstants[index] = constant;
+        }
+        return constant;
+    }
+
+    /**
+     * The shared empty expression.
+     *
+     * @return The same empty expression for every call.
+     */
+    @Override
+    public Expression createEmpty() {
+        return empty;
+    }
+
+    /**
+     * The shared operator expression with the given arguments.
+     *
+     * @param name The name of the operator, e.g. +.
+     * @param args The arguments of the operator.
+     * @return An operator expression with the given arguments.
+     * @throws InvalidExpression If the base factory cannot create the operator.
+     */
+    @Override
+    public Expression createOperator(String name, Object[] args) throws InvalidExpression {
+        return intern(base.createOperator(name, args));
+    }
+}
@@ -4,9 +4,16 @@ import sheep.expression.basic.Constant;
 import sheep.expression.Expression;
 import sheep.expression.TypeError;
 import sheep.expression.basic.Nothing;
+import sheep.expression.compiled.CompiledFormula;
+import sheep.expression.compiled.FormulaCompiler;
+import sheep.sheets.CellLocation;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
 
@@ -19,6 +26,21 @@ import java.util.StringJoiner;
 public abstract class Arithmetic extends Expression {
     private final String operator;
     private final Expression[] arguments;
+    private final Set<String> dependencies;
+    private final Set<CellLocation> cellReferences;
+    private final int hash;
+    // computed when first evaluated, as it calls the folding methods of the subclass
+    private volatile Simplified simplified;
+
+    /**
+     * How the expression is evaluated once constants are simplified away.
+     * The arguments are kept as written so the expression renders the same.
+     *
+     * @param operands The sub-expressions actually evaluated.
+     * @param constant Whether the expression always evaluates to the value.
+     * @param value The value of a constant expression.
+     */
+    private record Simplified(Expression[] operands, boolean constant, long value) {}
 
     /**
      * Construct a new arithmetic expression.
@@ -30,6 +52,123 @@ public abstract class Arithmetic extends Expression {
     protected Arithmetic(String operator, Expression[] arguments) {
         this.operator = operator;
         this.arguments = arguments;
+
+        // sub-expressions cannot change, so their dependencies are only collected once
+        Set<String> dependencies = new HashSet<>();
+        Set<CellLocation> cellReferences = new HashSet<>();
+        for (Expression argument : arguments) {
+            dependencies.addAll(argument.dependencies());
+            cellReferences.addAll(argument.cellReferences());
+        }
+        this.dependencies = Set.copyOf(dependencies);
+        this.cellReferences = Set.copyOf(cellReferences);
+        this.hash = 31 * operator.hashCode() + Arrays.hashCode(arguments);
+    }
+
+    /**
+     * The simplified form of the expression, computed the first time it is needed.
+     * Only operations that are performed by folding are simplified.
+     */
+    private Simplified simplified() {
+        Simplified simplified = this.simplified;
+        if (simplified == null) {
+            simplified = this instanceof FoldingArithmetic folding
+                    ? simplify(folding)
+                    : new Simplified(arguments, false, 0);
+            this.simplified = simplified;
+        }
+        return simplified;
+    }
+
+    /**
+     * Simplify the arguments of a folding operation and, if only constants remain,
+     * compute the value the operation always evaluates to.
+     *
+     * @param folding This operation.
+     * @return The simplified form of the expression.
+     */
+    private Simplified simplify(FoldingArithmetic folding) {
+        Expression[] operands = simplifyArguments(folding, arguments);
+        boolean constant = true;
+        for (Expression operand : operands) {
+            constant &= isConstant(operand);
+        }
+        if (!constant) {
+            return new Simplified(operands, false, 0);
+        }
+        try {
+            long value = folding.start(valueOf(operands[0]));
+            for (int i = 1; i < operands.length; i++) {
+                value = folding.fold(value, valueOf(operands[i - 1]), valueOf(operands[i]));
+            }
+            return new Simplified(operands, true, value);
+        } catch (ArithmeticException e) {
+            // e.g. division by zero, which must fail when evaluated rather than now
+            return new Simplified(operands, false, 0);
+        }
+    }
+
+    /**
+     * The arguments that must be evaluated to perform the operation.
+     * Constant arguments that do not change the result are left out and,
+     * if the order of the arguments does not matter, the remaining constant
+     * arguments are combined into a single constant.
+     *
+     * @param folding The operation.
+     * @param arguments The sub-expressions the operation was constructed with.
+     * @return The simplified arguments, or the same arguments if there are none to simplify.
+     */
+    private static Expression[] simplifyArguments(FoldingArithmetic folding, Expression[] arguments) {
+        List<Expression> operands = new ArrayList<>(arguments.length);
+        boolean changed = false;
+        int merged = 0;
+        long mergedValue = 0;
+        for (int i = 0; i < arguments.length; i++) {
+            Expression argument = arguments[i];
+            if (!isConstant(argument)) {
+                operands.add(argument);
+            } else if (folding.commutes()) {
+                long value = valueOf(argument);
+                mergedValue = merged == 0 ? folding.start(value) : folding.fold(mergedValue, 0, value);
+                merged++;
+            } else if (i > 0 && folding.isIdentity(valueOf(argument))) {
+                changed = true;
+            } else {
+                operands.add(argument);
+            }
+        }
+        if (merged > 0) {
+            if (!operands.isEmpty() && folding.isIdentity(mergedValue)) {
+                changed = true;
+            } else if (merged > 1 || !isConstant(arguments[arguments.length - 1])) {
+                operands.add(new Constant(mergedValue));
+                changed = true;
+            } else {
+                // the only constant is already the last argument
+                operands.add(arguments[arguments.length - 1]);
+            }
+        }
+        return changed ? operands.toArray(new Expression[0]) : arguments;
+    }
+
+    /**
+     * Whether an expression always has the same numeric value,
+     * either as a constant or as a simplified arithmetic expression.
+     */
+    private static boolean isConstant(Expression expression) {
+        // subclasses of constant may evaluate differently, so are not simplified
+        return expression.getClass() == Constant.class
+                || expression instanceof Arithmetic arithmetic && arithmetic.simplified().constant();
+    }
+
+    /**
+     * The numeric value of an expression for which {@link #isConstant(Expression)} holds.
+     */
+    private static long valueOf(Expression expression) {
+        if (expression instanceof Arithmetic arithmetic) {
+            return arithmetic.simplified().value();
+        }
+        return ((Constant) expression).getValue();
     }
 
     /**
@@ -108,17 +247,25 @@ public abstract class Arithmetic extends Expression {
      * plus.dependencies() // {"A1", "A2", "B1"}
      * }</pre>
      *
-     * @return A set containing the union of all sub-expression dependencies.
+     * @return An unmodifiable set containing the union of all sub-expression dependencies.
      */
     @Override
     public Set<String> dependencies() {
-        Set<String> dependencies = new HashSet<>();
-        for (Expression expression : arguments) {
-            dependencies.addAll(expression.dependencies());
-        }
         return dependencies;
     }
 
+    /**
+     * Cells referenced by the arithmetic expression.
+     * The cells referenced by an arithmetic expression are the union
+     * of the cells referenced by all sub-expressions.
+     *
+     * @return An unmodifiable set containing the union of all sub-expression references.
+     */
+    @Override
+    public Set<CellLocation> cellReferences() {
+        return cellReferences;
+    }
+
     /**
      * The result of evaluating this expression.
      * <p>
@@ -134,11 +281,128 @@ public abstract class Arithmetic extends Expression {
      */
     @Override
     public Expression value(Map<String, Expression> state) throws TypeError {
-        long[] values = new long[arguments.length];
-        for (int i = 0; i < arguments.length; i++) {
-            values[i] = arguments[i].value(state).value();
+        return new Constant(evalLong(state));
+    }
+
+    /**
+     * Evaluate the arithmetic expression directly to a numeric value.
+     * <p>
+     * Each sub-expression is evaluated with {@link Expression#evalLong(Map)}.
+     * Sub-expressions without any references are only evaluated once,
+     * when the expression is first evaluated.
+     * Operations that can be performed one argument at a time combine the
+     * results as they are evaluated, without creating any objects.
+     * Otherwise, the results are collected and passed to {@link #perform(long[])}.
+     * Either way, every sub-expression is evaluated before the operation can fail,
+     * so a {@link TypeError} of any sub-expression is thrown in preference to an
+     * {@link ArithmeticException} of the operation, such as a division by zero.
+     *
+     * @param state A mapping of references to the expression they hold.
+     * @return The result of performing the operation.
+     * @throws TypeError If any of the sub-expressions cannot be converted to a numeric value.
+     */
+    @Override
+    public long evalLong(Map<String, Expression> state) throws TypeError {
+        Simplified simplified = simplified();
+        if (simplified.constant()) {
+            return simplified.value();
+        }
+        if (!(this instanceof FoldingArithmetic folding)) {
+            long[] values = new long[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = arguments[i].evalLong(state);
+            }
+            return perform(values);
+        }
+        Expression[] operands = simplified.operands();
+        long previous = operands[0].evalLong(state);
+        long result = folding.start(previous);
+        ArithmeticException failure = null;
+        for (int i = 1; i < operands.length; i++) {
+            long argument = operands[i].evalLong(state);
+            if (failure == null) {
+                try {
+                    result = folding.fold(result, previous, argument);
+                } catch (ArithmeticException e) {
+                    // the remaining sub-expressions may still fail with a type error
+                    failure = e;
+                }
+            }
+            previous = argument;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    /**
+     * Compile the arithmetic expression by compiling each sub-expression.
+     *
+     * @param compiler The compiler used to resolve references.
+     * @return The compiled expression, or empty if any sub-expression cannot be compiled.
+     */
+    @Override
+    public Optional<CompiledFormula> compile(FormulaCompiler compiler) {
+        Simplified simplified = simplified();
+        if (simplified.constant()) {
+            long value = simplified.value();
+            return Optional.of(cells -> value);
+        }
+        Expression[] operands = simplified.operands();
+        CompiledFormula[] compiled = new CompiledFormula[operands.length];
+        for (int i = 0; i < operands.length; i++) {
+            Optional<CompiledFormula> argument = operands[i].compile(compiler);
+            if (argument.isEmpty()) {
+                return Optional.empty();
+            }
+            compiled[i] = argument.get();
         }
-        return new Constant(perform(values));
+        return Optional.of(combine(compiled));
+    }
+
+    /**
+     * Combine the compiled sub-expressions into a formula that performs the operation.
+     * <p>
+     * Operations that can be performed one argument at a time combine the
+     * results as they are evaluated. Otherwise, the formula evaluates every
+     * sub-expression and calls {@link #perform(long[])} on the results.
+     * As in {@link #evalLong(Map)}, every sub-expression is evaluated before
+     * the operation can fail.
+     *
+     * @param arguments The compiled sub-expressions.
+     * @return A compiled formula of the arithmetic expression.
+     */
+    protected CompiledFormula combine(CompiledFormula[] arguments) {
+        if (!(this instanceof FoldingArithmetic folding)) {
+            return cells -> {
+                long[] values = new long[arguments.length];
+                for (int i = 0; i < arguments.length; i++) {
+                    values[i] = arguments[i].evaluate(cells);
+                }
+                return perform(values);
+            };
+        }
+        return cells -> {
+            long previous = arguments[0].evaluate(cells);
+            long result = folding.start(previous);
+            ArithmeticException failure = null;
+            for (int i = 1; i < arguments.length; i++) {
+                long argument = arguments[i].evaluate(cells);
+                if (failure == null) {
+                    try {
+                        result = folding.fold(result, previous, argument);
+                    } catch (ArithmeticException e) {
+                        failure = e;
+                    }
+                }
+                previous = argument;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        };
     }
 
     /**
@@ -196,4 +460,43 @@ public abstract class Arithmetic extends Expression {
         }
         return builder.toString();
     }
+
+    /**
+     * If two arithmetic expressions are equal to each other.
+     * Equality is defined by being the same operation
+     * with equal sub-expressions in the same order.
+     * <pre>
+     * {@code
+     * Arithmetic plus = Arithmetic.plus(new Expression[]{new Reference("A1"), new Constant(4)});
+     * Arithmetic same = Arithmetic.plus(new Expression[]{new Reference("A1"), new Constant(4)});
+     * Arithmetic times = Arithmetic.times(new Expression[]{new Reference("A1"), new Constant(4)});
+     * plus.equals(same); // true
+     * plus.equals(times); // false
+     * }</pre>
+     * @param object Another object to compare against.
+     * @return true if the other object is the same operation with equal sub-expressions.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object == null || getClass() != object.getClass()) {
+            return false;
+        }
+        Arithmetic other = (Arithmetic) object;
+        return hash == other.hash
+                && operator.equals(other.operator)
+                && Arrays.equals(arguments, other.arguments);
+    }
+
+    /**
+     * A hashcode method that respects the {@link Arithmetic#equals(Object)} method.
+     * The hashcode is computed once, as sub-expressions cannot change.
+     * @return An appropriate hashcode value for this instance.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
 }
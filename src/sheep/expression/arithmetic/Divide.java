@@ -7,7 +7,7 @@ import sheep.expression.Expression;
  * Division operations must have the operator name "/".
  * @stage2
  */
-class Divide extends Arithmetic {
+class Divide extends FoldingArithmetic {
     /**
      * Construct a new division expression.
      *
@@ -38,4 +38,28 @@ class Divide extends Arithmetic {
         }
         return result;
     }
+
+    /**
+     * Divide the result of the preceding arguments by the next argument.
+     *
+     * @param result The result of the operation over the preceding arguments.
+     * @param previous The preceding argument.
+     * @param argument The next argument.
+     * @return The result of the operation including the next argument.
+     */
+    @Override
+    long fold(long result, long previous, long argument) {
+        return result / argument;
+    }
+
+    /**
+     * Dividing by one does not change the quotient.
+     *
+     * @param argument The value of a constant argument.
+     * @return true if the argument is 1.
+     */
+    @Override
+    boolean isIdentity(long argument) {
+        return argument == 1;
+    }
 }
@@ -7,7 +7,7 @@ import sheep.expression.Expression;
  * Equal operations must have the operator name "=".
  * @stage2
  */
-class Equal extends Arithmetic {
+class Equal extends FoldingArithmetic {
     /**
      * Construct a new equal to expression.
      *
@@ -42,4 +42,27 @@ class Equal extends Arithmetic {
         }
         return 1;
     }
+
+    /**
+     * A single argument is always equal to itself.
+     * @param first The first argument.
+     * @return 1
+     */
+    @Override
+    long start(long first) {
+        return 1;
+    }
+
+    /**
+     * Check that the next argument equals the preceding argument.
+     *
+     * @param result The result of the operation over the preceding arguments.
+     * @param previous The preceding argument.
+     * @param argument The next argument.
+     * @return The result of the operation including the next argument.
+     */
+    @Override
+    long fold(long result, long previous, long argument) {
+        return result == 1 && previous == argument ? 1 : 0;
+    }
 }
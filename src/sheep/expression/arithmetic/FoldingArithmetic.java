@@ -0,0 +1,65 @@
+package sheep.expression.arithmetic;
+
+import sheep.expression.Expression;
+
+/**
+ * An arithmetic operation that can be performed one argument at a time.
+ * <p>
+ * Folding operations combine each argument with the result over the preceding
+ * arguments as it is evaluated, with {@link #start(long)} and {@link #fold(long, long, long)},
+ * giving the same result as {@link #perform(long[])} without collecting the arguments.
+ * Their constant arguments may also be simplified when the expression is first evaluated.
+ * Only the arithmetic operations of this package are folded.
+ */
+abstract class FoldingArithmetic extends Arithmetic {
+    /**
+     * Construct a new folding arithmetic expression.
+     *
+     * @param operator The name of the arithmetic operation, e.g. plus.
+     * @param arguments A sequence of sub-expressions to perform the operation upon.
+     * @requires arguments.length &gt; 0
+     */
+    FoldingArithmetic(String operator, Expression[] arguments) {
+        super(operator, arguments);
+    }
+
+    /**
+     * The result of the operation over only its first argument.
+     *
+     * @param first The first argument.
+     * @return The partial result.
+     */
+    long start(long first) {
+        return first;
+    }
+
+    /**
+     * Combine the partial result of the operation with the next argument.
+     *
+     * @param result The result of the operation over the preceding arguments.
+     * @param previous The preceding argument.
+     * @param argument The next argument.
+     * @return The result of the operation including the next argument.
+     */
+    abstract long fold(long result, long previous, long argument);
+
+    /**
+     * Whether the arguments of the operation can be folded in any order
+     * and grouped in any way, giving the same result.
+     *
+     * @return true if constant arguments may be combined before evaluation.
+     */
+    boolean commutes() {
+        return false;
+    }
+
+    /**
+     * Whether an argument other than the first never changes the result of the operation.
+     *
+     * @param argument The value of a constant argument.
+     * @return true if the argument can be left out.
+     */
+    boolean isIdentity(long argument) {
+        return false;
+    }
+}
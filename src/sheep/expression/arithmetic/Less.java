@@ -7,7 +7,7 @@ import sheep.expression.Expression;
  * Less than operations must have the operator name "&lt;".
  * @stage2
  */
-class Less extends Arithmetic {
+class Less extends FoldingArithmetic {
     /**
      * Construct a new less than expression.
      *
@@ -42,4 +42,27 @@ class Less extends Arithmetic {
         }
         return 1;
     }
+
+    /**
+     * A single argument is always in increasing order.
+     * @param first The first argument.
+     * @return 1
+     */
+    @Override
+    long start(long first) {
+        return 1;
+    }
+
+    /**
+     * Check that the next argument is greater than the preceding argument.
+     *
+     * @param result The result of the operation over the preceding arguments.
+     * @param previous The preceding argument.
+     * @param argument The next argument.
+     * @return The result of the operation including the next argument.
+     */
+    @Override
+    long fold(long result, long previous, long argument) {
+        return result == 1 && previous < argument ? 1 : 0;
+    }
 }
@@ -7,7 +7,7 @@ import sheep.expression.Expression;
  * Minus operations must have the operator name "-".
  * @stage2
  */
-class Minus extends Arithmetic {
+class Minus extends FoldingArithmetic {
     /**
      * Construct a new minus expression.
      *
@@ -38,4 +38,28 @@ class Minus extends Arithmetic {
         }
         return result;
     }
+
+    /**
+     * Subtract the next argument from the result of the preceding arguments.
+     *
+     * @param result The result of the operation over the preceding arguments.
+     * @param previous The preceding argument.
+     * @param argument The next argument.
+     * @return The result of the operation including the next argument.
+     */
+    @Override
+    long fold(long result, long previous, long argument) {
+        return result - argument;
+    }
+
+    /**
+     * Subtracting zero does not change the difference.
+     *
+     * @param argument The value of a constant argument.
+     * @return true if the argument is 0.
+     */
+    @Override
+    boolean isIdentity(long argument) {
+        return argument == 0;
+    }
 }
@@ -7,7 +7,7 @@ import sheep.expression.Expression;
  * Plus operations must have the operator name "+".
  * @stage2
  */
-class Plus extends Arithmetic {
+class Plus extends FoldingArithmetic {
     /**
      * Construct a new plus expression.
      *
@@ -38,4 +38,37 @@ class Plus extends Arithmetic {
         }
         return result;
     }
+
+    /**
+     * Add the next argument to the sum of the preceding arguments.
+     *
+     * @param result The result of the operation over the preceding arguments.
+     * @param previous The preceding argument.
+     * @param argument The next argument.
+     * @return The result of the operation including the next argument.
+     */
+    @Override
+    long fold(long result, long previous, long argument) {
+        return result + argument;
+    }
+
+    /**
+     * Plus operations give the same result in any order.
+     * @return true
+     */
+    @Override
+    boolean commutes() {
+        return true;
+    }
+
+    /**
+     * Adding zero does not change the sum.
+     *
+     * @param argument The value of a constant argument.
+     * @return true if the argument is 0.
+     */
+    @Override
+    boolean isIdentity(long argument) {
+        return argument == 0;
+    }
 }
@@ -7,7 +7,7 @@ import sheep.expression.Expression;
  * Times operations must have the operator name "*".
  * @stage2
  */
-class Times extends Arithmetic {
+class Times extends FoldingArithmetic {
     /**
      * Construct a new times expression.
      *
@@ -38,4 +38,37 @@ class Times extends Arithmetic {
         }
         return result;
     }
+
+    /**
+     * Multiply the product of the preceding arguments by the next argument.
+     *
+     * @param result The result of the operation over the preceding arguments.
+     * @param previous The preceding argument.
+     * @param argument The next argument.
+     * @return The result of the operation including the next argument.
+     */
+    @Override
+    long fold(long result, long previous, long argument) {
+        return result * argument;
+    }
+
+    /**
+     * Times operations give the same result in any order.
+     * @return true
+     */
+    @Override
+    boolean commutes() {
+        return true;
+    }
+
+    /**
+     * Multiplying by one does not change the product.
+     *
+     * @param argument The value of a constant argument.
+     * @return true if the argument is 1.
+     */
+    @Override
+    boolean isIdentity(long argument) {
+        return argument == 1;
+    }
 }
@@ -1,6 +1,9 @@
 package sheep.expression.basic;
 
 import sheep.expression.Expression;
+import sheep.expression.compiled.CompiledFormula;
+import sheep.expression.compiled.FormulaCompiler;
+import sheep.sheets.CellLocation;
 
 import java.util.*;
 
@@ -90,7 +93,18 @@ public class Constant extends Expression {
      */
     @Override
     public Set<String> dependencies() {
-        return new HashSet<>();
+        return Set.of();
+    }
+
+    /**
+     * Cells referenced by the constant expression.
+     * Constant expressions do not reference any cells.
+     *
+     * @return An empty set to represent no references.
+     */
+    @Override
+    public Set<CellLocation> cellReferences() {
+        return Set.of();
     }
 
     /**
@@ -106,6 +120,28 @@ public class Constant extends Expression {
         return this;
     }
 
+    /**
+     * Evaluate the constant directly to its number.
+     *
+     * @param state A mapping of references to the expression they hold.
+     * @return The number stored within the constant.
+     */
+    @Override
+    public long evalLong(Map<String, Expression> state) {
+        return number;
+    }
+
+    /**
+     * Compile the constant into a formula that always evaluates to its number.
+     *
+     * @param compiler The compiler used to resolve references.
+     * @return A compiled formula of the constant.
+     */
+    @Override
+    public Optional<CompiledFormula> compile(FormulaCompiler compiler) {
+        return Optional.of(cells -> number);
+    }
+
     /**
      * Evaluate the expression to a numeric value.
      * For constants, this is the long value stored.
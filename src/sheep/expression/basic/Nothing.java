@@ -2,6 +2,7 @@ package sheep.expression.basic;
 
 import sheep.expression.Expression;
 import sheep.expression.TypeError;
+import sheep.sheets.CellLocation;
 
 import java.util.*;
 
@@ -18,7 +19,18 @@ public class Nothing extends Expression {
      */
     @Override
     public Set<String> dependencies() {
-        return new HashSet<>();
+        return Set.of();
+    }
+
+    /**
+     * Cells referenced by the empty expression.
+     * Empty expressions do not reference any cells.
+     *
+     * @return An empty set to represent no references.
+     */
+    @Override
+    public Set<CellLocation> cellReferences() {
+        return Set.of();
     }
 
     /**
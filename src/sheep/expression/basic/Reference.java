@@ -2,6 +2,8 @@ package sheep.expression.basic;
 
 import sheep.expression.Expression;
 import sheep.expression.TypeError;
+import sheep.expression.compiled.CompiledFormula;
+import sheep.expression.compiled.FormulaCompiler;
 import sheep.sheets.CellLocation;
 
 import java.util.*;
@@ -13,6 +15,8 @@ import java.util.*;
  */
 public class Reference extends Expression {
     private final String identifier;
+    private final Set<String> dependencies;
+    private final Set<CellLocation> cellReferences;
 
     /**
      * Construct a new reference to an identifier.
@@ -22,6 +26,10 @@ public class Reference extends Expression {
      */
     public Reference(String identifier) {
         this.identifier = identifier;
+        this.dependencies = Set.of(identifier);
+        this.cellReferences = CellLocation.maybeReference(identifier)
+                .map(Set::of)
+                .orElse(Set.of());
     }
 
     /**
@@ -85,13 +93,23 @@ public class Reference extends Expression {
      * Dependencies of the reference expression.
      * The dependencies of a reference are its identifier.
      *
-     * @return A set containing the references' identifier.
+     * @return An unmodifiable set containing the references' identifier.
      */
     @Override
     public Set<String> dependencies() {
-        List<String> deps = new ArrayList<>();
-        deps.add(identifier);
-        return new HashSet<>(deps);
+        return dependencies;
+    }
+
+    /**
+     * Cells referenced by the reference expression.
+     * If the identifier is a cell reference, this is the referenced cell,
+     * otherwise the identifier is a built-in and no cells are referenced.
+     *
+     * @return An unmodifiable set containing the referenced cell, if any.
+     */
+    @Override
+    public Set<CellLocation> cellReferences() {
+        return cellReferences;
     }
 
     /**
@@ -100,17 +118,65 @@ public class Reference extends Expression {
      * If the given state does not have an entry for this reference's identifier,
      * return {@code this}.
      * Otherwise, return the result of calling {@link Expression#value(Map)} on the entry in the state.
+     * <p>
+     * Chains of references to references are followed iteratively,
+     * so long chains do not grow the call stack.
      *
      * @param state A mapping of references to the expression they hold.
      * @return The result of evaluating this expression.
      */
     @Override
     public Expression value(Map<String, Expression> state) throws TypeError {
-        if (state.containsKey(identifier)) {
-            Expression value = state.get(identifier);
-            return value.value(state);
+        Expression target = resolve(state);
+        if (target instanceof Reference) {
+            return target;
+        }
+        return target.value(state);
+    }
+
+    /**
+     * Evaluate the referenced expression directly to a numeric value.
+     *
+     * @param state A mapping of references to the expression they hold.
+     * @return The numeric value of the referenced expression.
+     * @throws TypeError If the reference cannot be resolved,
+     *                   or the referenced expression is not numeric.
+     */
+    @Override
+    public long evalLong(Map<String, Expression> state) throws TypeError {
+        Expression target = resolve(state);
+        if (target instanceof Reference) {
+            throw new TypeError();
+        }
+        return target.evalLong(state);
+    }
+
+    /**
+     * Follow a chain of references to references until reaching an expression
+     * that is not a reference or a reference that is not in the state.
+     */
+    private Expression resolve(Map<String, Expression> state) {
+        Expression current = this;
+        while (current instanceof Reference reference
+                && state.containsKey(reference.identifier)) {
+            Expression next = state.get(reference.identifier);
+            if (next == current) {
+                return current;
+            }
+            current = next;
         }
-        return this;
+        return current;
+    }
+
+    /**
+     * Compile the reference into a formula that reads the number held by its identifier.
+     *
+     * @param compiler The compiler used to resolve references.
+     * @return A compiled formula of the reference, or empty if it cannot be resolved.
+     */
+    @Override
+    public Optional<CompiledFormula> compile(FormulaCompiler compiler) {
+        return compiler.reference(identifier);
     }
 
     /**
@@ -0,0 +1,18 @@
+package sheep.expression.compiled;
+
+import sheep.expression.TypeError;
+
+/**
+ * The numeric values of the cells of a sheet, read by compiled formulas.
+ */
+public interface CellValues {
+    /**
+     * The numeric value of a cell.
+     *
+     * @param row The row index of the cell.
+     * @param column The column index of the cell.
+     * @return The number held by the cell.
+     * @throws TypeError If the cell does not exist or does not hold a number.
+     */
+    long numberAt(int row, int column) throws TypeError;
+}
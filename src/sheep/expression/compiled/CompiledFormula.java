@@ -0,0 +1,22 @@
+package sheep.expression.compiled;
+
+import sheep.expression.TypeError;
+
+/**
+ * A formula compiled by a {@link FormulaCompiler}.
+ * <p>
+ * References to cells within a compiled formula have already been resolved to
+ * the row and column of the cell, so evaluation reads the cell values directly
+ * and produces a primitive number without creating any expressions.
+ */
+@FunctionalInterface
+public interface CompiledFormula {
+    /**
+     * Evaluate the formula to a numeric value.
+     *
+     * @param cells The values of the cells that the formula may reference.
+     * @return The numeric value of the formula.
+     * @throws TypeError If the formula, or any cell it references, does not have a numeric value.
+     */
+    long evaluate(CellValues cells) throws TypeError;
+}
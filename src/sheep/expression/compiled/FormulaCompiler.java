@@ -0,0 +1,94 @@
+package sheep.expression.compiled;
+
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.arithmetic.Arithmetic;
+import sheep.expression.basic.Constant;
+import sheep.sheets.CellLocation;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiles the formulas of a sheet into {@link CompiledFormula}s.
+ * <p>
+ * References to cells are resolved to the row and column of the cell,
+ * and references to built-ins without dependencies are replaced by their value.
+ * Only formulas that are certain to evaluate to a {@link Constant} can be compiled,
+ * any other formula must be evaluated with {@link Expression#value(Map)}.
+ * <pre>
+ * {@code
+ * FormulaCompiler compiler = new FormulaCompiler(builtins);
+ * CompiledFormula formula = compiler.compile(parser.parse("A1 + hundred")).get();
+ * formula.evaluate(cells) // cells.numberAt(1, 0) + 100
+ * }</pre>
+ */
+public class FormulaCompiler {
+    private final Map<String, Expression> builtins;
+
+    /**
+     * Construct a compiler for the formulas of a sheet with the given built-ins.
+     *
+     * @param builtins A mapping of built-in identifiers to expressions.
+     */
+    public FormulaCompiler(Map<String, Expression> builtins) {
+        this.builtins = builtins;
+    }
+
+    /**
+     * Compile the formula of a cell.
+     * <p>
+     * The compiled formula evaluates to the same number as the {@link Constant}
+     * returned by {@link Expression#value(Map)}, and throws a {@link TypeError}
+     * whenever {@link Expression#value(Map)} would.
+     *
+     * @param formula The formula to compile.
+     * @return The compiled formula, or empty if the formula cannot be compiled.
+     */
+    public Optional<CompiledFormula> compile(Expression formula) {
+        // other expressions, such as references, may have a non-numeric value
+        if (formula instanceof Arithmetic || formula.getClass() == Constant.class) {
+            return formula.compile(this);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Compile a reference to an identifier that is used as a number.
+     *
+     * @param identifier The identifier of a cell or a built-in.
+     * @return A compiled formula for the number held by the identifier,
+     *         or empty if the identifier cannot be compiled.
+     */
+    public Optional<CompiledFormula> reference(String identifier) {
+        Optional<CellLocation> cell = CellLocation.maybeReference(identifier);
+        if (cell.isPresent() && builtins.containsKey(identifier)) {
+            // the built-in is used if the cell is outside the sheet,
+            // which depends on the dimensions at the time of evaluation
+            return Optional.empty();
+        }
+        if (cell.isPresent()) {
+            int row = cell.get().getRow();
+            int column = cell.get().getColumn();
+            return Optional.of(cells -> cells.numberAt(row, column));
+        }
+        Expression builtin = builtins.get(identifier);
+        if (builtin == null) {
+            return Optional.of(cells -> {
+                throw new TypeError();
+            });
+        }
+        if (!builtin.dependencies().isEmpty()) {
+            // the value of the built-in may change as cells are updated
+            return Optional.empty();
+        }
+        try {
+            long number = builtin.value(builtins).value();
+            return Optional.of(cells -> number);
+        } catch (TypeError e) {
+            return Optional.of(cells -> {
+                throw new TypeError();
+            });
+        }
+    }
+}
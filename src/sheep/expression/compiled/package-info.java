@@ -0,0 +1,4 @@
+/**
+ * Expressions compiled into a form that evaluates directly to a number.
+ */
+package sheep.expression.compiled;
@@ -1,5 +1,7 @@
 package sheep.features.files;
 
+import sheep.core.UpdateResponse;
+import sheep.sheets.Batch;
 import sheep.sheets.Sheet;
 import sheep.ui.Perform;
 import sheep.ui.Prompt;
@@ -66,6 +68,9 @@ public class Load implements Perform {
             String line;
             int sheetRow = -1;
 
+            // Collect every cell so the sheet is only recalculated once
+            Batch batch = sheet.begin();
+
             // Read each line from the file
             while ((line = reader.readLine()) != null) {
                 sheetRow++;
@@ -77,10 +82,15 @@ public class Load implements Perform {
                 // Update the sheet with cell values from the current line
                 for (String cell : cells) {
                     sheetColumn++;
-                    sheet.update(sheetRow, sheetColumn, cell);
+                    batch.update(sheetRow, sheetColumn, cell);
                 }
             }
 
+            UpdateResponse response = batch.commit();
+            if (!response.isSuccess()) {
+                prompt.message("Error loading sheet: " + response.getMessage());
+            }
+
         } catch (IOException e) {
             // Display error message if an IOException occurs during file reading
             prompt.message("Error loading sheet: " + e.getMessage());
@@ -0,0 +1,71 @@
+package sheep.features.fill;
+
+import sheep.core.UpdateResponse;
+import sheep.features.Feature;
+import sheep.sheets.CellLocation;
+import sheep.sheets.Sheet;
+import sheep.ui.Prompt;
+import sheep.ui.UI;
+
+import java.util.Optional;
+
+/**
+ * Represents the fill feature.
+ * Fills a range of cells with the formula of the selected cell,
+ * moving the formula's cell references relative to each filled cell.
+ * <p>
+ * For example, selecting A3 holding "A2 + A1" and filling to A100
+ * leaves A4 holding "A3 + A2" and A100 holding "A99 + A98".
+ */
+public class FillRange implements Feature {
+    private final Sheet sheet;
+
+    /**
+     * Constructs a fill feature for the given sheet.
+     *
+     * @param sheet The sheet to fill cells of.
+     * @requires sheet != null
+     */
+    public FillRange(Sheet sheet) {
+        this.sheet = sheet;
+    }
+
+    /**
+     * Registers the fill feature with a UI.
+     *
+     * @param ui The UI that enables the user to fill cells.
+     * @requires ui != null
+     */
+    @Override
+    public void register(UI ui) {
+        ui.addFeature("fill-range", "Fill Range", this::fill);
+    }
+
+    /**
+     * Asks the user for the opposite corner of the range, then fills the range
+     * from the selected cell.
+     *
+     * @param row The selected row, or a negative number if none is selected.
+     * @param column The selected column, or a negative number if none is selected.
+     * @param prompt The prompt for user interaction.
+     */
+    private void fill(int row, int column, Prompt prompt) {
+        if (row < 0 || column < 0) {
+            prompt.message("Select a cell to fill from");
+            return;
+        }
+        Optional<String> input = prompt.ask("Fill to cell, e.g. A100");
+        if (input.isEmpty()) {
+            return;
+        }
+        Optional<CellLocation> to = CellLocation.maybeReference(input.get().trim());
+        if (to.isEmpty()) {
+            prompt.message("Not a cell: " + input.get());
+            return;
+        }
+        UpdateResponse response = sheet.fill(CellLocation.of(row, column), to.get());
+        if (!response.isSuccess()) {
+            prompt.message(response.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.Transaction;
 
 public class BreakoutFun implements Fun {
     private int columns = 0;
@@ -11,12 +12,14 @@ public class BreakoutFun implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
+        Transaction transaction = sheet.begin();
         for (int y = 0; y < 3; y++) {
             for (int x = 0; x < columns; x++) {
-                if (!sheet.update(y, x, "1").isSuccess()) {
+                if (!transaction.update(y, x, "1").isSuccess()) {
                     break;
                 }
             }
         }
+        transaction.commit();
     }
 }
@@ -1,6 +1,7 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.Transaction;
 import sheep.core.UpdateResponse;
 
 /**
@@ -15,18 +16,26 @@ public class Fibonacci implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
-        sheet.update(0, 0, "0");
-        sheet.update(1, 0, "1");
-        sheet.update(2, 0, "1");
+        Transaction transaction = sheet.begin();
+        transaction.update(0, 0, "0");
+        transaction.update(1, 0, "1");
+        transaction.update(2, 0, "1");
 
-        for (int i = 3; i < rows; i++) {
+        // every later row is the same formula moved down, parsed only once if the sheet can fill
+        boolean filled = rows > 3 && transaction.fill(3, 0, rows - 1, 0, "A2 + A1").isSuccess();
+        for (int i = 3; i < rows && !filled; i++) {
             String minus2 = "A" + (i - 2);
             String minus1 = "A" + (i - 1);
 
-            UpdateResponse response = sheet.update(i, 0, minus1 + " + " + minus2);
+            UpdateResponse response = transaction.update(i, 0, minus1 + " + " + minus2);
             if (!response.isSuccess()) {
                 throw new FunException(response.getMessage());
             }
         }
+
+        UpdateResponse response = transaction.commit();
+        if (!response.isSuccess()) {
+            throw new FunException(response.getMessage());
+        }
     }
 }
@@ -1,6 +1,7 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.Transaction;
 import sheep.core.UpdateResponse;
 
 /**
@@ -22,11 +23,17 @@ public class FibonacciConstants implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
+        Transaction transaction = sheet.begin();
         for (int row = 0; row < rows; row++) {
-            UpdateResponse response = sheet.update(row, 0, "" + fib(row));
+            UpdateResponse response = transaction.update(row, 0, "" + fib(row));
             if (!response.isSuccess()) {
                 throw new FunException(response.getMessage());
             }
         }
+
+        UpdateResponse response = transaction.commit();
+        if (!response.isSuccess()) {
+            throw new FunException(response.getMessage());
+        }
     }
 }
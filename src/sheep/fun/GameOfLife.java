@@ -1,6 +1,7 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.Transaction;
 
 public class GameOfLife implements Fun {
     private static final int ROW = 6;
@@ -8,17 +9,19 @@ public class GameOfLife implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
-        sheet.update(ROW, COL, "1");
-        sheet.update(ROW, COL + 1, "1");
-        sheet.update(ROW - 1, COL + 2, "1");
-        sheet.update(ROW + 1, COL + 2, "1");
-        sheet.update(ROW, COL + 3, "1");
-        sheet.update(ROW, COL + 4, "1");
-        sheet.update(ROW, COL + 5, "1");
-        sheet.update(ROW, COL + 6, "1");
-        sheet.update(ROW - 1, COL + 7, "1");
-        sheet.update(ROW + 1, COL + 7, "1");
-        sheet.update(ROW, COL + 8, "1");
-        sheet.update(ROW, COL + 9, "1");
+        Transaction transaction = sheet.begin();
+        transaction.update(ROW, COL, "1");
+        transaction.update(ROW, COL + 1, "1");
+        transaction.update(ROW - 1, COL + 2, "1");
+        transaction.update(ROW + 1, COL + 2, "1");
+        transaction.update(ROW, COL + 3, "1");
+        transaction.update(ROW, COL + 4, "1");
+        transaction.update(ROW, COL + 5, "1");
+        transaction.update(ROW, COL + 6, "1");
+        transaction.update(ROW - 1, COL + 7, "1");
+        transaction.update(ROW + 1, COL + 7, "1");
+        transaction.update(ROW, COL + 8, "1");
+        transaction.update(ROW, COL + 9, "1");
+        transaction.commit();
     }
 }
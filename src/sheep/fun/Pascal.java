@@ -1,7 +1,9 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.Transaction;
 import sheep.core.UpdateResponse;
+import sheep.sheets.CellLocation;
 
 public class Pascal implements Fun {
     private final int startRow;
@@ -14,19 +16,20 @@ public class Pascal implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
+        Transaction transaction = sheet.begin();
         for (int y = 0; y < 5; y++) {
             for (int x = 0; x < 6; x++) {
                 int row = y + startRow;
                 int column = x + startColumn;
                 UpdateResponse response;
                 if (x < 1) {
-                    response = sheet.update(row, column, "1");
+                    response = transaction.update(row, column, "1");
                 } else if (x > y) {
-                    response = sheet.update(row, column, "1");
+                    response = transaction.update(row, column, "1");
                 } else {
-                    String leftColumn = Character.toString(column - 1 + 65);
-                    String rightColumn = Character.toString(column + 65);
-                    response = sheet.update(row, column,
+                    String leftColumn = CellLocation.columnName(column - 1);
+                    String rightColumn = CellLocation.columnName(column);
+                    response = transaction.update(row, column,
                             "" + leftColumn + (row - 1) + " + "
                                     + rightColumn + (row - 1));
                 }
@@ -35,5 +38,10 @@ public class Pascal implements Fun {
                 }
             }
         }
+
+        UpdateResponse response = transaction.commit();
+        if (!response.isSuccess()) {
+            throw new FunException(response.getMessage());
+        }
     }
 }
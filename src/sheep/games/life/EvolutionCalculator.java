@@ -11,6 +11,7 @@ import java.util.List;
  * Calculates the evolution of cells in the game of life based on its rules.
  */
 public class EvolutionCalculator implements Evolution {
+    private static final Constant ALIVE = new Constant(1);
 
     private final Sheet sheet;
 
@@ -37,11 +38,11 @@ public class EvolutionCalculator implements Evolution {
             for (int col = 0; col < sheet.getColumns(); col++) {
 
                 int summedWeight = calculateNeightbourWeight(row, col);
-                boolean isAlive = sheet.valueAt(new CellLocation(row, col)).equals(new Constant(1));
+                boolean isAlive = sheet.valueAt(CellLocation.of(row, col)).equals(ALIVE);
 
                 // Apply GOL rules
                 if (shouldSurvive(isAlive, summedWeight)) {
-                    evolvedGeneration.add(new CellLocation(row, col));
+                    evolvedGeneration.add(CellLocation.of(row, col));
                 }
             }
         }
@@ -75,8 +76,8 @@ public class EvolutionCalculator implements Evolution {
 
                 // Checks if neighbour is within Sheet and find value
                 if (inBounds(neighbourRow, neighbourColumn)
-                        && sheet.valueAt(new CellLocation(neighbourRow, neighbourColumn))
-                        .equals(new Constant(1))) {
+                        && sheet.valueAt(CellLocation.of(neighbourRow, neighbourColumn))
+                        .equals(ALIVE)) {
                     totalWeight++;
                 }
             }
@@ -1,7 +1,8 @@
 package sheep.games.life;
 
-import sheep.expression.TypeError;
+import sheep.core.UpdateResponse;
 import sheep.expression.basic.Constant;
+import sheep.sheets.Batch;
 import sheep.sheets.CellLocation;
 import sheep.sheets.Sheet;
 import sheep.ui.Prompt;
@@ -63,12 +64,13 @@ public class LifeGame implements Tick {
      * @requires aliveCells != null
      */
     private void render(List<CellLocation> aliveCells) {
+        Batch batch = sheet.begin();
         for (CellLocation cell : aliveCells) {
-            try {
-                sheet.update(cell, new Constant(1));
-            } catch (TypeError e) {
-                throw new RuntimeException(e);
-            }
+            batch.update(cell, new Constant(1));
+        }
+        UpdateResponse response = batch.commit();
+        if (!response.isSuccess()) {
+            throw new RuntimeException(response.getMessage());
         }
     }
 
@@ -142,10 +142,10 @@ public class Snake implements Feature, Tick {
                 snakeFood.convertNonNullToFood();
                 // Absence of User on Sheet is represented as (-2, -2), default location is (1, 1)
                 if (row == -2 && column == -2) {
-                    startLocation = new CellLocation(1, 1);
+                    startLocation = CellLocation.of(1, 1);
                 } else {
                     // if User has specified snake location, prioritise user.
-                    startLocation = new CellLocation(row, column);
+                    startLocation = CellLocation.of(row, column);
                 }
                 sheet.update(startLocation, new Constant(1));
                 snakeBody.add(startLocation);
@@ -67,7 +67,7 @@ public class SnakeFood {
         // Iterate through each cell
         for (int sheetRow = 0; sheetRow < sheet.getRows(); sheetRow++) {
             for (int sheetColumn = 0; sheetColumn < sheet.getColumns(); sheetColumn++) {
-                CellLocation nonNullFood = new CellLocation(sheetRow, sheetColumn);
+                CellLocation nonNullFood = CellLocation.of(sheetRow, sheetColumn);
 
                 // if the cell's value is non null, then convert to food
                 if (sheet.valueAt(sheetRow, sheetColumn).getContent() != ""
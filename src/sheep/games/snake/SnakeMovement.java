@@ -43,7 +43,7 @@ public class SnakeMovement {
         int snakeHeadColumnDirection = snakeBody.get(0).getColumn() + verticalDirection;
 
         // move each element to its new position
-        shiftedSnakeBody.add(new CellLocation(snakeHeadRowDirection, snakeHeadColumnDirection));
+        shiftedSnakeBody.add(CellLocation.of(snakeHeadRowDirection, snakeHeadColumnDirection));
         for (int i = 0; i <= snakeBody.size() - 2; i++) {
             shiftedSnakeBody.add(snakeBody.get(i));
         }
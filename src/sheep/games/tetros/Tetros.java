@@ -1,10 +1,11 @@
 package sheep.games.tetros;
 
-import sheep.expression.TypeError;
+import sheep.core.UpdateResponse;
 import sheep.expression.basic.Constant;
 import sheep.expression.basic.Nothing;
 import sheep.features.Feature;
 import sheep.games.random.RandomTile;
+import sheep.sheets.Batch;
 import sheep.sheets.CellLocation;
 import sheep.sheets.Sheet;
 import sheep.ui.*;
@@ -126,7 +127,7 @@ public class Tetros implements Tick, Feature {
 
         // Move each cell down one row
         for (CellLocation cell : tetrosCells) {
-            droppedCells.add(new CellLocation(cell.getRow() + 1, cell.getColumn()));
+            droppedCells.add(CellLocation.of(cell.getRow() + 1, cell.getColumn()));
         }
         return droppedCells;
     }
@@ -192,7 +193,7 @@ public class Tetros implements Tick, Feature {
 
             // Checks if shifted cell is within Bounds (handles negative CellLocation)
             if (shiftedCell >= 0 && shiftedCell < sheet.getColumns()) {
-                shiftedCells.add(new CellLocation(cell.getRow(), shiftedCell));
+                shiftedCells.add(CellLocation.of(cell.getRow(), shiftedCell));
             } else {
                 return;
             }
@@ -217,13 +218,11 @@ public class Tetros implements Tick, Feature {
      * @ensures specified items becomes Nothing()
      */
     private void removeCells(List<CellLocation> items) {
+        Batch batch = sheet.begin();
         for (CellLocation cell : items) {
-            try {
-                sheet.update(cell, new Nothing());
-            } catch (TypeError e) {
-                throw new RuntimeException(e);
-            }
+            batch.update(cell, new Nothing());
         }
+        commit(batch);
     }
 
     /**
@@ -234,12 +233,23 @@ public class Tetros implements Tick, Feature {
      * @ensures specified items have value of their blockType
      */
     private void renderCells(List<CellLocation> items) {
+        Batch batch = sheet.begin();
         for (CellLocation cell : items) {
-            try {
-                sheet.update(cell, new Constant(blockType));
-            } catch (TypeError e) {
-                throw new RuntimeException(e);
-            }
+            batch.update(cell, new Constant(blockType));
+        }
+        commit(batch);
+    }
+
+    /**
+     * Applies a batch of updates to the sheet.
+     *
+     * @param batch The updates to apply.
+     * @requires batch != null
+     */
+    private void commit(Batch batch) {
+        UpdateResponse response = batch.commit();
+        if (!response.isSuccess()) {
+            throw new RuntimeException(response.getMessage());
         }
     }
 
@@ -284,10 +294,10 @@ public class Tetros implements Tick, Feature {
      * The block type is set to 7.
      */
     private void addOrangeRickyShape() {
-        tetrosCells.add(new CellLocation(0, 0));
-        tetrosCells.add(new CellLocation(1, 0));
-        tetrosCells.add(new CellLocation(2, 0));
-        tetrosCells.add(new CellLocation(2, 1));
+        tetrosCells.add(CellLocation.of(0, 0));
+        tetrosCells.add(CellLocation.of(1, 0));
+        tetrosCells.add(CellLocation.of(2, 0));
+        tetrosCells.add(CellLocation.of(2, 1));
         blockType = 7;
     }
 
@@ -296,10 +306,10 @@ public class Tetros implements Tick, Feature {
      * The block type is set to 8.
      */
     private void addHeroShape() {
-        tetrosCells.add(new CellLocation(0, 1));
-        tetrosCells.add(new CellLocation(1, 1));
-        tetrosCells.add(new CellLocation(2, 1));
-        tetrosCells.add(new CellLocation(2, 0));
+        tetrosCells.add(CellLocation.of(0, 1));
+        tetrosCells.add(CellLocation.of(1, 1));
+        tetrosCells.add(CellLocation.of(2, 1));
+        tetrosCells.add(CellLocation.of(2, 0));
         blockType = 5;
     }
 
@@ -308,10 +318,10 @@ public class Tetros implements Tick, Feature {
      * The block type is set to 8.
      */
     private void addBlueRickyShape() {
-        tetrosCells.add(new CellLocation(0, 0));
-        tetrosCells.add(new CellLocation(0, 1));
-        tetrosCells.add(new CellLocation(0, 2));
-        tetrosCells.add(new CellLocation(1, 1));
+        tetrosCells.add(CellLocation.of(0, 0));
+        tetrosCells.add(CellLocation.of(0, 1));
+        tetrosCells.add(CellLocation.of(0, 2));
+        tetrosCells.add(CellLocation.of(1, 1));
         blockType = 8;
     }
 
@@ -320,10 +330,10 @@ public class Tetros implements Tick, Feature {
      * The block type is set to 3.
      */
     private void addTeeweeShape() {
-        tetrosCells.add(new CellLocation(0, 0));
-        tetrosCells.add(new CellLocation(0, 1));
-        tetrosCells.add(new CellLocation(1, 0));
-        tetrosCells.add(new CellLocation(1, 1));
+        tetrosCells.add(CellLocation.of(0, 0));
+        tetrosCells.add(CellLocation.of(0, 1));
+        tetrosCells.add(CellLocation.of(1, 0));
+        tetrosCells.add(CellLocation.of(1, 1));
         blockType = 3;
     }
 
@@ -332,10 +342,10 @@ public class Tetros implements Tick, Feature {
      * The block type is set to 6.
      */
     private void addClevelandShape() {
-        tetrosCells.add(new CellLocation(0, 0));
-        tetrosCells.add(new CellLocation(1, 0));
-        tetrosCells.add(new CellLocation(2, 0));
-        tetrosCells.add(new CellLocation(3, 0));
+        tetrosCells.add(CellLocation.of(0, 0));
+        tetrosCells.add(CellLocation.of(1, 0));
+        tetrosCells.add(CellLocation.of(2, 0));
+        tetrosCells.add(CellLocation.of(3, 0));
         blockType = 6;
     }
 
@@ -344,10 +354,10 @@ public class Tetros implements Tick, Feature {
      * The block type is set to 2.
      */
     private void addSmashBoyShape() {
-        tetrosCells.add(new CellLocation(0, 1));
-        tetrosCells.add(new CellLocation(0, 2));
-        tetrosCells.add(new CellLocation(1, 1));
-        tetrosCells.add(new CellLocation(0, 1));
+        tetrosCells.add(CellLocation.of(0, 1));
+        tetrosCells.add(CellLocation.of(0, 2));
+        tetrosCells.add(CellLocation.of(1, 1));
+        tetrosCells.add(CellLocation.of(0, 1));
         blockType = 2;
     }
 
@@ -356,10 +366,10 @@ public class Tetros implements Tick, Feature {
      * The block type is set to 4.
      */
     private void addRhodeIslandShape() {
-        tetrosCells.add(new CellLocation(0, 0));
-        tetrosCells.add(new CellLocation(0, 1));
-        tetrosCells.add(new CellLocation(1, 1));
-        tetrosCells.add(new CellLocation(1, 2));
+        tetrosCells.add(CellLocation.of(0, 0));
+        tetrosCells.add(CellLocation.of(0, 1));
+        tetrosCells.add(CellLocation.of(1, 1));
+        tetrosCells.add(CellLocation.of(1, 2));
         blockType = 4;
     }
 
@@ -413,7 +423,7 @@ public class Tetros implements Tick, Feature {
             int flippedCellColumn = averageColumn + ((averageRow - cell.getRow()) * direction);
             int flippedCellRow = averageRow + ((averageColumn - cell.getColumn()) * direction);
 
-            CellLocation flippedCell = new CellLocation(flippedCellRow, flippedCellColumn);
+            CellLocation flippedCell = CellLocation.of(flippedCellRow, flippedCellColumn);
             flippedPositions.add(flippedCell);
         }
         return flippedPositions;
@@ -473,23 +483,22 @@ public class Tetros implements Tick, Feature {
      * @ensures Sheet would clear the specified row
      */
     private void clearRow(int row) {
+        // Each row is only read before it is overwritten, so all rows can shift at once
+        Batch batch = sheet.begin();
 
         // Iterate each row that is above the specified row
         for (int precedingRow = row; precedingRow > 0; precedingRow--) {
             for (int column = 0; column < sheet.getColumns(); column++) {
-                try {
-                    if (tetrosCells.contains(new CellLocation(precedingRow - 1, column))) {
-                        continue;
-                    }
-
-                    // Update current row from the value of cells above
-                    sheet.update(new CellLocation(precedingRow, column),
-                            sheet.valueAt(new CellLocation(precedingRow - 1, column)));
-                } catch (TypeError e) {
-                    throw new RuntimeException(e);
+                if (tetrosCells.contains(CellLocation.of(precedingRow - 1, column))) {
+                    continue;
                 }
+
+                // Update current row from the value of cells above
+                batch.update(CellLocation.of(precedingRow, column),
+                        sheet.valueAt(CellLocation.of(precedingRow - 1, column)));
             }
         }
+        commit(batch);
     }
 
     /**
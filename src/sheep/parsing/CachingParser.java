@@ -0,0 +1,122 @@
+package sheep.parsing;
+
+import sheep.expression.Expression;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A parser that remembers the results of another parser.
+ * <p>
+ * Expressions are immutable, so the expression parsed from a string can be
+ * returned again whenever the same string is parsed. The most recently used
+ * results are kept, up to a fixed number of strings, and the least recently
+ * used result is forgotten once the cache is full.
+ * Inputs that cannot be parsed are not remembered.
+ * <p>
+ * The parser may be used by many threads at once.
+ * <pre>
+ * {@code
+ * CachingParser parser = new CachingParser(new SimpleParser(new CoreFactory()), 4096);
+ * parser.parse("A1 + A2"); // parsed by the simple parser
+ * parser.parse("A1 + A2"); // the same expression, without parsing
+ * parser.getHits(); // 1
+ * }</pre>
+ */
+public class CachingParser implements Parser {
+    private final Parser parser;
+    private final int capacity;
+    private final Map<String, Expression> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Construct a new cache in front of a parser.
+     *
+     * @param parser The parser used for strings that are not remembered.
+     * @param capacity The maximum number of strings to remember.
+     * @requires capacity &gt; 0
+     */
+    public CachingParser(Parser parser, int capacity) {
+        this.parser = parser;
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+                return size() > CachingParser.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Parse a string with the underlying parser,
+     * unless the string has been parsed recently.
+     *
+     * @param input A string to attempt to parse.
+     * @return The result of parsing the expression.
+     * @throws ParseException If the string input is not recognisable as an expression.
+     */
+    @Override
+    public Expression parse(String input) throws ParseException {
+        Expression expression;
+        synchronized (cache) {
+            expression = cache.get(input);
+        }
+        if (expression != null) {
+            hits.increment();
+            return expression;
+        }
+        misses.increment();
+        // parsed outside the lock, two threads parsing the same string
+        // at once both parse it and the later result is kept
+        expression = parser.parse(input);
+        synchronized (cache) {
+            cache.put(input, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * The number of strings parsed using a remembered result.
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of strings parsed by the underlying parser.
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The number of strings currently remembered.
+     * @return The size of the cache.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * The maximum number of strings remembered.
+     * @return The capacity of the cache.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Forget every remembered result. The statistics are not reset.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
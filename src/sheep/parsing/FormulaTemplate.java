@@ -0,0 +1,273 @@
+package sheep.parsing;
+
+import sheep.expression.Expression;
+import sheep.expression.compiled.CompiledFormula;
+import sheep.expression.compiled.FormulaCompiler;
+import sheep.sheets.CellLocation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A formula that is parsed once and shared by many cells,
+ * with its cell references relative to the cell that holds it.
+ * <p>
+ * A template is parsed from the formula written at a single origin cell.
+ * Placing the template at another cell moves every cell reference by the
+ * distance between the two cells, giving the same formula as writing the
+ * moved references at that cell by hand.
+ * Placed formulas do not parse or store their own copy of the formula,
+ * and a sheet only compiles the template once for every cell holding it.
+ * <p>
+ * Cell references are found in the same way as {@link SimpleParser}.
+ * <pre>
+ * {@code
+ * FormulaTemplate template = FormulaTemplate.parse(parser, "A2 + A1", 3, 0);
+ * Expression formula = template.at(10, 0);
+ * formula.render(); // "A9 + A8"
+ * }</pre>
+ */
+public class FormulaTemplate {
+    private final Parser parser;
+    private final Expression formula;
+    private final int row;
+    private final int column;
+    // the input, and the rendered formula, split around their cell references
+    private final Text source;
+    private final Text rendered;
+    private final long[] references;
+    private final Set<String> builtins;
+    // templates are usually placed in a single sheet, so only one compilation is kept
+    private volatile Compilation compilation;
+
+    private record Compilation(FormulaCompiler compiler, Optional<CompiledFormula> formula) {}
+
+    private FormulaTemplate(Parser parser, Expression formula, String input, int row, int column) {
+        this.parser = parser;
+        this.formula = formula;
+        this.row = row;
+        this.column = column;
+        this.source = Text.split(input);
+        this.rendered = Text.split(formula.render());
+
+        Set<CellLocation> cells = formula.cellReferences();
+        this.references = new long[cells.size()];
+        int i = 0;
+        for (CellLocation cell : cells) {
+            references[i++] = cell.key();
+        }
+        Set<String> builtins = new HashSet<>();
+        for (String dependency : formula.dependencies()) {
+            if (CellLocation.parseKey(dependency) == CellLocation.NOT_A_REFERENCE) {
+                builtins.add(dependency);
+            }
+        }
+        this.builtins = Set.copyOf(builtins);
+    }
+
+    /**
+     * Parse a formula as written at an origin cell into a template.
+     *
+     * @param parser The parser used to parse the formula.
+     * @param input The formula as written at the origin cell.
+     * @param row The row of the origin cell.
+     * @param column The column of the origin cell.
+     * @return A template of the formula.
+     * @throws ParseException If the formula cannot be parsed.
+     */
+    public static FormulaTemplate parse(Parser parser, String input, int row, int column)
+            throws ParseException {
+        return new FormulaTemplate(parser, parser.parse(input), input, row, column);
+    }
+
+    /**
+     * The formula parsed at the origin cell.
+     * @return The formula of the template at its origin.
+     */
+    public Expression getFormula() {
+        return formula;
+    }
+
+    /**
+     * The row of the origin cell.
+     * @return The row the template was written at.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * The column of the origin cell.
+     * @return The column the template was written at.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Whether the template can be placed at a cell.
+     * A template cannot be placed where any of its references
+     * would move before the first row or column.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @return true if every reference of the template moves to a cell.
+     */
+    public boolean fits(int row, int column) {
+        return source.fits(row - this.row, column - this.column)
+                && rendered.fits(row - this.row, column - this.column);
+    }
+
+    /**
+     * The formula of the template placed at a cell.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @requires fits(row, column)
+     * @return A formula sharing this template with its references moved to the cell.
+     * @throws IllegalArgumentException If the template does not fit at the cell.
+     */
+    public RelativeFormula at(int row, int column) {
+        if (!fits(row, column)) {
+            throw new IllegalArgumentException("Reference out of bounds: "
+                    + source.at(0, 0) + " at " + CellLocation.of(row, column));
+        }
+        return new RelativeFormula(this, row, column);
+    }
+
+    /**
+     * The formula as it would be written at a cell, with its references moved.
+     *
+     * @param row The row of the cell.
+     * @param column The column of the cell.
+     * @requires fits(row, column)
+     * @return The input of the template adjusted to the cell.
+     */
+    public String inputAt(int row, int column) {
+        return source.at(row - this.row, column - this.column);
+    }
+
+    /**
+     * The rendering of the formula placed at a cell.
+     */
+    String renderAt(int row, int column) {
+        return rendered.at(row - this.row, column - this.column);
+    }
+
+    /**
+     * Parse the formula as it would be written at a cell.
+     */
+    Expression parseAt(int row, int column) {
+        try {
+            return parser.parse(inputAt(row, column));
+        } catch (ParseException e) {
+            // moving references never changes how the rest of the input is parsed
+            throw new IllegalStateException("Unable to parse a placed template", e);
+        }
+    }
+
+    /**
+     * The dependencies of the formula placed at a cell.
+     */
+    Set<String> dependenciesAt(int row, int column) {
+        Set<String> dependencies = new HashSet<>(builtins);
+        for (CellLocation cell : cellReferencesAt(row, column)) {
+            dependencies.add(cell.toString());
+        }
+        return dependencies;
+    }
+
+    /**
+     * The cells referenced by the formula placed at a cell.
+     */
+    Set<CellLocation> cellReferencesAt(int row, int column) {
+        CellLocation[] cells = new CellLocation[references.length];
+        for (int i = 0; i < references.length; i++) {
+            cells[i] = CellLocation.of(CellLocation.row(references[i]) + row - this.row,
+                    CellLocation.column(references[i]) + column - this.column);
+        }
+        return Set.of(cells);
+    }
+
+    /**
+     * Compile the formula at the origin cell, reusing the previous
+     * compilation if it was compiled by the same compiler.
+     */
+    Optional<CompiledFormula> compile(FormulaCompiler compiler) {
+        Compilation compilation = this.compilation;
+        if (compilation == null || compilation.compiler() != compiler) {
+            compilation = new Compilation(compiler, compiler.compile(formula));
+            this.compilation = compilation;
+        }
+        return compilation.formula();
+    }
+
+    /**
+     * Text split around the cell references within it.
+     *
+     * @param segments The text between references, one more than the number of references.
+     * @param rows The rows of each reference.
+     * @param columns The columns of each reference.
+     */
+    private record Text(String[] segments, int[] rows, int[] columns) {
+        static Text split(String input) {
+            List<String> segments = new ArrayList<>();
+            List<Long> references = new ArrayList<>();
+            Lexer lexer = new Lexer(input, SimpleParser.OPERATORS);
+            int segmentStart = 0;
+            for (; lexer.kind() != Lexer.END; lexer.advance()) {
+                if (lexer.kind() != Lexer.TEXT) {
+                    continue;
+                }
+                int start = lexer.start(lexer.position());
+                int end = lexer.end(lexer.position());
+                while (start < end && Character.isWhitespace(input.charAt(start))) {
+                    start++;
+                }
+                while (end > start && Character.isWhitespace(input.charAt(end - 1))) {
+                    end--;
+                }
+                long key = CellLocation.parseKey(input.subSequence(start, end));
+                if (key != CellLocation.NOT_A_REFERENCE) {
+                    segments.add(input.substring(segmentStart, start));
+                    references.add(key);
+                    segmentStart = end;
+                }
+            }
+            segments.add(input.substring(segmentStart));
+
+            int[] rows = new int[references.size()];
+            int[] columns = new int[references.size()];
+            for (int i = 0; i < references.size(); i++) {
+                rows[i] = CellLocation.row(references.get(i));
+                columns[i] = CellLocation.column(references.get(i));
+            }
+            return new Text(segments.toArray(new String[0]), rows, columns);
+        }
+
+        boolean fits(int rowOffset, int columnOffset) {
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] + rowOffset < 0 || columns[i] + columnOffset < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String at(int rowOffset, int columnOffset) {
+            if (rows.length == 0) {
+                return segments[0];
+            }
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < rows.length; i++) {
+                builder.append(segments[i]);
+                CellLocation.appendColumnName(builder, columns[i] + columnOffset)
+                        .append(rows[i] + rowOffset);
+            }
+            return builder.append(segments[rows.length]).toString();
+        }
+    }
+}
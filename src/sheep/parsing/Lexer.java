@@ -0,0 +1,165 @@
+package sheep.parsing;
+
+import java.util.Arrays;
+
+/**
+ * Splits an input string into tokens in a single pass.
+ * <p>
+ * The tokens are the arithmetic operators, parentheses, and the text between them.
+ * A text token is always present between any two other tokens, even if it is empty,
+ * so the sequence of tokens is always text, followed by any number of an operator
+ * or parenthesis and then text, followed by the end of the input.
+ * <p>
+ * The tokens are stored as positions within the input rather than as substrings,
+ * so only the text that becomes part of an expression is ever copied.
+ */
+class Lexer {
+    /** Any text between two other tokens, possibly empty. */
+    static final int TEXT = 0;
+    /** One of the arithmetic operators. */
+    static final int OPERATOR = 1;
+    /** An opening parenthesis. */
+    static final int OPEN = 2;
+    /** A closing parenthesis. */
+    static final int CLOSE = 3;
+    /** The end of the input. */
+    static final int END = 4;
+
+    private final String input;
+    private int[] kinds = new int[16];
+    // the precedence of operators, or -1 for any other kind of token
+    private int[] precedences = new int[16];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count = 0;
+    private int position = 0;
+
+    /**
+     * Tokenize an input string.
+     *
+     * @param input The string to tokenize.
+     * @param operators The operator characters, from the lowest to the highest precedence.
+     */
+    Lexer(String input, String operators) {
+        this.input = input;
+        int textStart = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char character = input.charAt(i);
+            int precedence = -1;
+            int kind;
+            if (character == '(') {
+                kind = OPEN;
+            } else if (character == ')') {
+                kind = CLOSE;
+            } else if ((precedence = operators.indexOf(character)) >= 0) {
+                kind = OPERATOR;
+            } else {
+                continue;
+            }
+            add(TEXT, -1, textStart, i);
+            add(kind, precedence, i, i + 1);
+            textStart = i + 1;
+        }
+        add(TEXT, -1, textStart, input.length());
+        add(END, -1, input.length(), input.length());
+    }
+
+    private void add(int kind, int precedence, int start, int end) {
+        if (count == kinds.length) {
+            kinds = Arrays.copyOf(kinds, count * 2);
+            precedences = Arrays.copyOf(precedences, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        kinds[count] = kind;
+        precedences[count] = precedence;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * The string being tokenized.
+     * @return The input string.
+     */
+    String input() {
+        return input;
+    }
+
+    /**
+     * The index of the current token.
+     * @return The position of the lexer.
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Move to the next token.
+     */
+    void advance() {
+        position++;
+    }
+
+    /**
+     * The kind of the token at an offset from the current token,
+     * or {@link #END} if the offset is past the end of the input.
+     *
+     * @param offset The number of tokens after the current token.
+     * @return The kind of the token.
+     */
+    int kind(int offset) {
+        return position + offset < count ? kinds[position + offset] : END;
+    }
+
+    /**
+     * The kind of the current token.
+     * @return The kind of the current token.
+     */
+    int kind() {
+        return kinds[position];
+    }
+
+    /**
+     * The precedence of the token at an offset from the current token,
+     * where zero is the lowest precedence.
+     *
+     * @param offset The number of tokens after the current token.
+     * @return The precedence of the operator, or -1 if the token is not an operator.
+     */
+    int precedence(int offset) {
+        return position + offset < count ? precedences[position + offset] : -1;
+    }
+
+    /**
+     * The position in the input of the first character of a token.
+     * @param token The index of the token.
+     * @return The start of the token.
+     */
+    int start(int token) {
+        return starts[token];
+    }
+
+    /**
+     * The position in the input after the last character of a token.
+     * @param token The index of the token.
+     * @return The end of the token.
+     */
+    int end(int token) {
+        return ends[token];
+    }
+
+    /**
+     * Whether a token contains only whitespace, or is empty.
+     * @param token The index of the token.
+     * @return True if the token is blank.
+     */
+    boolean isBlank(int token) {
+        for (int i = starts[token]; i < ends[token]; i++) {
+            if (!Character.isWhitespace(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
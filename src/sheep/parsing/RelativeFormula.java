@@ -0,0 +1,201 @@
+package sheep.parsing;
+
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.compiled.CompiledFormula;
+import sheep.expression.compiled.FormulaCompiler;
+import sheep.sheets.CellLocation;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A {@link FormulaTemplate} placed at a cell.
+ * <p>
+ * The formula behaves exactly as the template's formula written at the cell
+ * with its references moved, but only stores the template and the cell.
+ * The formula is rendered, and its references found, from the template.
+ * A sheet compiles the template once and evaluates it against the cells
+ * moved by the same distance, so the formula itself is never parsed.
+ * Formulas that cannot be compiled are parsed when first evaluated.
+ */
+public class RelativeFormula extends Expression {
+    private final FormulaTemplate template;
+    private final int row;
+    private final int column;
+    // only parsed if the formula must be evaluated without being compiled
+    private Expression expression;
+
+    /**
+     * Construct the formula of a template placed at a cell.
+     */
+    RelativeFormula(FormulaTemplate template, int row, int column) {
+        this.template = template;
+        this.row = row;
+        this.column = column;
+    }
+
+    /**
+     * The template of this formula.
+     * @return The template shared by every cell the template is placed in.
+     */
+    public FormulaTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * The row the template is placed in.
+     * @return The row of the formula's cell.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * The column the template is placed in.
+     * @return The column of the formula's cell.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * The template's formula as written at this cell.
+     * @return The parsed formula, equal to parsing the template's moved input.
+     */
+    public Expression expression() {
+        Expression expression = this.expression;
+        if (expression == null) {
+            // parsing the same input again gives an equal expression, so a race is harmless
+            expression = template.parseAt(row, column);
+            this.expression = expression;
+        }
+        return expression;
+    }
+
+    /**
+     * Dependencies of the formula, the template's dependencies with cell references moved.
+     * @return An unmodifiable set of the references depended upon by the formula.
+     */
+    @Override
+    public Set<String> dependencies() {
+        return Collections.unmodifiableSet(template.dependenciesAt(row, column));
+    }
+
+    /**
+     * Cells referenced by the formula, the template's cells moved to this cell.
+     * @return An unmodifiable set of the cells referenced by the formula.
+     */
+    @Override
+    public Set<CellLocation> cellReferences() {
+        return template.cellReferencesAt(row, column);
+    }
+
+    /**
+     * The numeric value of the formula as written at this cell.
+     * @return The numeric value of the formula.
+     * @throws TypeError If the formula does not have a numeric value.
+     */
+    @Override
+    public long value() throws TypeError {
+        return expression().value();
+    }
+
+    /**
+     * The result of evaluating the formula as written at this cell.
+     *
+     * @param state A mapping of references to the expression they hold.
+     * @return The result of evaluating the formula.
+     * @throws TypeError If a type error occurs in the process of evaluation.
+     */
+    @Override
+    public Expression value(Map<String, Expression> state) throws TypeError {
+        return expression().value(state);
+    }
+
+    /**
+     * Evaluate the formula as written at this cell directly to a numeric value.
+     *
+     * @param state A mapping of references to the expression they hold.
+     * @return The numeric value of the formula.
+     * @throws TypeError If the formula is not numeric,
+     *                   or a type error occurs in the process of evaluation.
+     */
+    @Override
+    public long evalLong(Map<String, Expression> state) throws TypeError {
+        return expression().evalLong(state);
+    }
+
+    /**
+     * Compile the formula from the compiled template.
+     * The compiled template reads each cell moved by the distance
+     * from the template's origin to this cell.
+     * <p>
+     * Unlike other expressions, the formula is only compiled if the
+     * template's formula can be compiled by {@link FormulaCompiler#compile(Expression)},
+     * so may be compiled as the entire formula of a cell.
+     *
+     * @param compiler The compiler used to resolve references.
+     * @return The compiled formula, or empty if the template cannot be compiled.
+     */
+    @Override
+    public Optional<CompiledFormula> compile(FormulaCompiler compiler) {
+        int rows = row - template.getRow();
+        int columns = column - template.getColumn();
+        return template.compile(compiler).map(formula -> cells ->
+                formula.evaluate((cellRow, cellColumn) ->
+                        cells.numberAt(cellRow + rows, cellColumn + columns)));
+    }
+
+    /**
+     * Whether the template's formula is a reference.
+     * @return true if the formula is a reference.
+     */
+    @Override
+    public boolean isReference() {
+        return template.getFormula().isReference();
+    }
+
+    /**
+     * The rendering of the template's formula as written at this cell.
+     * @return the string representation of the formula.
+     */
+    @Override
+    public String render() {
+        return template.renderAt(row, column);
+    }
+
+    /**
+     * The string representation of the formula as written at this cell.
+     * @return the string representation of the formula.
+     */
+    @Override
+    public String toString() {
+        return expression().toString();
+    }
+
+    /**
+     * If two relative formulas are equal to each other.
+     * Equality is defined by being the same template placed at the same cell.
+     * @param object Another object to compare against.
+     * @return true if the other object is the same template at the same cell.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof RelativeFormula other)) {
+            return false;
+        }
+        return template == other.template && row == other.row && column == other.column;
+    }
+
+    /**
+     * A hashcode method that respects the {@link RelativeFormula#equals(Object)} method.
+     * @return An appropriate hashcode value for this instance.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * System.identityHashCode(template) + row) + column;
+    }
+}
@@ -4,10 +4,21 @@ import sheep.expression.Expression;
 import sheep.expression.ExpressionFactory;
 import sheep.expression.InvalidExpression;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Parser of basic expressions and arithmetic expressions.
+ * <p>
+ * The input is split into tokens by a {@link Lexer} in a single pass,
+ * then parsed by precedence climbing over the tokens.
+ * Each precedence level collects every operand of its operator into a single
+ * arithmetic expression, so operators are never nested within the same operator.
  */
 public class SimpleParser implements Parser {
+    // operators from the lowest to the highest precedence
+    static final String OPERATORS = "=<+-*/";
+
     private final ExpressionFactory factory;
 
     /**
@@ -20,46 +31,172 @@ public class SimpleParser implements Parser {
         this.factory = factory;
     }
 
-    private Expression[] tryParse(String[] inputs) throws ParseException, InvalidExpression {
-        Expression[] expressions = new Expression[inputs.length];
-        for (int i = 0; i < inputs.length; i++) {
-            expressions[i] = tryParse(inputs[i]);
+    /**
+     * Parse the operands of the operator with the given precedence,
+     * up to the first operator of a lower precedence.
+     */
+    private Expression parseLevel(Lexer lexer, int level) throws ParseException, InvalidExpression {
+        if (level == OPERATORS.length()) {
+            return parseOperand(lexer);
+        }
+        if (isSignedNumber(lexer, level)) {
+            String input = lexer.input();
+            int start = lexer.start(lexer.position() + 1);
+            int end = stripEnd(input, start, lexer.end(lexer.position() + 2));
+            lexer.advance();
+            lexer.advance();
+            lexer.advance();
+            return factory.createConstant(parseNumber(input, start, end));
+        }
+
+        int first = lexer.position();
+        Expression operand = parseLevel(lexer, level + 1);
+        if (!isOperator(lexer, level)) {
+            return operand;
         }
-        return expressions;
+        List<Expression> operands = new ArrayList<>();
+        operands.add(operand);
+        // trailing empty operands are ignored, e.g. 1 + 2 + is 1 + 2
+        int kept = isEmptyOperand(lexer, first, true) ? 0 : 1;
+        while (isOperator(lexer, level)) {
+            lexer.advance();
+            int start = lexer.position();
+            operands.add(parseLevel(lexer, level + 1));
+            if (!isEmptyOperand(lexer, start, !isOperator(lexer, level))) {
+                kept = operands.size();
+            }
+        }
+        return factory.createOperator(String.valueOf(OPERATORS.charAt(level)),
+                operands.subList(0, kept).toArray());
     }
 
-    private Expression tryParse(String input) throws ParseException, InvalidExpression {
-        input = input.strip();
-        try {
-            long number = Long.parseLong(input);
-            return factory.createConstant(number);
-        } catch (NumberFormatException ignored) {
-            // ignore unable to parse
-        }
-
-        if (input.contains("=")) {
-            return factory.createOperator("=", tryParse(input.split("=")));
-        } else if (input.contains("<")) {
-            return factory.createOperator("<", tryParse(input.split("<")));
-        } else if (input.contains("+")) {
-            return factory.createOperator("+", tryParse(input.split("\\+")));
-        } else if (input.contains("-")) {
-            return factory.createOperator("-", tryParse(input.split("-")));
-        } else if (input.contains("*")) {
-            return factory.createOperator("*", tryParse(input.split("\\*")));
-        } else if (input.contains("/")) {
-            return factory.createOperator("/", tryParse(input.split("/")));
-        }
-
-        for (char character : input.toCharArray()) {
+    private boolean isOperator(Lexer lexer, int level) {
+        return lexer.precedence(0) == level;
+    }
+
+    /**
+     * Whether the operand that started at the given token has no text at all.
+     * An operand of only whitespace has no text if it is the first or last operand,
+     * as the surrounding whitespace is not part of an expression.
+     */
+    private boolean isEmptyOperand(Lexer lexer, int token, boolean atEdge) {
+        return lexer.position() == token + 1
+                && (lexer.start(token) == lexer.end(token) || atEdge && lexer.isBlank(token));
+    }
+
+    /**
+     * Whether the operand at the given precedence level is a signed number such as -5,
+     * which is a constant rather than an operator applied to a number.
+     */
+    private boolean isSignedNumber(Lexer lexer, int level) {
+        String input = lexer.input();
+        int sign = lexer.start(lexer.position() + 1);
+        if (lexer.precedence(1) < level
+                || input.charAt(sign) != '-' && input.charAt(sign) != '+'
+                || lexer.kind(3) == Lexer.OPEN
+                || lexer.precedence(3) >= level
+                || !lexer.isBlank(lexer.position())) {
+            return false;
+        }
+        int end = lexer.end(lexer.position() + 2);
+        return isNumber(input, sign, stripEnd(input, sign, end));
+    }
+
+    /**
+     * Parse an operand that contains no operators,
+     * which is either a parenthesised expression or a basic expression.
+     */
+    private Expression parseOperand(Lexer lexer) throws ParseException, InvalidExpression {
+        int text = lexer.position();
+        lexer.advance();
+        if (lexer.kind() != Lexer.OPEN) {
+            return parseText(lexer.input(), lexer.start(text), lexer.end(text));
+        }
+        if (!lexer.isBlank(text)) {
+            throw new ParseException("Unknown input: " + lexer.input().strip());
+        }
+        lexer.advance();
+        Expression expression = parseLevel(lexer, 0);
+        if (lexer.kind() != Lexer.CLOSE) {
+            throw new ParseException("Unbalanced parentheses: " + lexer.input().strip());
+        }
+        lexer.advance();
+        if (!lexer.isBlank(lexer.position())) {
+            throw new ParseException("Unknown input: " + lexer.input().strip());
+        }
+        lexer.advance();
+        return expression;
+    }
+
+    private Expression parseText(String input, int start, int end) throws ParseException {
+        while (start < end && Character.isWhitespace(input.charAt(start))) {
+            start++;
+        }
+        end = stripEnd(input, start, end);
+        if (start == end) {
+            return factory.createEmpty();
+        }
+        if (isNumber(input, start, end)) {
+            return factory.createConstant(parseNumber(input, start, end));
+        }
+        for (int i = start; i < end; i++) {
+            char character = input.charAt(i);
             if (!(Character.isAlphabetic(character) || Character.isDigit(character))) {
-                throw new ParseException("Unknown input: " + input);
+                throw new ParseException("Unknown input: " + input.substring(start, end));
             }
         }
-        if (input.isEmpty()) {
-            return factory.createEmpty();
+        return factory.createReference(input.substring(start, end));
+    }
+
+    private static int stripEnd(String input, int start, int end) {
+        while (end > start && Character.isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Whether the text can be parsed as a long by the rules of {@link Long#parseLong(String)},
+     * checked without throwing an exception.
+     */
+    private static boolean isNumber(String input, int start, int end) {
+        boolean negative = start < end && input.charAt(start) == '-';
+        if (start < end && (negative || input.charAt(start) == '+')) {
+            start++;
         }
-        return factory.createReference(input);
+        if (start == end) {
+            return false;
+        }
+        // accumulate negatively, as Long.MIN_VALUE has no positive counterpart
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(input.charAt(i), 10);
+            if (digit < 0 || result < limit / 10) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        return true;
+    }
+
+    /**
+     * Parse text that satisfies {@link #isNumber(String, int, int)}.
+     */
+    private static long parseNumber(String input, int start, int end) {
+        boolean negative = input.charAt(start) == '-';
+        if (negative || input.charAt(start) == '+') {
+            start++;
+        }
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            result = result * 10 - Character.digit(input.charAt(i), 10);
+        }
+        return negative ? result : -result;
     }
 
     /**
@@ -91,6 +228,8 @@ public class SimpleParser implements Parser {
      * </ul>
      * You must ensure that the maximum amount of operands are used,
      * i.e. do not parse 4 + 5 + 6 as Plus(4, Plus(5, 6)) instead do Plus(4, 5, 6).
+     * Any part of an expression may be surrounded by parentheses,
+     * which is parsed as a single component, e.g. (4 + 5) * 6 is Times(Plus(4, 5), 6).
      * <p>
      * Note: This does not need to be implemented until stage 2.
      * </li>
@@ -119,7 +258,12 @@ public class SimpleParser implements Parser {
     @Override
     public Expression parse(String input) throws ParseException {
         try {
-            return tryParse(input);
+            Lexer lexer = new Lexer(input, OPERATORS);
+            Expression expression = parseLevel(lexer, 0);
+            if (lexer.kind() != Lexer.END) {
+                throw new ParseException("Unbalanced parentheses: " + input.strip());
+            }
+            return expression;
         } catch (InvalidExpression e) {
             throw new ParseException(e);
         }
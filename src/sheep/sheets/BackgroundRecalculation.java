@@ -0,0 +1,155 @@
+package sheep.sheets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Evaluates the out of date cells of a lazy sheet on a worker,
+ * so that updates return as soon as the cells are marked out of date.
+ * <p>
+ * Each update schedules its affected cells, in topological order, split into batches.
+ * The worker evaluates one batch at a time, holding the sheet's lock only while
+ * a batch is evaluated so that the sheet may be read and updated between batches.
+ * After each batch, the callback is run to publish the new values.
+ * <p>
+ * Batches are kept in a priority queue. Cells within the sheet's visible viewport
+ * are scheduled ahead of every other batch, so the cells being looked at are
+ * evaluated first, along with the out of date cells they use, however many
+ * other cells are waiting. Otherwise, batches are evaluated in the order they
+ * were scheduled.
+ * <p>
+ * Cells that were evaluated when read, or removed from the sheet,
+ * before the worker reaches them are skipped. Cells updated again
+ * while waiting are evaluated after any out of date cells they use,
+ * so the order of the scheduled batches does not matter.
+ * <p>
+ * If evaluating a batch or running the callback throws, the worker stops and
+ * a new worker is started for any remaining batches. If the executor rejects
+ * the worker, the scheduled cells are evaluated when read or by the next worker.
+ */
+class BackgroundRecalculation {
+    private static final int VISIBLE = 0;
+    private static final int HIDDEN = 1;
+
+    /**
+     * Cells to evaluate together, ordered by priority then by when they were scheduled.
+     */
+    private record Work(int priority, long sequence, List<CellLocation> cells)
+            implements Comparable<Work> {
+        @Override
+        public int compareTo(Work other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final Sheet sheet;
+    private final Executor worker;
+    private final int batchSize;
+    private final Runnable published;
+    // guarded by the sheet's lock
+    private final PriorityQueue<Work> pending = new PriorityQueue<>();
+    private long scheduled = 0;
+    private boolean running = false;
+
+    /**
+     * Construct a recalculation of the given sheet on a worker.
+     *
+     * @param sheet The sheet to recalculate.
+     * @param worker The executor to evaluate cells on.
+     * @param batchSize The number of cells evaluated each time the sheet is locked.
+     * @param published A callback run after each batch of cells is evaluated.
+     * @requires batchSize &gt; 0
+     */
+    public BackgroundRecalculation(Sheet sheet, Executor worker, int batchSize,
+                                   Runnable published) {
+        this.sheet = sheet;
+        this.worker = worker;
+        this.batchSize = batchSize;
+        this.published = published;
+    }
+
+    /**
+     * Schedule cells to be evaluated, starting the worker if it is not running.
+     * Must be called while holding the sheet's lock.
+     *
+     * @param order The out of date cells in topological order.
+     * @param viewport The visible cells of the sheet, or null if unknown.
+     */
+    public void schedule(List<CellLocation> order, Viewport viewport) {
+        if (viewport != null) {
+            List<CellLocation> visible = new ArrayList<>();
+            for (CellLocation cell : order) {
+                if (viewport.contains(cell)) {
+                    visible.add(cell);
+                }
+            }
+            prioritise(visible);
+        }
+        for (int start = 0; start < order.size(); start += batchSize) {
+            add(new Work(HIDDEN, scheduled++,
+                    order.subList(start, Math.min(order.size(), start + batchSize))));
+        }
+    }
+
+    /**
+     * Schedule visible cells to be evaluated before any other cells.
+     * Must be called while holding the sheet's lock.
+     *
+     * @param visible Out of date cells within the viewport.
+     */
+    public void prioritise(List<CellLocation> visible) {
+        if (!visible.isEmpty()) {
+            add(new Work(VISIBLE, scheduled++, visible));
+        }
+    }
+
+    private void add(Work work) {
+        pending.add(work);
+        if (!running) {
+            start();
+        }
+    }
+
+    private void start() {
+        running = true;
+        try {
+            worker.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            // the cells stay out of date and are evaluated when read,
+            // the next schedule tries to start the worker again
+            running = false;
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Work work;
+                synchronized (sheet) {
+                    work = pending.poll();
+                    if (work == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                sheet.recalculate(work.cells());
+                published.run();
+            }
+        } catch (RuntimeException | Error e) {
+            // a failed batch or callback must not stop later batches from being evaluated
+            synchronized (sheet) {
+                running = false;
+                if (!pending.isEmpty()) {
+                    start();
+                }
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package sheep.sheets;
+
+import sheep.core.Transaction;
+import sheep.core.UpdateResponse;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.parsing.FormulaTemplate;
+import sheep.parsing.ParseException;
+import sheep.parsing.Parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A transaction that applies many updates to a {@link Sheet} at once.
+ * <p>
+ * Inputs are parsed as soon as they are added to the batch,
+ * but the sheet is only modified when the batch is committed.
+ * Committing validates and recalculates every affected cell in a single pass,
+ * and applies either all of the updates or none of them.
+ * <pre>
+ * {@code
+ * Batch batch = sheet.begin();
+ * for (int row = 0; row < 10000; row++) {
+ *     batch.update(row, 0, "A0 + " + row);
+ * }
+ * batch.commit();
+ * }</pre>
+ */
+public class Batch implements Transaction {
+    private final Sheet sheet;
+    private final Parser parser;
+    private final Map<CellLocation, Expression> updates = new LinkedHashMap<>();
+
+    /**
+     * Construct a new empty batch of updates to a sheet.
+     *
+     * @param sheet The sheet to update when the batch is committed.
+     * @param parser The parser used to parse string inputs.
+     */
+    Batch(Sheet sheet, Parser parser) {
+        this.sheet = sheet;
+        this.parser = parser;
+    }
+
+    /**
+     * Add an update of a cell to the batch.
+     * <p>
+     * If the input cannot be parsed, the update is not added to the batch
+     * and the response fails with "Unable to parse: [input]".
+     * If the cell is outside the sheet, the response fails with
+     * "Cell out of bounds: [cell]".
+     *
+     * @param row The row index to update.
+     * @param column The column index to update.
+     * @param input The value as a string to replace within the sheet.
+     * @return Whether the update was added to the batch.
+     */
+    @Override
+    public UpdateResponse update(int row, int column, String input) {
+        CellLocation location = CellLocation.of(row, column);
+        if (!sheet.contains(location)) {
+            return UpdateResponse.fail("Cell out of bounds: " + location);
+        }
+        try {
+            updates.put(location, parser.parse(input));
+            return UpdateResponse.success();
+        } catch (ParseException e) {
+            return UpdateResponse.fail("Unable to parse: " + input);
+        }
+    }
+
+    /**
+     * Add updates filling a range of cells to the batch, as {@link Sheet#fill(int, int, int, int, String)}
+     * would when the batch is committed.
+     * <p>
+     * The input is parsed once, as written at the given cell.
+     * If the input cannot be parsed, the response fails with "Unable to parse: [input]".
+     * If either corner is outside the sheet, the response fails with "Cell out of bounds: [cell]",
+     * and if the formula's references would move before the first row or column of any
+     * cell of the range, the response fails with "Reference out of bounds: [cell]".
+     * In each case, no updates are added to the batch.
+     *
+     * @param row The row of the cell the input is written at.
+     * @param column The column of the cell the input is written at.
+     * @param toRow The row of the opposite corner of the range.
+     * @param toColumn The column of the opposite corner of the range.
+     * @param input The formula as written at the given cell.
+     * @return Whether the updates were added to the batch.
+     */
+    @Override
+    public UpdateResponse fill(int row, int column, int toRow, int toColumn, String input) {
+        FormulaTemplate template;
+        try {
+            template = FormulaTemplate.parse(parser, input, row, column);
+        } catch (ParseException e) {
+            return UpdateResponse.fail("Unable to parse: " + input);
+        }
+        CellLocation from = CellLocation.of(row, column);
+        CellLocation to = CellLocation.of(toRow, toColumn);
+        UpdateResponse fits = sheet.checkFill(template, from, to);
+        if (fits.isSuccess()) {
+            updates.putAll(sheet.placements(template, from, to, null));
+        }
+        return fits;
+    }
+
+    /**
+     * Add an update of a cell to the batch.
+     *
+     * @param location The location of the cell to update.
+     * @param cell An expression to insert at the given location.
+     * @requires location is within the bounds (row/columns) of the sheet.
+     */
+    public void update(CellLocation location, Expression cell) {
+        updates.put(location, cell);
+    }
+
+    /**
+     * The number of cells that will be updated when the batch is committed.
+     * @return The number of cells in the batch.
+     */
+    public int size() {
+        return updates.size();
+    }
+
+    /**
+     * Apply every update in the batch to the sheet with {@link Sheet#update(Map)}.
+     * <p>
+     * If a {@link TypeError} occurs, no updates are applied and
+     * the response fails with "Type error: [e]".
+     *
+     * @return Information about the status of committing the batch.
+     */
+    @Override
+    public UpdateResponse commit() {
+        try {
+            sheet.update(updates);
+            return UpdateResponse.success();
+        } catch (TypeError e) {
+            return UpdateResponse.fail("Type error: " + e);
+        } finally {
+            updates.clear();
+        }
+    }
+}
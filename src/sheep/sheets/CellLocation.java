@@ -1,7 +1,6 @@
 package sheep.sheets;
 
 
-import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -10,9 +9,28 @@ import java.util.Optional;
  * <p>
  * Notably columns are represented as character, e.g. in cell A1,
  * the column is 0 and the row is 1.
+ * Columns after Z are named with more letters in the same way as
+ * other spreadsheets, i.e. Z, AA, AB, ..., AZ, BA, ..., ZZ, AAA and so on,
+ * see {@link #columnName(int)}.
+ * <p>
+ * A cell location can also be packed into a single {@code long} key,
+ * which allows cells to be stored, parsed and compared without creating
+ * any objects, see {@link #key(int, int)} and {@link CellMap}.
  * @stage2
  */
 public class CellLocation {
+    /** The key returned by {@link #parseKey(CharSequence)} for strings that are not references. */
+    public static final long NOT_A_REFERENCE = Long.MIN_VALUE;
+
+    // interned instances are held for the life of the program, so only the
+    // cells near the top left corner, where most sheets and games live, are cached;
+    // blocks of rows are allocated lazily so that a small sheet only fills one
+    private static final int CACHE_BLOCK_ROWS = 64;
+    private static final int CACHE_ROWS = 1024;
+    private static final int CACHE_COLUMNS = 64;
+    private static final CellLocation[][] CACHE =
+            new CellLocation[CACHE_ROWS / CACHE_BLOCK_ROWS][];
+
     private final int row;
     private final int column;
 
@@ -27,6 +45,9 @@ public class CellLocation {
      *
      * In this constructor column chars are converted to column indexes,
      * e.g. column 'A' would become 0 and 'B' would become 1 and so on.
+     * A single character can only name the first 26 columns; for columns after Z,
+     * use {@link #CellLocation(int, int)} or {@link #of(int, int)} with an index
+     * from {@link #parseColumn(CharSequence)}.
      *
      * @requires row is greater than or equal to zero, column is between 'A' and 'Z' inclusive.
      * @param row A number representing the row number.
@@ -46,8 +67,10 @@ public class CellLocation {
      * location.getRow() // 4
      * }</pre>
      *
+     * Columns are not limited to 26. Columns after Z are named
+     * with more letters, see {@link #columnName(int)}.
+     *
      * @requires row and column are greater than or equal to zero.
-     * @requires column is less than 26.
      * @param row A number representing the row number.
      * @param column A number representing the column (see description of method).
      */
@@ -56,15 +79,231 @@ public class CellLocation {
         this.column = column;
     }
 
+    /**
+     * A cell location at the given row and column,
+     * reusing a shared instance where possible.
+     * <p>
+     * Instances for cells within the first {@value #CACHE_ROWS} rows and
+     * {@value #CACHE_COLUMNS} columns are interned, so repeatedly requesting
+     * the same cell does not create a new object. Cells elsewhere, such as those
+     * of large sparse sheets, are not cached, so enumerating a large sheet does not
+     * keep its cells alive. The result is always equal to
+     * {@code new CellLocation(row, column)}, but is not guaranteed to be the same
+     * instance as an earlier result.
+     *
+     * @param row A number representing the row number.
+     * @param column A number representing the column.
+     * @return A cell location at the given row and column.
+     */
+    public static CellLocation of(int row, int column) {
+        if (row < 0 || row >= CACHE_ROWS || column < 0 || column >= CACHE_COLUMNS) {
+            return new CellLocation(row, column);
+        }
+        // unsynchronized, a racing thread at worst creates an equal duplicate
+        CellLocation[] block = CACHE[row / CACHE_BLOCK_ROWS];
+        if (block == null) {
+            block = new CellLocation[CACHE_BLOCK_ROWS * CACHE_COLUMNS];
+            CACHE[row / CACHE_BLOCK_ROWS] = block;
+        }
+        int index = (row % CACHE_BLOCK_ROWS) * CACHE_COLUMNS + column;
+        CellLocation location = block[index];
+        if (location == null) {
+            location = new CellLocation(row, column);
+            block[index] = location;
+        }
+        return location;
+    }
+
+    /**
+     * The cell location represented by a packed key.
+     *
+     * @param key A key created by {@link #key(int, int)}.
+     * @return The cell location of the key.
+     */
+    public static CellLocation ofKey(long key) {
+        return of(row(key), column(key));
+    }
+
+    /**
+     * Pack a row and column into a single key.
+     * The row is stored in the upper 32 bits and the column in the lower 32 bits,
+     * so two keys are equal if and only if the cell locations are equal.
+     *
+     * @param row A number representing the row number.
+     * @param column A number representing the column.
+     * @return The packed key of the cell.
+     */
+    public static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The row number of a packed key.
+     * @param key A key created by {@link #key(int, int)}.
+     * @return The row number of the key.
+     */
+    public static int row(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * The column number of a packed key.
+     * @param key A key created by {@link #key(int, int)}.
+     * @return The column number of the key.
+     */
+    public static int column(long key) {
+        return (int) key;
+    }
+
+    /**
+     * The packed key of this cell location.
+     * @return The key of this cell location, as per {@link #key(int, int)}.
+     */
+    public long key() {
+        return key(row, column);
+    }
+
+    /**
+     * The name of a column, as used in references.
+     * <pre>
+     * {@code
+     * CellLocation.columnName(0) // "A"
+     * CellLocation.columnName(25) // "Z"
+     * CellLocation.columnName(26) // "AA"
+     * CellLocation.columnName(16383) // "XFD"
+     * }</pre>
+     *
+     * @param column A column index.
+     * @requires column &ge; 0
+     * @return The name of the column.
+     */
+    public static String columnName(int column) {
+        return appendColumnName(new StringBuilder(4), column).toString();
+    }
+
+    /**
+     * Append the name of a column, without creating any intermediate strings.
+     *
+     * @param builder The builder to append to.
+     * @param column A column index.
+     * @requires column &ge; 0
+     * @return The given builder.
+     */
+    public static StringBuilder appendColumnName(StringBuilder builder, int column) {
+        // names of each length follow on from every shorter name, so the
+        // name is the offset within its length written in base 26
+        int width = 1;
+        long first = 0;
+        long count = 26;
+        while (column >= first + count) {
+            first += count;
+            count *= 26;
+            width++;
+        }
+        long offset = column - first;
+        int start = builder.length();
+        builder.setLength(start + width);
+        for (int i = width - 1; i >= 0; i--) {
+            builder.setCharAt(start + i, (char) ('A' + offset % 26));
+            offset /= 26;
+        }
+        return builder;
+    }
+
+    /**
+     * The index of a named column.
+     * <pre>
+     * {@code
+     * CellLocation.parseColumn("A") // 0
+     * CellLocation.parseColumn("AA") // 26
+     * CellLocation.parseColumn("a") // -1
+     * }</pre>
+     *
+     * @param name A string that may be the name of a column.
+     * @requires name != null
+     * @return The index of the column, or -1 if the string is not a column name.
+     */
+    public static int parseColumn(CharSequence name) {
+        return name.length() > 0 && columnEnd(name) == name.length()
+                ? decodeColumn(name, name.length())
+                : -1;
+    }
+
+    /**
+     * The position after the leading uppercase letters of a string.
+     */
+    private static int columnEnd(CharSequence ref) {
+        int end = 0;
+        while (end < ref.length() && ref.charAt(end) >= 'A' && ref.charAt(end) <= 'Z') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * The column index named by the first letters of a string,
+     * or -1 if the index is too large to be represented.
+     */
+    private static int decodeColumn(CharSequence ref, int end) {
+        long column = 0;
+        for (int i = 0; i < end; i++) {
+            column = column * 26 + (ref.charAt(i) - 'A' + 1);
+            if (column > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) column - 1;
+    }
+
+    /**
+     * Parse a string as a reference to a cell location without creating any objects.
+     * The format of the reference is the same as {@link #maybeReference(String)}.
+     * Rows and columns too large to be represented are not references.
+     *
+     * <pre>
+     * {@code
+     * CellLocation.parseKey("A2") // CellLocation.key(2, 0)
+     * CellLocation.parseKey("AB2") // CellLocation.key(2, 27)
+     * CellLocation.parseKey("2A") // CellLocation.NOT_A_REFERENCE
+     * }</pre>
+     *
+     * @param ref A string that may represent a cell location.
+     * @requires ref != null
+     * @return The packed key of the reference, or {@link #NOT_A_REFERENCE}.
+     */
+    public static long parseKey(CharSequence ref) {
+        int end = columnEnd(ref);
+        if (end == 0 || end == ref.length()) {
+            return NOT_A_REFERENCE;
+        }
+        int column = decodeColumn(ref, end);
+        if (column < 0) {
+            return NOT_A_REFERENCE;
+        }
+        long row = 0;
+        for (int i = end; i < ref.length(); i++) {
+            char digit = ref.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return NOT_A_REFERENCE;
+            }
+            row = row * 10 + (digit - '0');
+            if (row > Integer.MAX_VALUE) {
+                return NOT_A_REFERENCE;
+            }
+        }
+        return key((int) row, column);
+    }
+
     /**
      * Attempt to parse a string as a reference to a cell location.
      * If the string is not a reference to a cell location, returns {@link Optional#empty()}.
-     * The format of the reference is a single uppercase character followed by
-     * an integer without spaces and without extraneous characters after the integer or before the character.
+     * The format of the reference is a column name of one or more uppercase characters followed by
+     * an integer without spaces and without extraneous characters after the integer or before the characters.
      *
      * <pre>
      * {@code
      * CellLocation.maybeReference("A2") // Optional.of(new CellLocation(2, 'A'))
+     * CellLocation.maybeReference("AA2") // Optional.of(new CellLocation(2, 26))
      * CellLocation.maybeReference("2A") // Optional.empty()
      * CellLocation.maybeReference("A 2") // Optional.empty()
      * CellLocation.maybeReference(" A2 ") // Optional.empty()
@@ -76,19 +315,11 @@ public class CellLocation {
      *         otherwise the empty optional.
      */
     public static Optional<CellLocation> maybeReference(String ref) {
-        if (ref.length() < 2 || ref.charAt(0) < 'A' || ref.charAt(0) > 'Z') {
+        long key = parseKey(ref);
+        if (key == NOT_A_REFERENCE) {
             return Optional.empty();
         }
-        char column = ref.charAt(0);
-        StringBuilder rowString = new StringBuilder();
-        for (int i = 1; i < ref.length(); i++) {
-            if (!Character.isDigit(ref.charAt(i))) {
-                return Optional.empty();
-            }
-            rowString.append(ref.charAt(i));
-        }
-        int row = Integer.parseInt(rowString.toString());
-        return Optional.of(new CellLocation(row, column));
+        return Optional.of(ofKey(key));
     }
 
     /**
@@ -128,16 +359,28 @@ public class CellLocation {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(row, column);
+        // the same value as Objects.hash(row, column), without boxing
+        return 31 * (31 + row) + column;
+    }
+
+    /**
+     * Append the string representation of a cell location,
+     * without creating any intermediate strings.
+     *
+     * @param builder The builder to append to.
+     * @return The given builder.
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        return appendColumnName(builder, getColumn()).append(getRow());
     }
 
     /**
      * A string representation of a cell location.
-     * @return A string representation of this cell location, e.g. A2 or C23.
+     * @return A string representation of this cell location, e.g. A2, C23 or AB7.
      */
     @Override
     public String toString() {
-        return "" + Character.toString(getColumn() + 'A') + getRow();
+        return appendTo(new StringBuilder(12)).toString();
     }
 }
 
@@ -0,0 +1,295 @@
+package sheep.sheets;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * A hash map from cells to values, keyed by the packed keys of {@link CellLocation#key()}.
+ * <p>
+ * Unlike a {@code HashMap<CellLocation, V>}, looking up a cell does not require
+ * a {@link CellLocation} instance and adding a cell does not create an entry object.
+ * Keys are stored in a flat open-addressing table, so a lookup is
+ * a short linear probe over a primitive array.
+ * <p>
+ * Null values are not permitted.
+ *
+ * @param <V> The type of values stored for each cell.
+ */
+public class CellMap<V> {
+    /**
+     * An operation applied to each entry of the map.
+     * @param <V> The type of values in the map.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Accept a single entry of the map.
+         * @param key The packed key of the cell.
+         * @param value The value stored for the cell.
+         */
+        void accept(long key, V value);
+    }
+
+    /**
+     * A condition on the entries of the map.
+     * @param <V> The type of values in the map.
+     */
+    @FunctionalInterface
+    public interface EntryPredicate<V> {
+        /**
+         * Test a single entry of the map.
+         * @param key The packed key of the cell.
+         * @param value The value stored for the cell.
+         * @return Whether the entry satisfies the condition.
+         */
+        boolean test(long key, V value);
+    }
+
+    private static final int MINIMUM_CAPACITY = 16;
+    // 2^64 divided by the golden ratio, which spreads every bit of a key into the high bits
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    // a null value marks an empty slot, since every key is a valid cell
+    private Object[] values;
+    private int size = 0;
+    // the number of low bits to drop from a spread key to leave a slot index
+    private int shift;
+
+    /**
+     * Construct a new empty map.
+     */
+    public CellMap() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Construct a new empty map with room for the given number of cells.
+     * @param expected The number of cells expected to be stored.
+     */
+    public CellMap(int expected) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity * 3 / 4 < expected) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = Long.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private int slot(long key) {
+        // the high bits of the product depend on both the row and the column,
+        // so blocks of cells spread evenly however wide the sheet is
+        return (int) ((key * SPREAD) >>> shift);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The number of cells in the map.
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether the map contains no cells.
+     * @return True if the map is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Whether the map contains a value for a cell.
+     * @param key The packed key of the cell.
+     * @return True if a value is stored for the cell.
+     */
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * The value stored for a cell.
+     * @param key The packed key of the cell.
+     * @return The value for the cell, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = find(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * The value stored for a cell.
+     * @param location The location of the cell.
+     * @return The value for the cell, or null if there is none.
+     */
+    public V get(CellLocation location) {
+        return get(location.key());
+    }
+
+    /**
+     * Store a value for a cell, replacing any existing value.
+     *
+     * @param key The packed key of the cell.
+     * @param value The value to store.
+     * @requires value != null
+     * @return The previous value for the cell, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * 3 / 4) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Store a value for a cell, replacing any existing value.
+     *
+     * @param location The location of the cell.
+     * @param value The value to store.
+     * @requires value != null
+     * @return The previous value for the cell, or null if there was none.
+     */
+    public V put(CellLocation location, V value) {
+        return put(location.key(), value);
+    }
+
+    /**
+     * The value stored for a cell, first storing a computed value if there is none.
+     *
+     * @param key The packed key of the cell.
+     * @param function Computes the value for the cell from its key.
+     * @requires function does not return null
+     * @return The existing or computed value for the cell.
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Remove the value stored for a cell.
+     * @param key The packed key of the cell.
+     * @return The removed value, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = find(key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = (V) values[index];
+        delete(index);
+        return previous;
+    }
+
+    /**
+     * Remove the value stored for a cell.
+     * @param location The location of the cell.
+     * @return The removed value, or null if there was none.
+     */
+    public V remove(CellLocation location) {
+        return remove(location.key());
+    }
+
+    /**
+     * Remove every entry that satisfies a condition.
+     * @param condition The condition for entries to remove.
+     */
+    @SuppressWarnings("unchecked")
+    public void removeIf(EntryPredicate<? super V> condition) {
+        int i = 0;
+        while (i < keys.length) {
+            // deleting shifts a later entry into this slot, so test it again
+            if (values[i] != null && condition.test(keys[i], (V) values[i])) {
+                delete(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Perform an operation on every entry of the map.
+     * The map must not be modified by the operation.
+     * @param action The operation to perform.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Remove every entry of the map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void delete(int index) {
+        // shift back later entries of the probe sequence so lookups never stop short
+        int mask = keys.length - 1;
+        int gap = index;
+        for (int i = (index + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = Long.numberOfLeadingZeros(capacity - 1);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package sheep.sheets;
+
+import sheep.core.SheetUpdate;
+import sheep.core.SheetView;
+import sheep.core.UpdateResponse;
+import sheep.core.ViewElement;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.parsing.ParseException;
+import sheep.parsing.Parser;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Spreadsheet that may be updated by many threads at once.
+ * <p>
+ * The rows of the sheet are divided into bands of equal height, and each band is
+ * its own {@link Sheet}, guarded by its own lock. A cell belongs to the band of its
+ * row. When a formula references a cell of another band, the referenced cell is
+ * mirrored into the formula's band: the band holds a copy of the cell's value at
+ * the cell's location, which is refreshed whenever the cell's value changes.
+ * Bands therefore only link to the bands that mirror their cells, and updates of
+ * bands that are not linked, such as regions written by different workers,
+ * proceed in parallel.
+ * <p>
+ * Locks are always taken in the same order, so no two updates can wait on each other:
+ * <ol>
+ *     <li>The links between bands, shared by updates that leave the links unchanged,
+ *     and held exclusively by updates that add or remove references between bands.</li>
+ *     <li>The locks of the bands an update may change, in ascending order of band.
+ *     These are the band of the updated cell, and every band linked from it,
+ *     directly or through other bands.</li>
+ * </ol>
+ * Reading a cell only takes the lock of its band.
+ * <p>
+ * Concurrent sheets are constructed with {@link SheetBuilder#concurrent(int, int, int)},
+ * and evaluate every update immediately.
+ */
+public class ConcurrentSheet implements SheetView, SheetUpdate {
+    /**
+     * A band of rows, with its own cells and lock.
+     */
+    private record Band(ReentrantLock lock, Sheet cells) {
+
+    }
+
+    private final Parser parser;
+    private final Expression defaultExpression;
+    private final int rows;
+    private final int columns;
+    private final int bandRows;
+    private final Band[] bands;
+    // guards the mirrors and links, which are only modified
+    // while the write lock is held
+    private final ReentrantReadWriteLock topology = new ReentrantReadWriteLock();
+    // for each mirrored cell, the number of cells of each band that reference it
+    private final CellMap<int[]> mirrors = new CellMap<>();
+    // the number of cells of one band mirrored into another band
+    private final int[][] links;
+
+    /**
+     * Construct a concurrent sheet from bands of cells.
+     *
+     * @param parser The parser instance used to create expressions.
+     * @param defaultExpression The default expression held by empty cells.
+     * @param bandRows The number of rows in each band.
+     * @param bands Empty sheets of the full dimensions, one for each band of rows.
+     * @requires bandRows &gt; 0 &amp;&amp; bands.size() * bandRows &ge; the rows of each sheet
+     */
+    ConcurrentSheet(Parser parser, Expression defaultExpression, int bandRows, List<Sheet> bands) {
+        this.parser = parser;
+        this.defaultExpression = defaultExpression;
+        this.rows = bands.get(0).getRows();
+        this.columns = bands.get(0).getColumns();
+        this.bandRows = bandRows;
+        this.bands = new Band[bands.size()];
+        for (int i = 0; i < bands.size(); i++) {
+            this.bands[i] = new Band(new ReentrantLock(), bands.get(i));
+        }
+        this.links = new int[bands.size()][bands.size()];
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * The number of bands the rows of the sheet are divided into.
+     *
+     * @return The number of bands.
+     */
+    public int getBands() {
+        return bands.length;
+    }
+
+    private boolean contains(CellLocation location) {
+        return location.getRow() >= 0 && location.getRow() < rows
+                && location.getColumn() >= 0 && location.getColumn() < columns;
+    }
+
+    private int bandOf(CellLocation location) {
+        return location.getRow() / bandRows;
+    }
+
+    /**
+     * The formula stored at the location, see {@link Sheet#formulaAt(CellLocation)}.
+     *
+     * @param location A cell location within the spreadsheet.
+     * @requires location is within the bounds (row/columns) of the spreadsheet.
+     * @return The formula expression at the given cell location.
+     */
+    public Expression formulaAt(CellLocation location) {
+        Band band = bands[bandOf(location)];
+        band.lock().lock();
+        try {
+            return band.cells().formulaAt(location);
+        } finally {
+            band.lock().unlock();
+        }
+    }
+
+    /**
+     * The value stored at the location, see {@link Sheet#valueAt(CellLocation)}.
+     * The value is read after any update propagating through the cell's band.
+     *
+     * @param location A cell location within the spreadsheet.
+     * @requires location is within the bounds (row/columns) of the spreadsheet.
+     * @return The value expression at the given cell location.
+     */
+    public Expression valueAt(CellLocation location) {
+        Band band = bands[bandOf(location)];
+        band.lock().lock();
+        try {
+            return band.cells().valueAt(location);
+        } finally {
+            band.lock().unlock();
+        }
+    }
+
+    @Override
+    public ViewElement valueAt(int row, int column) {
+        return new ViewElement(valueAt(CellLocation.of(row, column)).render(), "white", "black");
+    }
+
+    @Override
+    public ViewElement formulaAt(int row, int column) {
+        return new ViewElement(formulaAt(CellLocation.of(row, column)).render(), "white", "black");
+    }
+
+    /**
+     * Attempt to update the cell with the given input, as in {@link Sheet#update(int, int, String)}.
+     *
+     * @param row The row index to update.
+     * @param column The column index to update.
+     * @param input The value as a string to replace within the sheet.
+     * @return Information about the status of performing the update.
+     */
+    @Override
+    public UpdateResponse update(int row, int column, String input) {
+        try {
+            Expression expr = parser.parse(input);
+            update(CellLocation.of(row, column), expr);
+            return UpdateResponse.success();
+        } catch (TypeError e) {
+            return UpdateResponse.fail("Type error: " + e);
+        } catch (ParseException e) {
+            return UpdateResponse.fail("Unable to parse: " + input);
+        }
+    }
+
+    /**
+     * Insert an expression into the sheet, as in {@link Sheet#update(CellLocation, Expression)}.
+     * <p>
+     * May be called by many threads at once. Every cell that uses the updated cell,
+     * in any band, is recalculated before the update returns. If the update is
+     * rejected, every band returns to the same state as before the update.
+     *
+     * @param location A cell location to insert the expression into the sheet.
+     * @param cell An expression to insert at the given location.
+     * @requires location is within the bounds (row/columns) of the spreadsheet.
+     * @throws TypeError If the evaluation of the inserted cell or any of its usages
+     *                  results in a TypeError being thrown,
+     *                  or a {@link CycleError} if the cell would be part of a reference loop.
+     */
+    public void update(CellLocation location, Expression cell) throws TypeError {
+        int band = bandOf(location);
+        if (foreignReferences(band, cell).isEmpty()) {
+            topology.readLock().lock();
+            try {
+                List<Band> locked = lock(reachable(band));
+                try {
+                    // the previous formula can only be read once the band is locked
+                    if (foreignReferences(band, bands[band].cells().formulaAt(location)).isEmpty()) {
+                        apply(location, cell);
+                        return;
+                    }
+                } finally {
+                    unlock(locked);
+                }
+            } finally {
+                topology.readLock().unlock();
+            }
+        }
+        // the update adds or removes references between bands
+        topology.writeLock().lock();
+        try {
+            List<Band> locked = lock(allBands());
+            try {
+                apply(location, cell);
+            } finally {
+                unlock(locked);
+            }
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The cells of other bands that an expression references.
+     */
+    private Set<CellLocation> foreignReferences(int band, Expression expression) {
+        Set<CellLocation> references = new HashSet<>();
+        for (CellLocation reference : expression.cellReferences()) {
+            if (contains(reference) && bandOf(reference) != band) {
+                references.add(reference);
+            }
+        }
+        return references;
+    }
+
+    /**
+     * The given band and every band that mirrors its cells, directly or through other bands,
+     * in ascending order.
+     */
+    private SortedSet<Integer> reachable(int band) {
+        SortedSet<Integer> reached = new TreeSet<>();
+        Deque<Integer> remaining = new ArrayDeque<>();
+        reached.add(band);
+        remaining.push(band);
+        while (!remaining.isEmpty()) {
+            int from = remaining.pop();
+            for (int to = 0; to < bands.length; to++) {
+                if (links[from][to] > 0 && reached.add(to)) {
+                    remaining.push(to);
+                }
+            }
+        }
+        return reached;
+    }
+
+    private SortedSet<Integer> allBands() {
+        SortedSet<Integer> all = new TreeSet<>();
+        for (int band = 0; band < bands.length; band++) {
+            all.add(band);
+        }
+        return all;
+    }
+
+    private List<Band> lock(SortedSet<Integer> indices) {
+        List<Band> locked = new ArrayList<>(indices.size());
+        for (int index : indices) {
+            bands[index].lock().lock();
+            locked.add(bands[index]);
+        }
+        return locked;
+    }
+
+    private void unlock(List<Band> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).lock().unlock();
+        }
+    }
+
+    /**
+     * Update a cell and propagate its new value through every band.
+     * Must be called holding the lock of every band that may change,
+     * and the write lock of the topology if references between bands change.
+     */
+    private void apply(CellLocation location, Expression cell) throws TypeError {
+        int band = bandOf(location);
+        Sheet cells = bands[band].cells();
+        checkLoops(location, cell);
+
+        Expression previous = cells.formulaAt(location);
+        Set<CellLocation> added = foreignReferences(band, cell);
+        Set<CellLocation> removed = foreignReferences(band, previous);
+        added.removeAll(foreignReferences(band, previous));
+        removed.removeAll(foreignReferences(band, cell));
+        // newly referenced cells are mirrored before the formula can read them
+        List<CellLocation> mirrored = new ArrayList<>();
+        for (CellLocation reference : added) {
+            if (mirrorCount(reference, band) == 0) {
+                cells.update(reference, bands[bandOf(reference)].cells().valueAt(reference));
+                mirrored.add(reference);
+            }
+        }
+        try {
+            cells.update(location, cell);
+        } catch (TypeError | RuntimeException e) {
+            for (CellLocation reference : mirrored) {
+                cells.update(reference, defaultExpression);
+            }
+            throw e;
+        }
+        for (CellLocation reference : added) {
+            link(reference, band, 1);
+        }
+        for (CellLocation reference : removed) {
+            if (link(reference, band, -1) == 0) {
+                cells.update(reference, defaultExpression);
+            }
+        }
+
+        try {
+            propagate(band, location);
+        } catch (TypeError | RuntimeException e) {
+            // other bands rejected the new value, so every band is returned to the previous value
+            try {
+                apply(location, previous);
+            } catch (TypeError restore) {
+                throw new IllegalStateException("Unable to restore the previous values of the sheet", restore);
+            }
+            throw e;
+        }
+    }
+
+    private int mirrorCount(CellLocation reference, int band) {
+        int[] counts = mirrors.get(reference.key());
+        return counts == null ? 0 : counts[band];
+    }
+
+    /**
+     * Change the number of cells of a band that reference a cell of another band.
+     *
+     * @return The new number of referencing cells.
+     */
+    private int link(CellLocation reference, int band, int change) {
+        int[] counts = mirrors.computeIfAbsent(reference.key(), key -> new int[bands.length]);
+        int before = counts[band];
+        counts[band] += change;
+        if (before == 0 || counts[band] == 0) {
+            links[bandOf(reference)][band] += change;
+        }
+        if (counts[band] == 0 && Arrays.stream(counts).allMatch(count -> count == 0)) {
+            mirrors.remove(reference.key());
+        }
+        return counts[band];
+    }
+
+    private boolean linked(int band) {
+        for (int count : links[band]) {
+            if (count > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Refresh the mirrors of an updated cell, and of every cell that uses it,
+     * until no band has a mirror out of date.
+     */
+    private void propagate(int band, CellLocation location) throws TypeError {
+        if (!linked(band)) {
+            // the cells of the band are not mirrored, so there is nothing to refresh
+            return;
+        }
+        // the cells of each band that changed since their mirrors were refreshed
+        TreeMap<Integer, Set<CellLocation>> changed = new TreeMap<>();
+        Set<CellLocation> updated = new HashSet<>(bands[band].cells().usedBy(location));
+        updated.add(location);
+        changed.put(band, updated);
+        while (!changed.isEmpty()) {
+            Map.Entry<Integer, Set<CellLocation>> next = changed.pollFirstEntry();
+            if (!linked(next.getKey())) {
+                continue;
+            }
+            Sheet from = bands[next.getKey()].cells();
+            Map<Integer, Map<CellLocation, Expression>> refreshed = new TreeMap<>();
+            for (CellLocation cell : next.getValue()) {
+                int[] counts = mirrors.get(cell.key());
+                if (counts == null) {
+                    continue;
+                }
+                for (int to = 0; to < bands.length; to++) {
+                    if (counts[to] > 0) {
+                        refreshed.computeIfAbsent(to, key -> new HashMap<>())
+                                .put(cell, from.valueAt(cell));
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Map<CellLocation, Expression>> mirror : refreshed.entrySet()) {
+                Sheet to = bands[mirror.getKey()].cells();
+                to.update(mirror.getValue());
+                if (linked(mirror.getKey())) {
+                    Set<CellLocation> users = changed.computeIfAbsent(mirror.getKey(), key -> new HashSet<>());
+                    for (CellLocation cell : mirror.getValue().keySet()) {
+                        users.addAll(to.usedBy(cell));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reject a formula that uses a cell whose value depends on the updated cell
+     * through other bands. Loops within a band are rejected by the band itself.
+     */
+    private void checkLoops(CellLocation location, Expression cell) throws CycleError {
+        Set<CellLocation> references = cell.cellReferences();
+        if (references.isEmpty()) {
+            return;
+        }
+        // cells of any band that use the updated cell, found by following each
+        // used cell into the bands that mirror it
+        Set<CellLocation> users = new HashSet<>();
+        Deque<CellLocation> remaining = new ArrayDeque<>();
+        Deque<Integer> remainingBands = new ArrayDeque<>();
+        remaining.push(location);
+        remainingBands.push(bandOf(location));
+        boolean crossed = false;
+        while (!remaining.isEmpty()) {
+            CellLocation used = remaining.pop();
+            int band = remainingBands.pop();
+            List<CellLocation> found = new ArrayList<>(bands[band].cells().usedBy(used));
+            if (bandOf(used) == band) {
+                found.add(used);
+            }
+            for (CellLocation user : found) {
+                if (!users.add(user)) {
+                    continue;
+                }
+                int[] counts = mirrors.get(user.key());
+                if (counts == null) {
+                    continue;
+                }
+                for (int to = 0; to < bands.length; to++) {
+                    if (counts[to] > 0) {
+                        crossed = true;
+                        remaining.push(user);
+                        remainingBands.push(to);
+                    }
+                }
+            }
+        }
+        if (!crossed) {
+            return;
+        }
+        for (CellLocation reference : references) {
+            if (users.contains(reference)) {
+                throw new CycleError(loop(location, reference, users));
+            }
+        }
+    }
+
+    /**
+     * The cells of the loop closed by the updated cell referring to a cell that uses it,
+     * starting from the updated cell, with each cell used by the next.
+     * Only cells that use the updated cell are followed, and their bands are all locked.
+     */
+    private List<CellLocation> loop(CellLocation location, CellLocation reference,
+                                    Set<CellLocation> users) {
+        // the cell that refers to each cell reached, following references back to the updated cell
+        Map<CellLocation, CellLocation> referrers = new HashMap<>();
+        Deque<CellLocation> remaining = new ArrayDeque<>();
+        remaining.add(reference);
+        while (!remaining.isEmpty() && !referrers.containsKey(location)) {
+            CellLocation cell = remaining.poll();
+            for (CellLocation used : bands[bandOf(cell)].cells().formulaAt(cell).cellReferences()) {
+                if (users.contains(used) && !used.equals(reference) && !referrers.containsKey(used)) {
+                    referrers.put(used, cell);
+                    remaining.add(used);
+                }
+            }
+        }
+        List<CellLocation> loop = new ArrayList<>();
+        for (CellLocation cell = location; !cell.equals(reference); cell = referrers.get(cell)) {
+            loop.add(cell);
+        }
+        loop.add(reference);
+        return loop;
+    }
+}
@@ -0,0 +1,45 @@
+package sheep.sheets;
+
+import sheep.expression.TypeError;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Thrown if an update would create a loop of references between cells,
+ * e.g. A0 refers to A1, A1 refers to A2 and A2 refers to A0, or B1 refers to B1.
+ * <p>
+ * The cells of a loop have no value, so an update creating a loop
+ * is rejected in the same way as an update that results in a {@link TypeError}.
+ */
+public class CycleError extends TypeError {
+    private static final long serialVersionUID = 1L;
+
+    private final List<CellLocation> cycle;
+
+    /**
+     * Construct a new exception for a loop between the given cells.
+     * @param cycle The cells that form the loop.
+     * @requires cycle.size() &gt; 0
+     */
+    public CycleError(List<CellLocation> cycle) {
+        super(describe(cycle));
+        this.cycle = List.copyOf(cycle);
+    }
+
+    private static String describe(List<CellLocation> cycle) {
+        StringJoiner members = new StringJoiner(", ");
+        for (CellLocation cell : cycle) {
+            members.add(cell.toString());
+        }
+        return "Reference cycle between " + members;
+    }
+
+    /**
+     * The cells that form the loop of references.
+     * @return The members of the loop.
+     */
+    public List<CellLocation> getCycle() {
+        return cycle;
+    }
+}
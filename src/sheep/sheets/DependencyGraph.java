@@ -0,0 +1,316 @@
+package sheep.sheets;
+
+import sheep.expression.Expression;
+
+import java.util.*;
+
+/**
+ * The graph of references between the cells of a sheet.
+ * <p>
+ * An edge from a cell to another cell indicates that the formula of the
+ * second cell references the first cell, i.e. the second cell is a dependant
+ * of the first. Only cells that are referenced by at least one formula are
+ * stored in the graph.
+ * <p>
+ * The transitive dependants of a cell are memoised once they are requested.
+ * When an edge changes, only the memoised results of the cells upstream of
+ * the edge are invalidated, found by following the edges in reverse.
+ * Invalidation is deferred until the next request so that a batch of
+ * changed edges is handled in a single walk.
+ * <p>
+ * Cells are indexed by their packed keys, see {@link CellMap}.
+ */
+class DependencyGraph {
+    private final CellMap<Set<CellLocation>> dependents = new CellMap<>();
+    private final CellMap<Set<CellLocation>> precedents = new CellMap<>();
+    private final CellMap<Set<CellLocation>> closures = new CellMap<>();
+    private final Set<CellLocation> stale = new HashSet<>();
+
+    /**
+     * The cells whose formulas directly reference the given cell.
+     *
+     * @param location A cell location.
+     * @return The set of direct dependants of the cell, possibly empty.
+     */
+    public Set<CellLocation> dependentsOf(CellLocation location) {
+        Set<CellLocation> users = dependents.get(location);
+        return users == null ? Collections.emptySet() : users;
+    }
+
+    /**
+     * The cells directly referenced by the formula of the given cell.
+     *
+     * @param location A cell location.
+     * @return The set of direct precedents of the cell, possibly empty.
+     */
+    public Set<CellLocation> precedentsOf(CellLocation location) {
+        Set<CellLocation> inputs = precedents.get(location);
+        return inputs == null ? Collections.emptySet() : inputs;
+    }
+
+    /**
+     * Replace the edges created by the old formula at a location with
+     * the edges required by the new formula.
+     *
+     * @param location The location of the updated cell.
+     * @param oldFormula The formula previously stored at the location.
+     * @param newFormula The formula now stored at the location.
+     */
+    public void replace(CellLocation location, Expression oldFormula, Expression newFormula) {
+        for (CellLocation reference : oldFormula.cellReferences()) {
+            Set<CellLocation> users = dependents.get(reference);
+            if (users != null) {
+                users.remove(location);
+                if (users.isEmpty()) {
+                    dependents.remove(reference);
+                }
+            }
+            markStale(reference);
+        }
+        precedents.remove(location);
+        for (CellLocation reference : newFormula.cellReferences()) {
+            dependents.computeIfAbsent(reference.key(), key -> new HashSet<>())
+                    .add(location);
+            precedents.computeIfAbsent(location.key(), key -> new HashSet<>())
+                    .add(reference);
+            markStale(reference);
+        }
+    }
+
+    private void markStale(CellLocation location) {
+        // nothing can be invalidated while nothing is memoised
+        if (!closures.isEmpty()) {
+            stale.add(location);
+        }
+    }
+
+    /**
+     * Remove the edges to cells that lie outside the given dimensions,
+     * used when the cells of a sheet are discarded.
+     *
+     * @param rows The number of rows that remain.
+     * @param columns The number of columns that remain.
+     */
+    public void retainWithin(int rows, int columns) {
+        dependents.removeIf((key, cells) -> {
+            cells.removeIf(cell -> cell.getRow() >= rows || cell.getColumn() >= columns);
+            return cells.isEmpty();
+        });
+        precedents.removeIf((key, cells) ->
+                CellLocation.row(key) >= rows || CellLocation.column(key) >= columns);
+        closures.clear();
+        stale.clear();
+    }
+
+    /**
+     * Remove every edge from the graph.
+     */
+    public void clear() {
+        dependents.clear();
+        precedents.clear();
+        closures.clear();
+        stale.clear();
+    }
+
+    /**
+     * The given cells followed by all of their transitive dependants
+     * in topological order.
+     * <p>
+     * Every cell appears exactly once and appears after all the cells
+     * that it references within the returned list, so evaluating
+     * the cells in order computes each cell after its inputs.
+     * <p>
+     * The order is found with Tarjan's strongly connected components algorithm,
+     * which visits only the given cells and their dependants.
+     * Any component with more than one cell, or a cell that references itself,
+     * is a loop of references and has no topological order.
+     *
+     * @param locations The cells that have changed.
+     * @return The cells which must be recalculated, in evaluation order.
+     * @throws CycleError If any of the cells or their dependants are part of a loop.
+     */
+    public List<CellLocation> topologicalOrder(Collection<CellLocation> locations)
+            throws CycleError {
+        Components components = new Components();
+        for (CellLocation location : locations) {
+            if (!components.discovered.containsKey(location.key())) {
+                components.visit(location);
+            }
+        }
+        // components are completed after all of their dependants,
+        // so they are reversed so that inputs precede their users
+        Collections.reverse(components.order);
+        return components.order;
+    }
+
+    /**
+     * The state of a search for strongly connected components.
+     * <p>
+     * Each discovered cell has a record of its discovery index, its low link,
+     * and whether it is still on the stack of the component being built.
+     */
+    private class Components {
+        private static final int INDEX = 0;
+        private static final int LOW_LINK = 1;
+        private static final int ON_COMPONENT = 2;
+
+        private final CellMap<int[]> discovered = new CellMap<>();
+        private final Deque<CellLocation> component = new ArrayDeque<>();
+        private final List<CellLocation> order = new ArrayList<>();
+
+        private int[] discover(CellLocation location) {
+            int index = discovered.size();
+            int[] record = {index, index, 1};
+            discovered.put(location, record);
+            component.push(location);
+            return record;
+        }
+
+        private void visit(CellLocation location) throws CycleError {
+            // an explicit stack of partially visited cells keeps the stack depth
+            // constant regardless of the length of reference chains
+            Deque<Iterator<CellLocation>> pending = new ArrayDeque<>();
+            Deque<CellLocation> visiting = new ArrayDeque<>();
+            Deque<int[]> records = new ArrayDeque<>();
+            records.push(discover(location));
+            visiting.push(location);
+            pending.push(dependentsOf(location).iterator());
+            while (!visiting.isEmpty()) {
+                int[] current = records.peek();
+                Iterator<CellLocation> remaining = pending.peek();
+                if (remaining.hasNext()) {
+                    CellLocation dependant = remaining.next();
+                    int[] next = discovered.get(dependant);
+                    if (next == null) {
+                        records.push(discover(dependant));
+                        visiting.push(dependant);
+                        pending.push(dependentsOf(dependant).iterator());
+                    } else if (next[ON_COMPONENT] == 1) {
+                        current[LOW_LINK] = Math.min(current[LOW_LINK], next[INDEX]);
+                    }
+                } else {
+                    CellLocation cell = visiting.pop();
+                    records.pop();
+                    pending.pop();
+                    if (current[LOW_LINK] == current[INDEX]) {
+                        complete(cell);
+                    }
+                    if (!records.isEmpty()) {
+                        int[] parent = records.peek();
+                        parent[LOW_LINK] = Math.min(parent[LOW_LINK], current[LOW_LINK]);
+                    }
+                }
+            }
+        }
+
+        private void complete(CellLocation root) throws CycleError {
+            CellLocation member = component.pop();
+            discovered.get(member)[ON_COMPONENT] = 0;
+            if (member.equals(root)) {
+                if (dependentsOf(root).contains(root)) {
+                    throw new CycleError(List.of(root));
+                }
+                order.add(root);
+                return;
+            }
+            List<CellLocation> cycle = new ArrayList<>();
+            cycle.add(member);
+            while (!member.equals(root)) {
+                member = component.pop();
+                cycle.add(member);
+            }
+            // members were pushed in the order they were reached from the root
+            Collections.reverse(cycle);
+            throw new CycleError(cycle);
+        }
+    }
+
+    /**
+     * Group cells into levels that can each be evaluated independently.
+     * <p>
+     * Every cell is placed in the level after the latest level of the cells
+     * it references, so no cell references another cell in its own level
+     * or any later level. Evaluating the levels in order, and the cells within
+     * a level in any order, computes each cell after its inputs.
+     *
+     * @param order Cells in topological order, as returned by {@link #topologicalOrder(Collection)}.
+     * @return The cells grouped into levels, in evaluation order.
+     */
+    public List<List<CellLocation>> levels(List<CellLocation> order) {
+        CellMap<int[]> depths = new CellMap<>(order.size());
+        List<List<CellLocation>> levels = new ArrayList<>();
+        for (CellLocation cell : order) {
+            int[] known = depths.get(cell);
+            int depth = known == null ? 0 : known[0];
+            while (levels.size() <= depth) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(depth).add(cell);
+            for (CellLocation dependant : dependentsOf(cell)) {
+                int[] dependantDepth = depths.computeIfAbsent(dependant.key(), key -> new int[1]);
+                dependantDepth[0] = Math.max(dependantDepth[0], depth + 1);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * All of the cells which transitively depend on the given cell.
+     * <p>
+     * The result is memoised, so repeated requests for a cell
+     * whose dependants have not changed do not search the graph again.
+     *
+     * @param location A cell location.
+     * @return An unmodifiable set of the transitive dependants, excluding the cell itself.
+     */
+    public Set<CellLocation> transitiveDependents(CellLocation location) {
+        invalidateStale();
+        Set<CellLocation> closure = closures.get(location);
+        if (closure == null) {
+            closure = Collections.unmodifiableSet(searchDependents(location));
+            closures.put(location, closure);
+        }
+        return closure;
+    }
+
+    private Set<CellLocation> searchDependents(CellLocation location) {
+        Set<CellLocation> seen = new HashSet<>();
+        Deque<CellLocation> worklist = new ArrayDeque<>();
+        worklist.push(location);
+        while (!worklist.isEmpty()) {
+            for (CellLocation next : dependentsOf(worklist.pop())) {
+                if (seen.add(next)) {
+                    worklist.push(next);
+                }
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Forget the memoised dependants of every cell upstream of a changed edge.
+     * Only those cells can reach the changed edge, so only their
+     * transitive dependants may have changed.
+     */
+    private void invalidateStale() {
+        if (stale.isEmpty()) {
+            return;
+        }
+        Deque<CellLocation> worklist = new ArrayDeque<>(stale);
+        Set<CellLocation> seen = new HashSet<>(stale);
+        stale.clear();
+        while (!worklist.isEmpty() && !closures.isEmpty()) {
+            CellLocation cell = worklist.pop();
+            closures.remove(cell);
+            Set<CellLocation> inputs = precedents.get(cell);
+            if (inputs == null) {
+                continue;
+            }
+            for (CellLocation precedent : inputs) {
+                if (seen.add(precedent)) {
+                    worklist.push(precedent);
+                }
+            }
+        }
+    }
+}
@@ -43,7 +43,7 @@ public class DisplaySheet implements SheetView, SheetUpdate {
         this.columns = columns;
         for (int row = 0; row < rows; row++) {
             for (int column = 0; column < columns; column++) {
-                contents.put(new CellLocation(row, column), defaultExpression);
+                contents.put(CellLocation.of(row, column), defaultExpression);
             }
         }
     }
@@ -76,7 +76,7 @@ public class DisplaySheet implements SheetView, SheetUpdate {
     public UpdateResponse update(int row, int column, String input) {
         try {
             Expression expr = parser.parse(input);
-            contents.put(new CellLocation(row, column), expr);
+            contents.put(CellLocation.of(row, column), expr);
             return UpdateResponse.success();
         } catch (ParseException e) {
             return UpdateResponse.fail("Unable to parse: " + input);
@@ -119,7 +119,7 @@ public class DisplaySheet implements SheetView, SheetUpdate {
      */
     @Override
     public ViewElement valueAt(int row, int column) {
-        Expression expr = contents.get(new CellLocation(row, column));
+        Expression expr = contents.get(CellLocation.of(row, column));
         return new ViewElement(expr.render(), "white", "black");
     }
 
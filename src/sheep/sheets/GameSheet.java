@@ -24,7 +24,7 @@ public class GameSheet extends Sheet {
      * @param rows              Amount of rows for the new sheet.
      * @param columns           Amount of columns for the new sheet.
      * @requires rows &gt; 0
-     * @requires columns &gt; 0 &amp;&amp; columns &lt; 26
+     * @requires columns &gt; 0
      */
     public GameSheet(Parser parser, Map<String, Expression> builtins,
                      Expression defaultExpression, int rows, int columns) {
@@ -34,7 +34,8 @@ public class GameSheet extends Sheet {
     @Override
     public ViewElement valueAt(int row, int column) {
         ViewElement result = super.valueAt(row, column);
-        return new ViewElement(result.getContent(), colourOf(result.getContent()), "black");
+        return new ViewElement(result.getContent(), colourOf(result.getContent()), "black",
+                result.isStale());
     }
 
     /**
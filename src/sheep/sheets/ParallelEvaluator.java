@@ -0,0 +1,114 @@
+package sheep.sheets;
+
+import sheep.expression.TypeError;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Evaluates the cells of a topological level on a {@link ForkJoinPool}.
+ * <p>
+ * No cell within a level references another cell of the same level,
+ * so the cells of a level may be evaluated concurrently.
+ * Levels with fewer cells than the threshold are not worth
+ * dispatching to the pool and should be evaluated serially.
+ */
+class ParallelEvaluator {
+    /**
+     * The evaluation of a single cell of a level.
+     */
+    @FunctionalInterface
+    interface CellTask {
+        /**
+         * Evaluate the cell at the given position of the level.
+         *
+         * @param index The position of the cell within the level.
+         * @throws TypeError If the evaluation of the cell results in a TypeError.
+         */
+        void evaluate(int index) throws TypeError;
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Construct an evaluator that runs on the given pool.
+     *
+     * @param pool The pool used to evaluate large levels.
+     * @param threshold The minimum number of cells worth evaluating in parallel.
+     * @requires threshold &gt; 0
+     */
+    public ParallelEvaluator(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * The minimum number of cells worth evaluating in parallel.
+     * @return The serial evaluation threshold.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Evaluate every cell of a level on the pool.
+     * <p>
+     * The task is called concurrently for different cells,
+     * so it must not modify any state shared between cells.
+     *
+     * @param size The number of cells in the level.
+     * @param task The evaluation of each cell.
+     * @throws TypeError If the evaluation of any cell results in a TypeError.
+     */
+    public void evaluate(int size, CellTask task) throws TypeError {
+        AtomicReference<TypeError> error = new AtomicReference<>();
+        // split finely enough to balance the load across the pool's workers
+        int grain = Math.max(1, size / (pool.getParallelism() * 4));
+        pool.invoke(new LevelTask(task, 0, size, grain, error));
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    /**
+     * Evaluates a range of a level, splitting it in half while it is larger than the grain.
+     */
+    private static class LevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CellTask task;
+        private final int start;
+        private final int end;
+        private final int grain;
+        private final AtomicReference<TypeError> error;
+
+        LevelTask(CellTask task, int start, int end, int grain,
+                  AtomicReference<TypeError> error) {
+            this.task = task;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+            this.error = error;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > grain) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new LevelTask(task, start, middle, grain, error),
+                        new LevelTask(task, middle, end, grain, error));
+                return;
+            }
+            for (int i = start; i < end && error.get() == null; i++) {
+                try {
+                    task.evaluate(i);
+                } catch (TypeError e) {
+                    // the whole update is abandoned, so only the first error is kept
+                    error.compareAndSet(null, e);
+                }
+            }
+        }
+    }
+}
@@ -6,10 +6,21 @@ import sheep.core.UpdateResponse;
 import sheep.core.ViewElement;
 import sheep.expression.Expression;
 import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.expression.compiled.CompiledFormula;
+import sheep.expression.compiled.FormulaCompiler;
+import sheep.parsing.FormulaTemplate;
 import sheep.parsing.ParseException;
 import sheep.parsing.Parser;
+import sheep.parsing.RelativeFormula;
+import sheep.sheets.storage.CellStore;
+import sheep.sheets.storage.DenseCellStore;
+import sheep.sheets.storage.PersistentCellStore;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Spreadsheet that evaluates its expressions and updates dependant cells.
@@ -19,19 +30,45 @@ import java.util.*;
  * Each cell location of a spreadsheet has a formula and a value.
  * The formula is what has been written in the cell by a user
  * whereas the value is what value the cell contains.
+ * <p>
+ * A sheet may recalculate in the background, see {@link SheetBuilder#background(Executor, int)},
+ * so the sheet's methods hold the sheet's lock while they read or modify its cells.
+ * A sheet may also publish immutable snapshots of its cells, see {@link #snapshot()},
+ * which are read without the lock.
  * @stage2
  */
 public class Sheet implements SheetView, SheetUpdate {
 
-    private final Map<CellLocation, Expression> formulas = new HashMap<>();
-    private final Map<CellLocation, Expression> values = new HashMap<>();
-    private final Map<CellLocation, Set<CellLocation>> usages = new HashMap<>();
+    private final CellStore store;
+    private final DependencyGraph graph = new DependencyGraph();
     private final Map<String, Expression> builtins;
     private final Expression defaultExpression;
-    private int rows;
-    private int columns;
 
     private final Parser parser;
+    private final FormulaCompiler compiler;
+    private final CellMap<CompiledFormula> compiled = new CellMap<>();
+    private ParallelEvaluator evaluator = null;
+    // cells of a lazy sheet whose values are out of date, always including
+    // every dependant of each out of date cell
+    private final CellMap<CellLocation> dirty = new CellMap<>();
+    private boolean lazy = false;
+    private BackgroundRecalculation background = null;
+    private Viewport viewport = null;
+    private final List<Runnable> recalculatedCallbacks = new CopyOnWriteArrayList<>();
+    // updates made during a frame, only the last update of each cell is kept
+    // and they are applied together when the outermost frame ends
+    private int frames = 0;
+    private final Map<CellLocation, Expression> deferred = new LinkedHashMap<>();
+    // the values of the deferred updates, kept while no deferred update
+    // can change the value of any other cell
+    private final CellMap<Expression> deferredValues = new CellMap<>();
+    private boolean deferredIsolated = true;
+    private UpdateResponse deferredResponse = UpdateResponse.success();
+    // the cells of a sheet that publishes snapshots, a snapshot is published
+    // after each change of the cells and read without the sheet's lock
+    private final PersistentCellStore persistent;
+    private long version = 0;
+    private volatile SheetSnapshot snapshot = null;
 
     /**
      * Construct a new instance of the sheet class.
@@ -44,63 +81,65 @@ public class Sheet implements SheetView, SheetUpdate {
      * @param rows Amount of rows for the new sheet.
      * @param columns Amount of columns for the new sheet.
      * @requires rows &gt; 0
-     * @requires columns &gt; 0 &amp;&amp; columns &lt; 26
+     * @requires columns &gt; 0
      */
     protected Sheet(Parser parser, Map<String, Expression> builtins,
           Expression defaultExpression, int rows, int columns) {
+        this(parser, builtins, defaultExpression,
+                new DenseCellStore(defaultExpression, rows, columns));
+    }
+
+    /**
+     * Construct a new instance of the sheet class that stores its cells
+     * in the given cell store.
+     *
+     * @param parser The parser instance used to create expressions.
+     * @param builtins A mapping of built-in identifiers to expressions.
+     * @param defaultExpression The default expression held by the store's empty cells.
+     * @param store An empty cell store of the sheet's dimensions.
+     * @requires store.getRows() &gt; 0 &amp;&amp; store.getColumns() &gt; 0
+     */
+    protected Sheet(Parser parser, Map<String, Expression> builtins,
+                    Expression defaultExpression, CellStore store) {
         this.parser = parser;
-        this.rows = rows;
-        this.columns = columns;
         this.defaultExpression = defaultExpression;
         this.builtins = new HashMap<>(builtins);
-        this.populate();
+        this.store = store;
+        this.compiler = new FormulaCompiler(this.builtins);
+        this.persistent = store instanceof PersistentCellStore cells ? cells : null;
+        publish();
     }
 
     /**
      * Clear the current sheet so that it contains the default
      * formula in every cell.
      */
-    public void clear() {
-        populate();
-    }
-
-    private void populate() {
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                CellLocation location = new CellLocation(i, j);
-                populate(location);
-            }
-        }
-    }
-
-    private void populate(CellLocation location) {
-        values.put(location, defaultExpression);
-        formulas.put(location, defaultExpression);
-        usages.put(location, new HashSet<>());
+    public synchronized void clear() {
+        discardDeferred();
+        graph.clear();
+        store.clear();
+        compiled.clear();
+        dirty.clear();
+        publish();
     }
 
     /**
      * Update the dimensions of the spreadsheet.
-     * If the spreadsheet shrinks, the values of removed cells are remembered
-     * and may be accessed if the spreadsheet grows again.
+     * If the spreadsheet shrinks, the contents of removed cells are discarded.
      * If the spreadsheet grows, the default values are populated.
      *
      * @param rows New number of rows.
      * @param columns New number of columns.
      */
-    public void updateDimensions(int rows, int columns) {
-        for (int newRow = 0; newRow < rows - this.rows; newRow++) {
-            for (int column = 0; column < columns; column++) {
-                populate(new CellLocation(newRow + this.rows, column));
-            }
-        }
-        for (int newCol = 0; newCol < columns - this.columns; newCol++) {
-            for (int row = 0; row < columns; row++) {
-                populate(new CellLocation(row, newCol + this.columns));
-            }
-        }
-        this.rows = rows;
-        this.columns = columns;
+    public synchronized void updateDimensions(int rows, int columns) {
+        applyDeferred();
+        store.resize(rows, columns);
+        graph.retainWithin(rows, columns);
+        compiled.removeIf((cell, formula) ->
+                CellLocation.row(cell) >= rows || CellLocation.column(cell) >= columns);
+        dirty.removeIf((cell, location) ->
+                CellLocation.row(cell) >= rows || CellLocation.column(cell) >= columns);
+        publish();
     }
 
     /**
@@ -108,8 +147,8 @@ public class Sheet implements SheetView, SheetUpdate {
      * @return The number of rows for this spreadsheet.
      */
     @Override
-    public int getRows() {
-        return rows;
+    public synchronized int getRows() {
+        return store.getRows();
     }
 
     /**
@@ -117,8 +156,8 @@ public class Sheet implements SheetView, SheetUpdate {
      * @return The number of columns for this spreadsheet.
      */
     @Override
-    public int getColumns() {
-        return columns;
+    public synchronized int getColumns() {
+        return store.getColumns();
     }
 
     /**
@@ -147,8 +186,17 @@ public class Sheet implements SheetView, SheetUpdate {
      * @return The value to render at this location.
      */
     @Override
-    public ViewElement valueAt(int row, int column) {
-        return new ViewElement(valueAt(new CellLocation(row, column)).render(), "white", "black");
+    public synchronized ViewElement valueAt(int row, int column) {
+        CellLocation location = CellLocation.of(row, column);
+        Expression pending = deferredValue(location);
+        if (pending != null) {
+            return new ViewElement(pending.render(), "white", "black");
+        }
+        if (background != null && isOutOfDate(location)) {
+            // rendering never waits for the cell, the previous value is shown until it is evaluated
+            return new ViewElement(store.valueAt(row, column).render(), "white", "black", true);
+        }
+        return new ViewElement(valueAt(location).render(), "white", "black");
     }
 
     /**
@@ -164,7 +212,7 @@ public class Sheet implements SheetView, SheetUpdate {
      */
     @Override
     public ViewElement formulaAt(int row, int column) {
-        return new ViewElement(formulaAt(new CellLocation(row, column)).render(), "white", "black");
+        return new ViewElement(formulaAt(CellLocation.of(row, column)).render(), "white", "black");
     }
 
     /**
@@ -192,7 +240,7 @@ public class Sheet implements SheetView, SheetUpdate {
     public UpdateResponse update(int row, int column, String input) {
         try {
             Expression expr = parser.parse(input);
-            update(new CellLocation(row, column), expr);
+            update(CellLocation.of(row, column), expr);
             return UpdateResponse.success();
         } catch (TypeError e) {
             return UpdateResponse.fail("Type error: " + e);
@@ -207,8 +255,21 @@ public class Sheet implements SheetView, SheetUpdate {
      * @requires location is within the bounds (row/columns) of the spreadsheet.
      * @return The formula expression at the given cell location.
      */
-    public Expression formulaAt(CellLocation location) {
-        return formulas.get(location);
+    public synchronized Expression formulaAt(CellLocation location) {
+        Expression pending = deferred.get(location);
+        if (pending != null) {
+            return pending;
+        }
+        return store.formulaAt(location.getRow(), location.getColumn());
+    }
+
+    /**
+     * The formula held in the store, ignoring deferred updates.
+     * Evaluation reads formulas with this rather than {@link #formulaAt(CellLocation)},
+     * as the pool's workers cannot take the lock held by the update evaluating them.
+     */
+    private Expression storedFormula(CellLocation location) {
+        return store.formulaAt(location.getRow(), location.getColumn());
     }
 
     /**
@@ -217,13 +278,29 @@ public class Sheet implements SheetView, SheetUpdate {
      * on the corresponding formula.
      * The {@link Expression#value(Map)} must not be called in this method,
      * it should be called when a formula is updated in {@link #update(CellLocation, Expression)}.
+     * <p>
+     * The exception is a lazy sheet, where a cell that is out of date is evaluated
+     * when its value is first read, along with any out of date cells that it uses.
+     * A sheet recalculating in the background instead renders the previous value of an
+     * out of date cell as stale in {@link #valueAt(int, int)}.
+     * <p>
+     * During a frame, the value of a deferred update is returned without applying the update
+     * if no deferred update can change the value of another cell. Otherwise, the deferred
+     * updates are applied before the value is read, see {@link #beginFrame()}.
      *
      * @param location A cell location within the spreadsheet.
      * @requires location is within the bounds (row/columns) of the spreadsheet.
      * @return The value expression at the given cell location.
      */
-    public Expression valueAt(CellLocation location) {
-        return values.get(location);
+    public synchronized Expression valueAt(CellLocation location) {
+        Expression pending = deferredValue(location);
+        if (pending != null) {
+            return pending;
+        }
+        if (!dirty.isEmpty()) {
+            recalculate(location);
+        }
+        return store.valueAt(location.getRow(), location.getColumn());
     }
 
     /**
@@ -253,30 +330,11 @@ public class Sheet implements SheetView, SheetUpdate {
      * @see Expression#dependencies()
      * @param location A cell location within the spreadsheet.
      * @requires location is within the bounds (row/columns) of the spreadsheet.
-     * @return All the cells which use the given cell as a dependency.
+     * @return An unmodifiable set of all the cells which use the given cell as a dependency.
      */
-    public Set<CellLocation> usedBy(CellLocation location) {
-        Set<CellLocation> usages = new HashSet<>();
-        usedBy(location, usages);
-        return usages;
-    }
-
-    private void usedBy(CellLocation location, Set<CellLocation> seen) {
-        for (CellLocation next : usages.get(location)) {
-            if (seen.contains(next)) {
-                return;
-            }
-            seen.add(next);
-            usedBy(next, seen);
-        }
-    }
-
-    private Map<String, Expression> createState() {
-        Map<String, Expression> symbols = new HashMap<>(builtins);
-        for (CellLocation location : formulas.keySet()) {
-            symbols.put(location.toString(), values.get(location));
-        }
-        return symbols;
+    public synchronized Set<CellLocation> usedBy(CellLocation location) {
+        applyDeferred();
+        return graph.transitiveDependents(location);
     }
 
     /**
@@ -297,59 +355,741 @@ public class Sheet implements SheetView, SheetUpdate {
      * If a {@link TypeError} is thrown at any point during the update of this cell or any dependant cells,
      * the sheet should return to the same state as before this method was called.
      * <p>
-     * The behaviour of inserting a reference loop into the sheet,
+     * Inserting a reference loop into the sheet,
      * e.g. A0 refers to A1, A1 refers to A2, A2 refers to A0 or B1 refers to B1,
-     * is unspecified and will not be tested.
+     * is rejected with a {@link CycleError} naming the cells of the loop,
+     * and the sheet returns to the same state as before this method was called.
      *
      * @param location A cell location to insert the expression into the sheet.
      * @param cell An expression to insert at the given location.
      * @requires location is within the bounds (row/columns) of the spreadsheet.
      * @throws TypeError If the evaluation of the inserted cell or any of its usages
-     *                  results in a TypeError being thrown.
+     *                  results in a TypeError being thrown,
+     *                  or a {@link CycleError} if the cell would be part of a reference loop.
      */
     public void update(CellLocation location, Expression cell) throws TypeError {
-        Map<String, Expression> state = createState();
-        state.put(location.toString(), cell.value(state));
-        // recursively pre-calculate all the updated values
-        // this approach triggers a TypeError before the state is modified
-        applyUpdate(state, location);
-
-        // no type error, update the state
-        updateUsage(location, cell);
-        formulas.put(location, cell);
-        for (CellLocation existing : values.keySet()) {
-            if (state.containsKey(existing.toString())) {
-                values.put(existing, state.get(existing.toString()));
+        update(Map.of(location, cell));
+    }
+
+    /**
+     * Insert many expressions into the sheet at once, updating the sheet as required.
+     * <p>
+     * The result is the same as calling {@link #update(CellLocation, Expression)}
+     * for each entry, except that the sheet is only recalculated once:
+     * every cell that uses any of the updated cells is evaluated exactly once,
+     * after all of the updated cells have their new formulas.
+     * <p>
+     * If a {@link TypeError} is thrown at any point during the update of these cells or any dependant cells,
+     * none of the updates are applied and
+     * the sheet returns to the same state as before this method was called.
+     * Updates that would create a reference loop are rejected with a {@link CycleError}.
+     * <p>
+     * A lazy sheet does not evaluate any cells, the updated cells and every cell that
+     * uses them are only marked as out of date, and are evaluated when they are read.
+     * As nothing is evaluated, a lazy sheet only rejects updates that create a reference loop.
+     * <p>
+     * During a frame, the updates are deferred until the frame ends, see {@link #beginFrame()}.
+     *
+     * @param cells A mapping of cell locations to the expressions to insert.
+     * @requires every location is within the bounds (row/columns) of the spreadsheet.
+     * @throws TypeError If the evaluation of any inserted cell or any of their usages
+     *                  results in a TypeError being thrown.
+     */
+    public synchronized void update(Map<CellLocation, Expression> cells) throws TypeError {
+        if (frames > 0) {
+            for (Map.Entry<CellLocation, Expression> cell : cells.entrySet()) {
+                defer(cell.getKey(), cell.getValue());
+            }
+            return;
+        }
+        apply(cells);
+    }
+
+    /**
+     * Insert many expressions into the sheet at once, as in {@link #update(Map)}.
+     */
+    private void apply(Map<CellLocation, Expression> cells) throws TypeError {
+        CellMap<Expression> previousFormulas = new CellMap<>(cells.size());
+        CellMap<Expression> previousValues = new CellMap<>(cells.size());
+        // tentatively insert the new references so that the dependants
+        // of the cells can be ordered, reverting if the update fails
+        for (Map.Entry<CellLocation, Expression> cell : cells.entrySet()) {
+            CellLocation location = cell.getKey();
+            previousFormulas.put(location, storedFormula(location));
+            previousValues.put(location, store.valueAt(location.getRow(), location.getColumn()));
+            graph.replace(location, previousFormulas.get(location), cell.getValue());
+        }
+        List<CellLocation> order;
+        try {
+            order = graph.topologicalOrder(cells.keySet());
+        } catch (CycleError e) {
+            for (Map.Entry<CellLocation, Expression> cell : cells.entrySet()) {
+                graph.replace(cell.getKey(), cell.getValue(), previousFormulas.get(cell.getKey()));
+            }
+            throw e;
+        }
+
+        // the new formulas keep their previous values until they are recalculated,
+        // no cell that is evaluated before them can read those values
+        for (Map.Entry<CellLocation, Expression> cell : cells.entrySet()) {
+            CellLocation location = cell.getKey();
+            store.update(location.getRow(), location.getColumn(), cell.getValue(),
+                    cell.getValue() instanceof Constant ? cell.getValue() : previousValues.get(location));
+            compile(location, cell.getValue());
+        }
+        if (lazy) {
+            // nothing is evaluated until it is read, so the update cannot fail
+            for (CellLocation cell : order) {
+                dirty.put(cell.key(), cell);
+            }
+            if (background != null) {
+                background.schedule(order, viewport);
             }
+            publish();
+            return;
         }
+
+        // cells are recalculated in place, the order tracks
+        // which cells may have been modified if evaluation fails
+        SheetState state = new SheetState(builtins, store);
+        List<CellLocation> evaluationOrder = order;
+        int evaluated = 0;
+        try {
+            if (evaluator == null || order.size() < evaluator.getThreshold()) {
+                for (CellLocation dirty : order) {
+                    evaluated++;
+                    evaluate(dirty, state);
+                }
+            } else {
+                List<List<CellLocation>> levels = graph.levels(order);
+                evaluationOrder = new ArrayList<>(order.size());
+                for (List<CellLocation> level : levels) {
+                    evaluationOrder.addAll(level);
+                }
+                for (List<CellLocation> level : levels) {
+                    if (level.size() < evaluator.getThreshold()) {
+                        for (CellLocation dirty : level) {
+                            evaluated++;
+                            evaluate(dirty, state);
+                        }
+                    } else {
+                        evaluateInParallel(level, state);
+                        evaluated += level.size();
+                    }
+                }
+            }
+        } catch (TypeError | RuntimeException e) {
+            restore(cells, previousFormulas, previousValues, evaluationOrder.subList(0, evaluated));
+            throw e;
+        }
+        publish();
     }
 
-    private void applyUpdate(Map<String, Expression> state, CellLocation location)
-            throws TypeError {
-        for (CellLocation usage : usages.get(location)) {
-            Expression value = formulas.get(usage).value(state);
-            state.put(usage.toString(), value);
-            applyUpdate(state, usage);
+    /**
+     * Recalculate the value of a cell in place.
+     * <p>
+     * Compiled formulas are evaluated directly to a number,
+     * all other formulas are evaluated with {@link Expression#value(Map)}.
+     */
+    private void evaluate(CellLocation cell, SheetState state) throws TypeError {
+        CompiledFormula formula = compiled.get(cell);
+        if (formula != null) {
+            store.updateNumber(cell.getRow(), cell.getColumn(), formula.evaluate(state));
+        } else {
+            store.updateValue(cell.getRow(), cell.getColumn(), storedFormula(cell).value(state));
         }
     }
 
-    private void updateUsage(CellLocation location, Expression newExpression) {
-        // remove all usages of old formula
-        Expression oldExpression = formulas.get(location);
-        for (String oldDep : oldExpression.dependencies()) {
-            Optional<CellLocation> ref = CellLocation.maybeReference(oldDep);
-            if (ref.isPresent()) {
-                usages.get(ref.get()).remove(location);
+    /**
+     * Recalculate the values of a topological level concurrently.
+     * The cells are only read while the level is evaluated,
+     * the results are stored once every cell of the level has been evaluated.
+     */
+    private void evaluateInParallel(List<CellLocation> level, SheetState state) throws TypeError {
+        long[] numbers = new long[level.size()];
+        Expression[] values = new Expression[level.size()];
+        evaluator.evaluate(level.size(), index -> {
+            CellLocation cell = level.get(index);
+            CompiledFormula formula = compiled.get(cell);
+            if (formula != null) {
+                numbers[index] = formula.evaluate(state);
+            } else {
+                values[index] = storedFormula(cell).value(state);
+            }
+        });
+        for (int i = 0; i < level.size(); i++) {
+            CellLocation cell = level.get(i);
+            if (values[i] == null) {
+                store.updateNumber(cell.getRow(), cell.getColumn(), numbers[i]);
+            } else {
+                store.updateValue(cell.getRow(), cell.getColumn(), values[i]);
             }
         }
+    }
+
+    /**
+     * Evaluate an out of date cell of a lazy sheet.
+     * There is no update to reject if the cell cannot be evaluated,
+     * so the cell is left holding the default expression instead.
+     */
+    private void evaluateOrClear(CellLocation cell, SheetState state) {
+        try {
+            evaluate(cell, state);
+        } catch (TypeError | RuntimeException e) {
+            store.updateValue(cell.getRow(), cell.getColumn(), defaultExpression);
+        }
+    }
+
+    /**
+     * Evaluate an out of date cell of a lazy sheet, after every out of date cell it uses.
+     */
+    private void recalculate(CellLocation location) {
+        if (isOutOfDate(location)) {
+            recalculate(location, new SheetState(builtins, store));
+            publish();
+        }
+    }
+
+    /**
+     * Evaluate each of the cells that are still out of date, in order,
+     * after every out of date cell they use.
+     *
+     * @param cells Cells of the sheet, ideally in topological order.
+     */
+    synchronized void recalculate(List<CellLocation> cells) {
+        SheetState state = new SheetState(builtins, store);
+        for (CellLocation cell : cells) {
+            recalculate(cell, state);
+        }
+        publish();
+    }
 
-        // insert all new usages
-        for (String dep : newExpression.dependencies()) {
-            Optional<CellLocation> ref = CellLocation.maybeReference(dep);
-            if (ref.isPresent()) {
-                usages.get(ref.get()).add(location);
+    private void recalculate(CellLocation location, SheetState state) {
+        if (dirty.get(location.key()) == null) {
+            return;
+        }
+        // the out of date inputs are found with an explicit stack so that long
+        // chains of references do not grow the call stack, and each cell is
+        // ordered after all of its inputs
+        List<CellLocation> order = new ArrayList<>();
+        Deque<CellLocation> cells = new ArrayDeque<>();
+        Deque<Iterator<CellLocation>> inputs = new ArrayDeque<>();
+        dirty.remove(location.key());
+        cells.push(location);
+        inputs.push(graph.precedentsOf(location).iterator());
+        while (!cells.isEmpty()) {
+            Iterator<CellLocation> remaining = inputs.peek();
+            if (remaining.hasNext()) {
+                CellLocation input = remaining.next();
+                if (dirty.remove(input.key()) != null) {
+                    cells.push(input);
+                    inputs.push(graph.precedentsOf(input).iterator());
+                }
+            } else {
+                inputs.pop();
+                order.add(cells.pop());
             }
         }
+        for (CellLocation cell : order) {
+            evaluateOrClear(cell, state);
+        }
+    }
+
+    /**
+     * Evaluate every out of date cell of the sheet.
+     * <p>
+     * Only lazy sheets have cells that are out of date, for other sheets
+     * this has no effect. Cells that cannot be evaluated are left holding
+     * the default expression.
+     */
+    public synchronized void recalculate() {
+        applyDeferred();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<CellLocation> cells = new ArrayList<>(dirty.size());
+        dirty.forEach((key, cell) -> cells.add(cell));
+        List<CellLocation> order;
+        try {
+            order = graph.topologicalOrder(cells);
+        } catch (CycleError e) {
+            // loops are rejected when they are inserted
+            throw new IllegalStateException("Reference loop within the sheet", e);
+        }
+        dirty.clear();
+        SheetState state = new SheetState(builtins, store);
+        for (CellLocation cell : order) {
+            evaluateOrClear(cell, state);
+        }
+        publish();
+    }
+
+    /**
+     * The latest snapshot of the cells of the sheet.
+     * <p>
+     * A sheet constructed with {@link SheetBuilder#snapshots(boolean)} publishes a new
+     * snapshot, with a greater version, each time its cells change: after each update,
+     * including each batch of updates and each frame, and after out of date cells are
+     * evaluated. The snapshot is read without the sheet's lock, so readers are never
+     * blocked by a writer or a recalculation, and each snapshot is a consistent view
+     * of the sheet between two updates. Updates deferred within a frame are not
+     * included until they are applied.
+     * <p>
+     * Out of date cells of a lazy sheet hold their previous values in a snapshot,
+     * as they do in the sheet's store, until they are evaluated and a later snapshot
+     * is published.
+     *
+     * @return The most recently published snapshot of the sheet.
+     * @throws UnsupportedOperationException If the sheet does not publish snapshots.
+     */
+    public SheetSnapshot snapshot() {
+        SheetSnapshot latest = snapshot;
+        if (latest == null) {
+            throw new UnsupportedOperationException("Sheet does not publish snapshots");
+        }
+        return latest;
+    }
+
+    /**
+     * Publish a snapshot of the current cells, if the sheet takes snapshots.
+     * Taking the snapshot does not copy any cells, the cells are copied
+     * a tile at a time as they are next updated.
+     */
+    private void publish() {
+        if (persistent != null) {
+            snapshot = new SheetSnapshot(++version, persistent.snapshot());
+        }
+    }
+
+    /**
+     * Whether the value of a cell is out of date, so will be evaluated when it is next read.
+     *
+     * @param location A cell location within the spreadsheet.
+     * @return true if the cell has not been evaluated since a cell it uses was updated.
+     */
+    public synchronized boolean isOutOfDate(CellLocation location) {
+        return dirty.get(location.key()) != null;
+    }
+
+    /**
+     * Begin a frame of updates, such as the updates made by a single tick of a game.
+     * <p>
+     * Until the frame ends, updates are deferred rather than applied, and only the
+     * last update of each cell is kept. When the outermost frame ends, the deferred
+     * updates are applied together with {@link #update(Map)}, so the sheet is
+     * recalculated once however many times each cell was written.
+     * <p>
+     * Formulas read during the frame include the deferred updates. While no deferred
+     * update can change the value of another cell, as the updated cells neither
+     * reference other cells nor are used by other cells, values are also read without
+     * applying the updates. Otherwise, the deferred updates are applied before a value is read.
+     * Frames may be nested, and every frame must be ended with {@link #endFrame()}.
+     */
+    @Override
+    public synchronized void beginFrame() {
+        frames++;
+    }
+
+    /**
+     * End the current frame, applying the deferred updates if it is the outermost frame.
+     * <p>
+     * If a {@link TypeError} occurred while applying any of the updates deferred since
+     * the last flush, the response fails with "Type error: [e]" for the first error.
+     * The updates applied together with the failed update are not applied.
+     *
+     * @requires a frame has begun and not yet ended
+     * @return Information about the status of applying the deferred updates.
+     */
+    @Override
+    public synchronized UpdateResponse endFrame() {
+        frames--;
+        if (frames > 0) {
+            return UpdateResponse.success();
+        }
+        return flush();
+    }
+
+    /**
+     * Apply the updates deferred during the current frame,
+     * without ending the frame.
+     *
+     * @return Information about the status of applying the deferred updates,
+     *         see {@link #endFrame()}.
+     */
+    public synchronized UpdateResponse flush() {
+        applyDeferred();
+        UpdateResponse response = deferredResponse;
+        deferredResponse = UpdateResponse.success();
+        return response;
+    }
+
+    /**
+     * Apply the deferred updates, keeping the first failure to report when the frame ends.
+     */
+    private void applyDeferred() {
+        if (deferred.isEmpty()) {
+            return;
+        }
+        Map<CellLocation, Expression> updates = new LinkedHashMap<>(deferred);
+        discardDeferred();
+        try {
+            apply(updates);
+        } catch (TypeError e) {
+            if (deferredResponse.isSuccess()) {
+                deferredResponse = UpdateResponse.fail("Type error: " + e);
+            }
+        }
+    }
+
+    /**
+     * Defer the update of a cell until the end of the frame,
+     * replacing any update of the cell already deferred.
+     */
+    private void defer(CellLocation location, Expression formula) {
+        deferred.put(location, formula);
+        if (!deferredIsolated) {
+            return;
+        }
+        if (!formula.cellReferences().isEmpty() || !graph.dependentsOf(location).isEmpty()) {
+            deferredIsolated = false;
+            return;
+        }
+        try {
+            deferredValues.put(location.key(), formula.value(new SheetState(builtins, store)));
+        } catch (TypeError | RuntimeException e) {
+            // reported when the update is applied
+            deferredIsolated = false;
+        }
+    }
+
+    /**
+     * The value of a cell with a deferred update, if it can be known without applying
+     * the deferred updates. Otherwise, the deferred updates are applied.
+     *
+     * @return The value of the cell's deferred update, or null if the cell's value is in the store.
+     */
+    private Expression deferredValue(CellLocation location) {
+        if (deferred.isEmpty()) {
+            return null;
+        }
+        if (!deferredIsolated) {
+            applyDeferred();
+            return null;
+        }
+        return deferredValues.get(location.key());
+    }
+
+    private void discardDeferred() {
+        deferred.clear();
+        deferredValues.clear();
+        deferredIsolated = true;
+    }
+
+    /**
+     * Return the sheet to its state before a failed update.
+     * <p>
+     * The updated cells are given back their previous formulas and values,
+     * then every other cell that may have been recalculated is evaluated
+     * again from its unchanged formula.
+     */
+    private void restore(Map<CellLocation, Expression> cells,
+                         CellMap<Expression> previousFormulas,
+                         CellMap<Expression> previousValues,
+                         List<CellLocation> evaluated) {
+        for (Map.Entry<CellLocation, Expression> cell : cells.entrySet()) {
+            CellLocation location = cell.getKey();
+            Expression formula = previousFormulas.get(location);
+            graph.replace(location, cell.getValue(), formula);
+            store.update(location.getRow(), location.getColumn(), formula, previousValues.get(location));
+            compile(location, formula);
+        }
+        SheetState state = new SheetState(builtins, store);
+        try {
+            for (CellLocation cell : evaluated) {
+                if (!cells.containsKey(cell)) {
+                    evaluate(cell, state);
+                }
+            }
+        } catch (TypeError e) {
+            // the same formulas were successfully evaluated by an earlier update
+            throw new IllegalStateException("Unable to restore the previous values of the sheet", e);
+        }
+    }
+
+    /**
+     * Compile the formula now stored at a location, if it can be compiled.
+     */
+    private void compile(CellLocation location, Expression formula) {
+        // relative formulas share the compiled formula of their template
+        Optional<CompiledFormula> compiledFormula = formula instanceof RelativeFormula
+                ? formula.compile(compiler)
+                : compiler.compile(formula);
+        if (compiledFormula.isPresent()) {
+            compiled.put(location, compiledFormula.get());
+        } else {
+            compiled.remove(location);
+        }
+    }
+
+    /**
+     * Fill a range of cells with a formula template.
+     * <p>
+     * The template is placed at every cell of the range, so each cell holds
+     * the template's formula with its references moved to that cell.
+     * The result is the same as updating each cell with the moved formula,
+     * except that the formula is never parsed again, and every cell of the
+     * range is updated with a single call to {@link #update(Map)},
+     * so the sheet is recalculated once.
+     * <pre>
+     * {@code
+     * FormulaTemplate template = FormulaTemplate.parse(parser, "A1 + A2", 3, 0);
+     * sheet.fill(template, new CellLocation(3, 0), new CellLocation(99, 0));
+     * sheet.formulaAt(new CellLocation(99, 0)).render(); // "A97 + A98"
+     * }</pre>
+     *
+     * @param template The template to place in each cell of the range.
+     * @param from A corner of the range.
+     * @param to The opposite corner of the range.
+     * @requires both corners are within the bounds (row/columns) of the spreadsheet.
+     * @requires template.fits(row, column) for every cell of the range.
+     * @throws TypeError If the evaluation of any filled cell or any of their usages
+     *                  results in a TypeError being thrown,
+     *                  or a {@link CycleError} if the range would contain a reference loop.
+     */
+    public synchronized void fill(FormulaTemplate template, CellLocation from, CellLocation to) throws TypeError {
+        update(placements(template, from, to, null));
+    }
+
+    /**
+     * The template placed at every cell of a range, except for one cell.
+     */
+    Map<CellLocation, Expression> placements(FormulaTemplate template,
+                                             CellLocation from, CellLocation to,
+                                             CellLocation except) {
+        int top = Math.min(from.getRow(), to.getRow());
+        int bottom = Math.max(from.getRow(), to.getRow());
+        int left = Math.min(from.getColumn(), to.getColumn());
+        int right = Math.max(from.getColumn(), to.getColumn());
+        Map<CellLocation, Expression> cells = new LinkedHashMap<>(
+                2 * (bottom - top + 1) * (right - left + 1));
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                CellLocation cell = CellLocation.of(row, column);
+                if (!cell.equals(except)) {
+                    cells.put(cell, template.at(row, column));
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Fill a range of cells with a formula written at one corner of the range.
+     * <p>
+     * The input is parsed once, as written at the given cell, then placed at
+     * every cell of the range with {@link #fill(FormulaTemplate, CellLocation, CellLocation)}.
+     * If the input cannot be parsed,
+     * the update response fails with "Unable to parse: [input]".
+     * If either corner is outside the sheet, the response fails with
+     * "Cell out of bounds: [cell]", and if the formula's references would move
+     * before the first row or column of any cell of the range, the response fails with
+     * "Reference out of bounds: [cell]".
+     * If a {@link TypeError} occurs, no cells are updated
+     * and the response fails with "Type error: [e]".
+     *
+     * @param row The row of the cell the input is written at.
+     * @param column The column of the cell the input is written at.
+     * @param toRow The row of the opposite corner of the range.
+     * @param toColumn The column of the opposite corner of the range.
+     * @param input The formula as written at the given cell.
+     * @return Information about the status of filling the range.
+     */
+    public UpdateResponse fill(int row, int column, int toRow, int toColumn, String input) {
+        try {
+            return fill(FormulaTemplate.parse(parser, input, row, column),
+                    CellLocation.of(row, column), CellLocation.of(toRow, toColumn), false);
+        } catch (ParseException e) {
+            return UpdateResponse.fail("Unable to parse: " + input);
+        }
+    }
+
+    /**
+     * Fill a range of cells with the formula of a cell, such as filling a column
+     * down from its first cell.
+     * <p>
+     * The formula of the source cell is moved to every other cell of the range,
+     * as in {@link #fill(int, int, int, int, String)}.
+     * The source cell keeps its formula.
+     *
+     * @param source The cell holding the formula, at one corner of the range.
+     * @param to The opposite corner of the range.
+     * @return Information about the status of filling the range.
+     */
+    public synchronized UpdateResponse fill(CellLocation source, CellLocation to) {
+        if (!contains(source)) {
+            return UpdateResponse.fail("Cell out of bounds: " + source);
+        }
+        Expression formula = formulaAt(source);
+        FormulaTemplate template;
+        if (formula instanceof RelativeFormula relative) {
+            template = relative.getTemplate();
+        } else {
+            String input = formula.render();
+            try {
+                template = FormulaTemplate.parse(parser, input, source.getRow(), source.getColumn());
+            } catch (ParseException e) {
+                return UpdateResponse.fail("Unable to parse: " + input);
+            }
+            if (!template.getFormula().equals(formula)) {
+                // e.g. a formula with parentheses that its rendering does not show
+                return UpdateResponse.fail("Unable to parse: " + input);
+            }
+        }
+        return fill(template, source, to, true);
+    }
+
+    private UpdateResponse fill(FormulaTemplate template, CellLocation from, CellLocation to,
+                                boolean skipFrom) {
+        UpdateResponse fits = checkFill(template, from, to);
+        if (!fits.isSuccess()) {
+            return fits;
+        }
+        try {
+            update(placements(template, from, to, skipFrom ? from : null));
+            return UpdateResponse.success();
+        } catch (TypeError e) {
+            return UpdateResponse.fail("Type error: " + e);
+        }
+    }
+
+    /**
+     * Check that a template can fill a range, failing with "Cell out of bounds: [cell]"
+     * if either corner is outside the sheet, or "Reference out of bounds: [cell]"
+     * if the template's references would move before the first row or column.
+     */
+    UpdateResponse checkFill(FormulaTemplate template, CellLocation from, CellLocation to) {
+        for (CellLocation corner : List.of(from, to)) {
+            if (!contains(corner)) {
+                return UpdateResponse.fail("Cell out of bounds: " + corner);
+            }
+        }
+        // a template fits every cell of a range if it fits each corner
+        for (CellLocation corner : List.of(from, to, CellLocation.of(from.getRow(), to.getColumn()),
+                CellLocation.of(to.getRow(), from.getColumn()))) {
+            if (!template.fits(corner.getRow(), corner.getColumn())) {
+                return UpdateResponse.fail("Reference out of bounds: " + corner);
+            }
+        }
+        return UpdateResponse.success();
+    }
+
+    /**
+     * Only evaluate cells when their values are read.
+     * <p>
+     * Updates mark the cells that use the updated cells as out of date,
+     * rather than evaluating them, see {@link #update(Map)}.
+     * Out of date cells are evaluated when read by {@link #valueAt(CellLocation)},
+     * or all at once by {@link #recalculate()}.
+     */
+    void evaluateLazily() {
+        this.lazy = true;
+    }
+
+    /**
+     * Evaluate out of date cells on a worker rather than when they are read.
+     * <p>
+     * The sheet is made lazy, so updates only mark cells as out of date, and the cells
+     * of each update are then evaluated in batches on the worker, see
+     * {@link BackgroundRecalculation}. Out of date cells are rendered with their
+     * previous value marked as stale, until they are evaluated.
+     *
+     * @param worker The executor to evaluate cells on.
+     * @param batchSize The number of cells evaluated each time the sheet is locked.
+     * @requires batchSize &gt; 0
+     */
+    void recalculateInBackground(Executor worker, int batchSize) {
+        this.lazy = true;
+        this.background = new BackgroundRecalculation(this, worker, batchSize, () -> {
+            for (Runnable callback : recalculatedCallbacks) {
+                callback.run();
+            }
+        });
+    }
+
+    /**
+     * Record the region of the sheet visible in an interface.
+     * <p>
+     * A sheet recalculating in the background evaluates the out of date cells
+     * within the viewport, and the out of date cells they use, before any other cells.
+     * Cells that are already out of date when the viewport changes are moved ahead
+     * of the remaining work.
+     *
+     * @param firstRow The first visible row.
+     * @param firstColumn The first visible column.
+     * @param lastRow The last visible row.
+     * @param lastColumn The last visible column.
+     */
+    @Override
+    public synchronized void viewportChanged(int firstRow, int firstColumn,
+                                             int lastRow, int lastColumn) {
+        viewport = new Viewport(firstRow, firstColumn, lastRow, lastColumn);
+        if (background == null || dirty.isEmpty()) {
+            return;
+        }
+        List<CellLocation> visible = new ArrayList<>();
+        for (int row = Math.max(0, firstRow); row <= Math.min(lastRow, getRows() - 1); row++) {
+            for (int column = Math.max(0, firstColumn);
+                 column <= Math.min(lastColumn, getColumns() - 1); column++) {
+                CellLocation cell = dirty.get(CellLocation.key(row, column));
+                if (cell != null) {
+                    visible.add(cell);
+                }
+            }
+        }
+        background.prioritise(visible);
+    }
+
+    /**
+     * Register a callback to run after each batch of cells is evaluated in the background.
+     * The callback runs on the worker, without holding the sheet's lock.
+     *
+     * @param callback The method to invoke.
+     */
+    @Override
+    public void onRecalculated(Runnable callback) {
+        recalculatedCallbacks.add(callback);
+    }
+
+    /**
+     * Recalculate large updates of this sheet in parallel on the given pool.
+     * <p>
+     * Updates affecting fewer cells than the threshold, and topological levels
+     * with fewer cells than the threshold, are evaluated serially on the
+     * calling thread, as the cost of dispatching small amounts of work
+     * outweighs the benefit.
+     * Every built-in expression of the sheet must be safe to evaluate
+     * from many threads at once.
+     *
+     * @param pool The pool to evaluate cells on.
+     * @param threshold The minimum number of cells worth evaluating in parallel.
+     * @requires threshold &gt; 0
+     */
+    void recalculateInParallel(ForkJoinPool pool, int threshold) {
+        this.evaluator = new ParallelEvaluator(pool, threshold);
+    }
+
+    /**
+     * Begin a new transaction to update many cells of this sheet at once.
+     * <p>
+     * When committed, all of the updates are applied with a single
+     * call to {@link #update(Map)}, so either every update is applied
+     * or, if a {@link TypeError} occurs, none are.
+     *
+     * @return A new, empty transaction over this sheet.
+     */
+    @Override
+    public Batch begin() {
+        return new Batch(this, parser);
     }
 
     /**
@@ -380,12 +1120,13 @@ public class Sheet implements SheetView, SheetUpdate {
      *
      * @return The string representation of the current spreadsheet.
      */
-    public String encode() {
+    public synchronized String encode() {
+        applyDeferred();
         StringJoiner builder = new StringJoiner("\n");
-        for (int row = 0; row < rows; row++) {
+        for (int row = 0; row < getRows(); row++) {
             StringJoiner rowEncoding = new StringJoiner("|");
-            for (int column = 0; column < columns; column++) {
-                rowEncoding.add(formulas.get(new CellLocation(row, column)).render());
+            for (int column = 0; column < getColumns(); column++) {
+                rowEncoding.add(store.formulaAt(row, column).render());
             }
             builder.add(rowEncoding.toString());
         }
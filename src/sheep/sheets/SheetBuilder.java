@@ -2,9 +2,17 @@ package sheep.sheets;
 
 import sheep.expression.Expression;
 import sheep.parsing.Parser;
+import sheep.sheets.storage.CellStore;
+import sheep.sheets.storage.DenseCellStore;
+import sheep.sheets.storage.PersistentCellStore;
+import sheep.sheets.storage.SparseCellStore;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Builder pattern to construct {@link Sheet} instances.
@@ -32,6 +40,13 @@ public class SheetBuilder {
     private final Map<String, Expression> builtins = new HashMap<>();
     private final Parser parser;
     private final Expression defaultExpression;
+    private boolean sparse = false;
+    private boolean snapshots = false;
+    private ForkJoinPool pool = null;
+    private int parallelThreshold;
+    private boolean lazy = false;
+    private Executor worker = null;
+    private int batchSize;
 
     /**
      * Construct an instance of SheetBuilder than will create
@@ -65,6 +80,141 @@ public class SheetBuilder {
         return this;
     }
 
+    /**
+     * Choose whether sheets constructed by this builder store their cells sparsely.
+     * <p>
+     * Sparse sheets only allocate storage for regions of the sheet that contain
+     * non-default cells, allowing very large and mostly empty sheets.
+     * Dense sheets are faster to access when most cells are used.
+     * Sheets are dense by default, unless they have too many cells
+     * for a dense store (see {@link DenseCellStore#fits(int, int)}).
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .sparse(true)
+     *         .empty(1000000, 26);
+     * }</pre>
+     *
+     * @param sparse Whether to construct sparse sheets.
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder sparse(boolean sparse) {
+        this.sparse = sparse;
+        return this;
+    }
+
+    /**
+     * Choose whether sheets constructed by this builder publish snapshots of their cells.
+     * <p>
+     * Such sheets store their cells in tiles that are shared between the sheet and its
+     * snapshots, see {@link PersistentCellStore}, so a snapshot is taken in constant time
+     * after each update. Readers of {@link Sheet#snapshot()} see a consistent version of
+     * the sheet without waiting for writers. Tiles are only allocated once a cell within
+     * them is updated, so the sheets are also sparse. Sheets do not publish snapshots by default.
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .snapshots(true)
+     *         .empty(100000, 26);
+     * SheetSnapshot snapshot = sheet.snapshot();
+     * }</pre>
+     *
+     * @param snapshots Whether to construct sheets that publish snapshots.
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder snapshots(boolean snapshots) {
+        this.snapshots = snapshots;
+        return this;
+    }
+
+    /**
+     * Recalculate large updates of sheets constructed by this builder in parallel.
+     * <p>
+     * When an update affects at least the threshold number of cells, the affected
+     * cells are grouped into topological levels and each level is evaluated
+     * on the given pool. Smaller updates and levels are evaluated serially.
+     * Sheets are recalculated serially by default.
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .parallel(ForkJoinPool.commonPool(), 1000)
+     *         .empty(100000, 26);
+     * }</pre>
+     *
+     * @param pool The pool to evaluate cells on.
+     * @param threshold The minimum number of cells worth evaluating in parallel.
+     * @requires threshold &gt; 0
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder parallel(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.parallelThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Choose whether sheets constructed by this builder only evaluate cells when they are read.
+     * <p>
+     * Updating a cell of a lazy sheet marks every cell that uses it as out of date,
+     * without evaluating any cells. Out of date cells are evaluated when their value is
+     * read, or all at once with {@link Sheet#recalculate()}. This suits large sheets of
+     * which only a small part is ever viewed.
+     * <p>
+     * As updates are not evaluated, a lazy sheet cannot reject an update because of
+     * a {@link sheep.expression.TypeError}, instead cells that cannot be evaluated hold
+     * the default expression. Sheets evaluate every update immediately by default.
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .lazy(true)
+     *         .empty(1000000, 26);
+     * }</pre>
+     *
+     * @param lazy Whether to construct lazy sheets.
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder lazy(boolean lazy) {
+        this.lazy = lazy;
+        return this;
+    }
+
+    /**
+     * Recalculate sheets constructed by this builder in the background.
+     * <p>
+     * The sheets are lazy, see {@link #lazy(boolean)}, so an update returns as soon
+     * as the affected cells are marked out of date. The affected cells are then
+     * evaluated in batches on the worker, and the callbacks registered with
+     * {@link Sheet#onRecalculated(Runnable)} are run after each batch.
+     * Until an out of date cell is evaluated, it is rendered with its previous
+     * value marked as stale. Reading a cell's value with {@link Sheet#valueAt(CellLocation)}
+     * still evaluates it immediately. Cells within the viewport reported with
+     * {@link Sheet#viewportChanged(int, int, int, int)} are evaluated before other cells.
+     * <p>
+     * This keeps an interface responsive while large updates are recalculated.
+     * Sheets are recalculated as they are updated by default.
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .background(Executors.newSingleThreadExecutor(), 1000)
+     *         .empty(100000, 26);
+     * }</pre>
+     *
+     * @param worker The executor to evaluate cells on.
+     * @param batchSize The number of cells evaluated each time the sheet is locked.
+     * @requires batchSize &gt; 0
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder background(Executor worker, int batchSize) {
+        this.worker = worker;
+        this.batchSize = batchSize;
+        return this;
+    }
+
     /**
      * Construct a new empty sheet with the given number of rows and columns.
      * <p>
@@ -85,7 +235,59 @@ public class SheetBuilder {
      * @return A new sheet with the appropriate built-ins and of the specified dimensions.
      */
     public Sheet empty(int rows, int columns) {
-        return new Sheet(parser, new HashMap<>(builtins), defaultExpression, rows, columns);
+        CellStore store;
+        if (snapshots) {
+            store = new PersistentCellStore(defaultExpression, rows, columns);
+        } else if (sparse || !DenseCellStore.fits(rows, columns)) {
+            store = new SparseCellStore(defaultExpression, rows, columns);
+        } else {
+            store = new DenseCellStore(defaultExpression, rows, columns);
+        }
+        Sheet sheet = new Sheet(parser, new HashMap<>(builtins), defaultExpression, store);
+        if (pool != null) {
+            sheet.recalculateInParallel(pool, parallelThreshold);
+        }
+        if (lazy) {
+            sheet.evaluateLazily();
+        }
+        if (worker != null) {
+            sheet.recalculateInBackground(worker, batchSize);
+        }
+        return sheet;
     }
 
-}
\ No newline at end of file
+    /**
+     * Construct a new empty sheet that may be updated by many threads at once.
+     * <p>
+     * The rows of the sheet are divided into bands of the given height, each with
+     * its own lock, so that updates of cells in bands that do not reference each other
+     * proceed in parallel, see {@link ConcurrentSheet}. Each band stores its cells
+     * sparsely, and is recalculated in parallel if {@link #parallel(ForkJoinPool, int)}
+     * was chosen. Concurrent sheets evaluate every update immediately, so they are
+     * never lazy, recalculated in the background, or snapshotted.
+     *
+     * <pre>
+     * {@code
+     * ConcurrentSheet sheet = new SheetBuilder(parser, exp)
+     *         .concurrent(100000, 26, 1000);
+     * }</pre>
+     *
+     * @param rows Amount of rows for the new sheet.
+     * @param columns Amount of columns for the sheet.
+     * @param bandRows The number of rows guarded by each lock.
+     * @requires rows &gt; 0 &amp;&amp; columns &gt; 0 &amp;&amp; bandRows &gt; 0
+     * @return A new concurrent sheet with the appropriate built-ins and of the specified dimensions.
+     */
+    public ConcurrentSheet concurrent(int rows, int columns, int bandRows) {
+        List<Sheet> bands = new ArrayList<>();
+        for (int first = 0; first < rows; first += bandRows) {
+            Sheet band = new Sheet(parser, new HashMap<>(builtins), defaultExpression,
+                    new SparseCellStore(defaultExpression, rows, columns));
+            if (pool != null) {
+                band.recalculateInParallel(pool, parallelThreshold);
+            }
+            bands.add(band);
+        }
+        return new ConcurrentSheet(parser, defaultExpression, bandRows, bands);
+    }
+}
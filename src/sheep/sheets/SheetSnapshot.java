@@ -0,0 +1,82 @@
+package sheep.sheets;
+
+import sheep.core.SheetView;
+import sheep.core.ViewElement;
+import sheep.expression.Expression;
+import sheep.sheets.storage.CellStore;
+
+/**
+ * An immutable view of the cells of a sheet at one point in time.
+ * <p>
+ * Snapshots are published by a sheet after each update or recalculation,
+ * see {@link Sheet#snapshot()}. A snapshot never changes once published,
+ * so it may be read from any thread without locking the sheet,
+ * and every cell read from it belongs to the same version of the sheet.
+ */
+public class SheetSnapshot implements SheetView {
+    private final long version;
+    private final CellStore cells;
+
+    /**
+     * Construct a snapshot of the given cells.
+     *
+     * @param version The version of the sheet that the cells belong to.
+     * @param cells Cells that are never modified again.
+     */
+    SheetSnapshot(long version, CellStore cells) {
+        this.version = version;
+        this.cells = cells;
+    }
+
+    /**
+     * The version of the sheet captured by this snapshot.
+     * Later snapshots of the same sheet have greater versions.
+     *
+     * @return The version of the sheet.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int getRows() {
+        return cells.getRows();
+    }
+
+    @Override
+    public int getColumns() {
+        return cells.getColumns();
+    }
+
+    /**
+     * The formula stored at the location when the snapshot was taken.
+     *
+     * @param location A cell location within the snapshot.
+     * @requires location is within the bounds (row/columns) of the snapshot.
+     * @return The formula expression at the given cell location.
+     */
+    public Expression formulaAt(CellLocation location) {
+        return cells.formulaAt(location.getRow(), location.getColumn());
+    }
+
+    /**
+     * The value stored at the location when the snapshot was taken.
+     *
+     * @param location A cell location within the snapshot.
+     * @requires location is within the bounds (row/columns) of the snapshot.
+     * @return The value expression at the given cell location.
+     */
+    public Expression valueAt(CellLocation location) {
+        return cells.valueAt(location.getRow(), location.getColumn());
+    }
+
+    @Override
+    public ViewElement valueAt(int row, int column) {
+        return new ViewElement(cells.valueAt(row, column).render(), "white", "black");
+    }
+
+    @Override
+    public ViewElement formulaAt(int row, int column) {
+        return new ViewElement(cells.formulaAt(row, column).render(), "white", "black");
+    }
+}
@@ -0,0 +1,119 @@
+package sheep.sheets;
+
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.compiled.CellValues;
+import sheep.sheets.storage.CellStore;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state used to evaluate expressions within a sheet.
+ * <p>
+ * Rather than copying every cell of the sheet into a new map for each update,
+ * the state is a read-only view over the sheet's built-ins and cell values.
+ * Cells are recalculated in place, so the view always reflects the latest
+ * values of the cells. The state also provides the numeric values of cells
+ * directly to compiled formulas.
+ * <p>
+ * A state lives for a single recalculation pass. Built-ins are evaluated
+ * at most once per pass and the result is reused for later references,
+ * unless they reference other identifiers.
+ * <p>
+ * The state may be read by many threads at once while the cells are not modified.
+ */
+class SheetState extends AbstractMap<String, Expression> implements CellValues {
+    private final Map<String, Expression> builtins;
+    private final CellStore store;
+    private final Map<String, Expression> evaluatedBuiltins = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a view of a sheet's state.
+     *
+     * @param builtins The built-in identifiers of the sheet.
+     * @param store The cells of the sheet.
+     */
+    public SheetState(Map<String, Expression> builtins, CellStore store) {
+        this.builtins = builtins;
+        this.store = store;
+    }
+
+    private Expression lookup(Object key) {
+        if (!(key instanceof String identifier)) {
+            return null;
+        }
+        // parsed as a packed key so that resolving a reference allocates nothing
+        long location = CellLocation.parseKey(identifier);
+        if (location != CellLocation.NOT_A_REFERENCE
+                && contains(CellLocation.row(location), CellLocation.column(location))) {
+            return store.valueAt(CellLocation.row(location), CellLocation.column(location));
+        }
+        return builtin(identifier);
+    }
+
+    private Expression builtin(String identifier) {
+        Expression cached = evaluatedBuiltins.get(identifier);
+        if (cached != null) {
+            return cached;
+        }
+        Expression builtin = builtins.get(identifier);
+        if (builtin == null || !builtin.dependencies().isEmpty()) {
+            // built-ins that reference other identifiers may change during the pass
+            return builtin;
+        }
+        try {
+            Expression value = builtin.value(this);
+            evaluatedBuiltins.put(identifier, value);
+            return value;
+        } catch (TypeError e) {
+            // the error is raised again when the referencing
+            // expression evaluates the built-in itself
+            return builtin;
+        }
+    }
+
+    private boolean contains(int row, int column) {
+        return row >= 0 && row < store.getRows()
+                && column >= 0 && column < store.getColumns();
+    }
+
+    /**
+     * The numeric value of a cell, read directly from the sheet's cells.
+     * References to cells outside the sheet are unresolved, so are not numeric.
+     */
+    @Override
+    public long numberAt(int row, int column) throws TypeError {
+        if (!contains(row, column)) {
+            throw new TypeError();
+        }
+        return store.numberAt(row, column);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return lookup(key) != null;
+    }
+
+    @Override
+    public Expression get(Object key) {
+        return lookup(key);
+    }
+
+    /**
+     * A copy of every entry in the state.
+     * This is only provided to satisfy the {@link Map} interface,
+     * evaluation of expressions should only use {@link #get(Object)}
+     * and {@link #containsKey(Object)}.
+     */
+    @Override
+    public Set<Entry<String, Expression>> entrySet() {
+        Map<String, Expression> copy = new HashMap<>(builtins);
+        for (int row = 0; row < store.getRows(); row++) {
+            for (int column = 0; column < store.getColumns(); column++) {
+                copy.put(CellLocation.of(row, column).toString(), store.valueAt(row, column));
+            }
+        }
+        return Collections.unmodifiableMap(copy).entrySet();
+    }
+}
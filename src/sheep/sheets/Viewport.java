@@ -0,0 +1,22 @@
+package sheep.sheets;
+
+/**
+ * The region of a sheet visible in an interface, inclusive of its first and last cells.
+ *
+ * @param firstRow The first visible row.
+ * @param firstColumn The first visible column.
+ * @param lastRow The last visible row.
+ * @param lastColumn The last visible column.
+ */
+record Viewport(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+    /**
+     * Whether the cell is visible.
+     *
+     * @param cell A cell location.
+     * @return true if the cell is within the viewport.
+     */
+    boolean contains(CellLocation cell) {
+        return cell.getRow() >= firstRow && cell.getRow() <= lastRow
+                && cell.getColumn() >= firstColumn && cell.getColumn() <= lastColumn;
+    }
+}
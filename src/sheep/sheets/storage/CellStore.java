@@ -0,0 +1,114 @@
+package sheep.sheets.storage;
+
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+
+/**
+ * Storage of the formula and value held in each cell of a sheet.
+ * <p>
+ * A cell store has a fixed number of rows and columns which may be changed
+ * with {@link #resize(int, int)}. Every cell that has not been updated holds
+ * the store's default expression as both its formula and its value.
+ * <p>
+ * Cell stores only hold expressions, they do not evaluate them.
+ */
+public interface CellStore {
+    /**
+     * The number of rows in the store.
+     * @return The number of rows in the store.
+     */
+    int getRows();
+
+    /**
+     * The number of columns in the store.
+     * @return The number of columns in the store.
+     */
+    int getColumns();
+
+    /**
+     * The formula stored at a cell.
+     *
+     * @param row The row index of the cell.
+     * @param column The column index of the cell.
+     * @requires 0 &le; row &lt; {@link #getRows()}
+     * @requires 0 &le; column &lt; {@link #getColumns()}
+     * @return The formula stored at the cell.
+     */
+    Expression formulaAt(int row, int column);
+
+    /**
+     * The value stored at a cell.
+     *
+     * @param row The row index of the cell.
+     * @param column The column index of the cell.
+     * @requires 0 &le; row &lt; {@link #getRows()}
+     * @requires 0 &le; column &lt; {@link #getColumns()}
+     * @return The value stored at the cell.
+     */
+    Expression valueAt(int row, int column);
+
+    /**
+     * The numeric value stored at a cell, without creating an expression.
+     *
+     * @param row The row index of the cell.
+     * @param column The column index of the cell.
+     * @requires 0 &le; row &lt; {@link #getRows()}
+     * @requires 0 &le; column &lt; {@link #getColumns()}
+     * @return The result of {@link Expression#value()} on the value stored at the cell.
+     * @throws TypeError If the value stored at the cell is not numeric.
+     */
+    long numberAt(int row, int column) throws TypeError;
+
+    /**
+     * Store a new formula and its value at a cell.
+     *
+     * @param row The row index of the cell.
+     * @param column The column index of the cell.
+     * @param formula The formula of the cell.
+     * @param value The result of evaluating the formula.
+     * @requires 0 &le; row &lt; {@link #getRows()}
+     * @requires 0 &le; column &lt; {@link #getColumns()}
+     */
+    void update(int row, int column, Expression formula, Expression value);
+
+    /**
+     * Store a new value at a cell, keeping its current formula.
+     *
+     * @param row The row index of the cell.
+     * @param column The column index of the cell.
+     * @param value The result of evaluating the cell's formula.
+     * @requires 0 &le; row &lt; {@link #getRows()}
+     * @requires 0 &le; column &lt; {@link #getColumns()}
+     */
+    void updateValue(int row, int column, Expression value);
+
+    /**
+     * Store a new numeric value at a cell, keeping its current formula.
+     * <p>
+     * The result is the same as {@link #updateValue(int, int, Expression)}
+     * with a {@link sheep.expression.basic.Constant} of the number.
+     *
+     * @param row The row index of the cell.
+     * @param column The column index of the cell.
+     * @param number The result of evaluating the cell's formula.
+     * @requires 0 &le; row &lt; {@link #getRows()}
+     * @requires 0 &le; column &lt; {@link #getColumns()}
+     */
+    void updateNumber(int row, int column, long number);
+
+    /**
+     * Reset every cell to the default expression.
+     */
+    void clear();
+
+    /**
+     * Change the number of rows and columns in the store.
+     * Cells within both the old and the new dimensions keep their contents,
+     * any newly added cells hold the default expression.
+     *
+     * @param rows The new number of rows.
+     * @param columns The new number of columns.
+     * @requires rows &ge; 0 &amp;&amp; columns &ge; 0
+     */
+    void resize(int rows, int columns);
+}
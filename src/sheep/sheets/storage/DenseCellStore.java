@@ -0,0 +1,246 @@
+package sheep.sheets.storage;
+
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A cell store backed by flat arrays indexed by {@code row * columns + column}.
+ * <p>
+ * Each cell is described by a one byte tag:
+ * <ul>
+ *     <li>{@code EMPTY} cells hold the default expression as both formula and value
+ *     and use no storage besides their tag.</li>
+ *     <li>{@code CONSTANT} cells hold a constant formula that is its own value,
+ *     the number is stored in a {@code long[]} without any expression object.</li>
+ *     <li>{@code NUMBER} cells hold an arbitrary formula with a numeric value.</li>
+ *     <li>{@code OTHER} cells hold an arbitrary formula with a non-numeric value,
+ *     which are rare and so are kept in a map.</li>
+ * </ul>
+ * The number and formula arrays are only allocated once a cell needs them,
+ * so an untouched sheet costs a single byte per cell.
+ */
+public class DenseCellStore implements CellStore {
+    private static final byte EMPTY = 0;
+    private static final byte CONSTANT = 1;
+    private static final byte NUMBER = 2;
+    private static final byte OTHER = 3;
+    // the largest array length every JVM can allocate
+    private static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+
+    private final Expression defaultExpression;
+    private int rows;
+    private int columns;
+
+    private byte[] tags;
+    private long[] numbers;
+    private Expression[] formulas;
+    private final Map<Integer, Expression> others = new HashMap<>();
+
+    /**
+     * Construct a new dense store where every cell holds the default expression.
+     *
+     * @param defaultExpression The expression held by cells that have not been updated.
+     * @param rows The number of rows in the store.
+     * @param columns The number of columns in the store.
+     * @requires rows &ge; 0 &amp;&amp; columns &ge; 0
+     * @throws IllegalArgumentException If the store would hold too many cells
+     *                                  to index with an array, see {@link #fits(int, int)}.
+     */
+    public DenseCellStore(Expression defaultExpression, int rows, int columns) {
+        if (!fits(rows, columns)) {
+            throw new IllegalArgumentException("Too many cells for a dense store: "
+                    + rows + " rows of " + columns + " columns");
+        }
+        this.defaultExpression = defaultExpression;
+        this.rows = rows;
+        this.columns = columns;
+        this.tags = new byte[rows * columns];
+    }
+
+    /**
+     * Whether a dense store can hold a sheet of the given size.
+     * Every cell of a dense store has a slot in an array,
+     * so the number of cells must fit in an array length.
+     *
+     * @param rows The number of rows in the store.
+     * @param columns The number of columns in the store.
+     * @requires rows &ge; 0 &amp;&amp; columns &ge; 0
+     * @return True if a dense store of this size can be constructed.
+     */
+    public static boolean fits(int rows, int columns) {
+        return (long) rows * columns <= MAX_CELLS;
+    }
+
+    /**
+     * A new store holding the same cells as this store, sharing no mutable state with it.
+     */
+    DenseCellStore copy() {
+        DenseCellStore copy = new DenseCellStore(defaultExpression, 0, 0);
+        copy.rows = rows;
+        copy.columns = columns;
+        copy.tags = tags.clone();
+        copy.numbers = numbers == null ? null : numbers.clone();
+        copy.formulas = formulas == null ? null : formulas.clone();
+        copy.others.putAll(others);
+        return copy;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    private int index(int row, int column) {
+        return row * columns + column;
+    }
+
+    @Override
+    public Expression formulaAt(int row, int column) {
+        int index = index(row, column);
+        return switch (tags[index]) {
+            case CONSTANT -> new Constant(numbers[index]);
+            case NUMBER, OTHER -> formulas[index];
+            default -> defaultExpression;
+        };
+    }
+
+    @Override
+    public Expression valueAt(int row, int column) {
+        int index = index(row, column);
+        return switch (tags[index]) {
+            case CONSTANT, NUMBER -> new Constant(numbers[index]);
+            case OTHER -> others.get(index);
+            default -> defaultExpression;
+        };
+    }
+
+    @Override
+    public long numberAt(int row, int column) throws TypeError {
+        int index = index(row, column);
+        return switch (tags[index]) {
+            case CONSTANT, NUMBER -> numbers[index];
+            case OTHER -> others.get(index).value();
+            default -> defaultExpression.value();
+        };
+    }
+
+    /**
+     * Whether an expression is interchangeable with the default expression.
+     * All instances of {@link Nothing} behave identically, so they are
+     * treated as the same expression.
+     */
+    static boolean isDefault(Expression expression, Expression defaultExpression) {
+        return expression == defaultExpression
+                || (expression instanceof Nothing && defaultExpression instanceof Nothing);
+    }
+
+    private static boolean isConstant(Expression expression) {
+        return expression.getClass() == Constant.class;
+    }
+
+    @Override
+    public void update(int row, int column, Expression formula, Expression value) {
+        int index = index(row, column);
+        if (tags[index] == OTHER) {
+            others.remove(index);
+        }
+        if (isDefault(formula, defaultExpression) && isDefault(value, defaultExpression)) {
+            tags[index] = EMPTY;
+            if (formulas != null) {
+                formulas[index] = null;
+            }
+        } else if (isConstant(formula) && isConstant(value)
+                && ((Constant) formula).getValue() == ((Constant) value).getValue()) {
+            tags[index] = CONSTANT;
+            storeNumber(index, ((Constant) value).getValue());
+            if (formulas != null) {
+                formulas[index] = null;
+            }
+        } else if (isConstant(value)) {
+            tags[index] = NUMBER;
+            storeNumber(index, ((Constant) value).getValue());
+            storeFormula(index, formula);
+        } else {
+            tags[index] = OTHER;
+            others.put(index, value);
+            storeFormula(index, formula);
+        }
+    }
+
+    private void storeNumber(int index, long number) {
+        if (numbers == null) {
+            numbers = new long[tags.length];
+        }
+        numbers[index] = number;
+    }
+
+    private void storeFormula(int index, Expression formula) {
+        if (formulas == null) {
+            formulas = new Expression[tags.length];
+        }
+        formulas[index] = formula;
+    }
+
+    @Override
+    public void updateValue(int row, int column, Expression value) {
+        update(row, column, formulaAt(row, column), value);
+    }
+
+    @Override
+    public void updateNumber(int row, int column, long number) {
+        int index = index(row, column);
+        switch (tags[index]) {
+            case CONSTANT -> {
+                if (numbers[index] != number) {
+                    update(row, column, formulaAt(row, column), new Constant(number));
+                }
+            }
+            case NUMBER -> numbers[index] = number;
+            case OTHER -> {
+                others.remove(index);
+                tags[index] = NUMBER;
+                storeNumber(index, number);
+            }
+            default -> update(row, column, formulaAt(row, column), new Constant(number));
+        }
+    }
+
+    @Override
+    public void clear() {
+        tags = new byte[tags.length];
+        numbers = null;
+        formulas = null;
+        others.clear();
+    }
+
+    @Override
+    public void resize(int rows, int columns) {
+        DenseCellStore resized = new DenseCellStore(defaultExpression, rows, columns);
+        int keptRows = Math.min(rows, this.rows);
+        int keptColumns = Math.min(columns, this.columns);
+        for (int row = 0; row < keptRows; row++) {
+            for (int column = 0; column < keptColumns; column++) {
+                if (tags[index(row, column)] != EMPTY) {
+                    resized.update(row, column, formulaAt(row, column), valueAt(row, column));
+                }
+            }
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.tags = resized.tags;
+        this.numbers = resized.numbers;
+        this.formulas = resized.formulas;
+        this.others.clear();
+        this.others.putAll(resized.others);
+    }
+}
@@ -0,0 +1,283 @@
+package sheep.sheets.storage;
+
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+
+/**
+ * A cell store that can take immutable snapshots of itself in constant time.
+ * <p>
+ * The sheet is divided into tiles of {@value #TILE_ROWS} by {@value #TILE_COLUMNS} cells,
+ * each a small {@link DenseCellStore} allocated once a cell within it is updated.
+ * Tiles are the leaves of a persistent 32-way trie indexed by the position of the tile.
+ * <p>
+ * Every node and tile is owned by the store that created it, and only its owner
+ * modifies it in place. Taking a {@link #snapshot()} gives both the store and the
+ * snapshot new owners, so from then on the first update of any shared tile copies
+ * the tile and the path of nodes leading to it, and the snapshot never changes.
+ * Updates therefore cost a copy of each tile at most once per snapshot, and the
+ * cells of unchanged tiles are shared between every snapshot.
+ * <p>
+ * A snapshot is itself a persistent cell store. Once taken, a snapshot
+ * may be read from any thread, provided it is published safely.
+ */
+public class PersistentCellStore implements CellStore {
+    /** The number of rows in each tile. */
+    public static final int TILE_ROWS = 16;
+    /** The number of columns in each tile. */
+    public static final int TILE_COLUMNS = 16;
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    /**
+     * A node of the trie, holding nodes or, at the lowest level, tiles.
+     */
+    private static final class Node {
+        private final Object owner;
+        private final Object[] children;
+
+        Node(Object owner, Object[] children) {
+            this.owner = owner;
+            this.children = children;
+        }
+    }
+
+    /**
+     * A tile of cells, modified in place only by its owner.
+     */
+    private record Tile(Object owner, DenseCellStore cells) {
+
+    }
+
+    private final Expression defaultExpression;
+    private int rows;
+    private int columns;
+    // the number of tiles across each row of tiles, which the tile positions depend on
+    private int tileColumns;
+    private Node root;
+    // the number of bits of a tile's position below the root's children
+    private int shift;
+    private Object owner = new Object();
+
+    /**
+     * Construct a new persistent store where every cell holds the default expression.
+     *
+     * @param defaultExpression The expression held by cells that have not been updated.
+     * @param rows The number of rows in the store.
+     * @param columns The number of columns in the store.
+     * @requires rows &ge; 0 &amp;&amp; columns &ge; 0
+     */
+    public PersistentCellStore(Expression defaultExpression, int rows, int columns) {
+        this.defaultExpression = defaultExpression;
+        this.rows = rows;
+        this.columns = columns;
+        this.tileColumns = tileColumns(columns);
+        this.root = new Node(owner, new Object[WIDTH]);
+        this.shift = 0;
+    }
+
+    private PersistentCellStore(PersistentCellStore store) {
+        this.defaultExpression = store.defaultExpression;
+        this.rows = store.rows;
+        this.columns = store.columns;
+        this.tileColumns = store.tileColumns;
+        this.root = store.root;
+        this.shift = store.shift;
+    }
+
+    /**
+     * An immutable copy of the current cells of the store, taken in constant time.
+     * <p>
+     * Later updates of this store do not change the snapshot.
+     * The snapshot shares every tile with this store until the tile is next updated.
+     *
+     * @return A store holding the current cells of this store.
+     */
+    public PersistentCellStore snapshot() {
+        PersistentCellStore snapshot = new PersistentCellStore(this);
+        // neither store may modify the shared nodes in place from now on
+        owner = new Object();
+        return snapshot;
+    }
+
+    private static int tileColumns(int columns) {
+        return Math.max(1, (columns + TILE_COLUMNS - 1) / TILE_COLUMNS);
+    }
+
+    private int position(int row, int column) {
+        return (row / TILE_ROWS) * tileColumns + column / TILE_COLUMNS;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    private Tile leaf(int position) {
+        if (position >>> shift >= WIDTH) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.children[(position >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (Tile) node.children[position & MASK];
+    }
+
+    private DenseCellStore tile(int row, int column) {
+        Tile tile = leaf(position(row, column));
+        return tile == null ? null : tile.cells();
+    }
+
+    private Node editable(Node node) {
+        if (node.owner == owner) {
+            return node;
+        }
+        return new Node(owner, node.children.clone());
+    }
+
+    /**
+     * The lowest node on the path to a tile position, growing the trie,
+     * and creating or copying the nodes of the path that this store does not own.
+     */
+    private Node editablePath(int position) {
+        while (position >>> shift >= WIDTH) {
+            Object[] children = new Object[WIDTH];
+            children[0] = root;
+            root = new Node(owner, children);
+            shift += BITS;
+        }
+        root = editable(root);
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            int index = (position >>> level) & MASK;
+            Node child = (Node) node.children[index];
+            child = child == null ? new Node(owner, new Object[WIDTH]) : editable(child);
+            node.children[index] = child;
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * The tile holding a cell, allocated, or copied if this store does not own it.
+     */
+    private DenseCellStore editableTile(int row, int column) {
+        int position = position(row, column);
+        Node node = editablePath(position);
+        int index = position & MASK;
+        Tile tile = (Tile) node.children[index];
+        if (tile == null) {
+            tile = new Tile(owner, new DenseCellStore(defaultExpression, TILE_ROWS, TILE_COLUMNS));
+            node.children[index] = tile;
+        } else if (tile.owner() != owner) {
+            tile = new Tile(owner, tile.cells().copy());
+            node.children[index] = tile;
+        }
+        return tile.cells();
+    }
+
+    @Override
+    public Expression formulaAt(int row, int column) {
+        DenseCellStore tile = tile(row, column);
+        if (tile == null) {
+            return defaultExpression;
+        }
+        return tile.formulaAt(row % TILE_ROWS, column % TILE_COLUMNS);
+    }
+
+    @Override
+    public Expression valueAt(int row, int column) {
+        DenseCellStore tile = tile(row, column);
+        if (tile == null) {
+            return defaultExpression;
+        }
+        return tile.valueAt(row % TILE_ROWS, column % TILE_COLUMNS);
+    }
+
+    @Override
+    public long numberAt(int row, int column) throws TypeError {
+        DenseCellStore tile = tile(row, column);
+        if (tile == null) {
+            return defaultExpression.value();
+        }
+        return tile.numberAt(row % TILE_ROWS, column % TILE_COLUMNS);
+    }
+
+    @Override
+    public void update(int row, int column, Expression formula, Expression value) {
+        if (tile(row, column) == null
+                && DenseCellStore.isDefault(formula, defaultExpression)
+                && DenseCellStore.isDefault(value, defaultExpression)) {
+            return;
+        }
+        editableTile(row, column).update(row % TILE_ROWS, column % TILE_COLUMNS, formula, value);
+    }
+
+    @Override
+    public void updateValue(int row, int column, Expression value) {
+        update(row, column, formulaAt(row, column), value);
+    }
+
+    @Override
+    public void updateNumber(int row, int column, long number) {
+        if (tile(row, column) == null) {
+            update(row, column, defaultExpression, new Constant(number));
+            return;
+        }
+        editableTile(row, column)
+                .updateNumber(row % TILE_ROWS, column % TILE_COLUMNS, number);
+    }
+
+    @Override
+    public void clear() {
+        root = new Node(owner, new Object[WIDTH]);
+        shift = 0;
+    }
+
+    @Override
+    public void resize(int rows, int columns) {
+        PersistentCellStore resized = new PersistentCellStore(defaultExpression, rows, columns);
+        resized.owner = owner;
+        int keptRows = Math.min(rows, this.rows);
+        int keptColumns = Math.min(columns, this.columns);
+        for (int tileRow = 0; tileRow * TILE_ROWS < keptRows; tileRow++) {
+            for (int tileColumn = 0; tileColumn * TILE_COLUMNS < keptColumns; tileColumn++) {
+                int firstRow = tileRow * TILE_ROWS;
+                int firstColumn = tileColumn * TILE_COLUMNS;
+                Tile tile = leaf(position(firstRow, firstColumn));
+                if (tile == null) {
+                    continue;
+                }
+                if (firstRow + TILE_ROWS <= rows && firstColumn + TILE_COLUMNS <= columns) {
+                    // whole tiles are kept as they are, shared with any snapshots
+                    resized.editablePath(resized.position(firstRow, firstColumn))
+                            .children[resized.position(firstRow, firstColumn) & MASK] = tile;
+                    continue;
+                }
+                // only the cells of a partially removed tile that remain are kept
+                for (int row = firstRow; row < Math.min(firstRow + TILE_ROWS, keptRows); row++) {
+                    for (int column = firstColumn;
+                         column < Math.min(firstColumn + TILE_COLUMNS, keptColumns); column++) {
+                        resized.update(row, column, formulaAt(row, column), valueAt(row, column));
+                    }
+                }
+            }
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.tileColumns = resized.tileColumns;
+        this.root = resized.root;
+        this.shift = resized.shift;
+    }
+}
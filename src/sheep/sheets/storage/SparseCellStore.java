@@ -0,0 +1,157 @@
+package sheep.sheets.storage;
+
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.sheets.CellLocation;
+import sheep.sheets.CellMap;
+
+/**
+ * A cell store for very large sheets where most cells are empty.
+ * <p>
+ * The sheet is divided into fixed size tiles of {@value #TILE_ROWS} rows by
+ * {@value #TILE_COLUMNS} columns. A tile is only allocated once a cell within it
+ * is updated to hold something other than the default expression,
+ * every cell of an unallocated tile holds the default expression.
+ * Each allocated tile is a small {@link DenseCellStore}.
+ * <p>
+ * Tiles are indexed by the packed key of their position in the grid of tiles,
+ * so locating a tile does not depend on the width of the sheet.
+ * Clearing and resizing the store only visits allocated tiles.
+ */
+public class SparseCellStore implements CellStore {
+    /** The number of rows in each tile. */
+    public static final int TILE_ROWS = 64;
+    /** The number of columns in each tile. */
+    public static final int TILE_COLUMNS = 16;
+
+    private final Expression defaultExpression;
+    private final CellMap<DenseCellStore> tiles = new CellMap<>();
+    private int rows;
+    private int columns;
+
+    /**
+     * Construct a new sparse store where every cell holds the default expression.
+     *
+     * @param defaultExpression The expression held by cells that have not been updated.
+     * @param rows The number of rows in the store.
+     * @param columns The number of columns in the store.
+     * @requires rows &ge; 0 &amp;&amp; columns &ge; 0
+     */
+    public SparseCellStore(Expression defaultExpression, int rows, int columns) {
+        this.defaultExpression = defaultExpression;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * The number of tiles currently allocated.
+     * @return The number of allocated tiles.
+     */
+    public int allocatedTiles() {
+        return tiles.size();
+    }
+
+    private static long tileKey(int row, int column) {
+        return CellLocation.key(row / TILE_ROWS, column / TILE_COLUMNS);
+    }
+
+    private DenseCellStore tile(int row, int column) {
+        return tiles.get(tileKey(row, column));
+    }
+
+    @Override
+    public Expression formulaAt(int row, int column) {
+        DenseCellStore tile = tile(row, column);
+        if (tile == null) {
+            return defaultExpression;
+        }
+        return tile.formulaAt(row % TILE_ROWS, column % TILE_COLUMNS);
+    }
+
+    @Override
+    public Expression valueAt(int row, int column) {
+        DenseCellStore tile = tile(row, column);
+        if (tile == null) {
+            return defaultExpression;
+        }
+        return tile.valueAt(row % TILE_ROWS, column % TILE_COLUMNS);
+    }
+
+    @Override
+    public long numberAt(int row, int column) throws TypeError {
+        DenseCellStore tile = tile(row, column);
+        if (tile == null) {
+            return defaultExpression.value();
+        }
+        return tile.numberAt(row % TILE_ROWS, column % TILE_COLUMNS);
+    }
+
+    @Override
+    public void update(int row, int column, Expression formula, Expression value) {
+        DenseCellStore tile = tile(row, column);
+        if (tile == null) {
+            if (DenseCellStore.isDefault(formula, defaultExpression)
+                    && DenseCellStore.isDefault(value, defaultExpression)) {
+                return;
+            }
+            tile = new DenseCellStore(defaultExpression, TILE_ROWS, TILE_COLUMNS);
+            tiles.put(tileKey(row, column), tile);
+        }
+        tile.update(row % TILE_ROWS, column % TILE_COLUMNS, formula, value);
+    }
+
+    @Override
+    public void updateValue(int row, int column, Expression value) {
+        update(row, column, formulaAt(row, column), value);
+    }
+
+    @Override
+    public void updateNumber(int row, int column, long number) {
+        DenseCellStore tile = tile(row, column);
+        if (tile == null) {
+            update(row, column, defaultExpression, new Constant(number));
+            return;
+        }
+        tile.updateNumber(row % TILE_ROWS, column % TILE_COLUMNS, number);
+    }
+
+    @Override
+    public void clear() {
+        tiles.clear();
+    }
+
+    @Override
+    public void resize(int rows, int columns) {
+        tiles.removeIf((key, tile) -> {
+            int firstRow = CellLocation.row(key) * TILE_ROWS;
+            int firstColumn = CellLocation.column(key) * TILE_COLUMNS;
+            if (firstRow >= rows || firstColumn >= columns) {
+                return true;
+            }
+            if (firstRow + TILE_ROWS > rows || firstColumn + TILE_COLUMNS > columns) {
+                // discard the cells of a partially removed tile
+                for (int row = 0; row < TILE_ROWS; row++) {
+                    for (int column = 0; column < TILE_COLUMNS; column++) {
+                        if (firstRow + row >= rows || firstColumn + column >= columns) {
+                            tile.update(row, column, defaultExpression, defaultExpression);
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        this.rows = rows;
+        this.columns = columns;
+    }
+}
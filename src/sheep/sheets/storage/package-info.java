@@ -0,0 +1,4 @@
+/**
+ * Storage of the formulas and values held in the cells of a sheet.
+ */
+package sheep.sheets.storage;
\ No newline at end of file
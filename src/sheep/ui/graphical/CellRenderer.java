@@ -52,7 +52,9 @@ class CellRenderer extends DefaultTableCellRenderer {
             setHorizontalAlignment(SwingConstants.LEFT);
             ViewElement element = view.valueAt(row - 1, column - 1);
             setBackground(getColorByName(element.getBackground()));
-            setForeground(getColorByName(element.getForeground()));
+            setForeground(element.isStale()
+                    ? Configuration.STALE_FOREGROUND
+                    : getColorByName(element.getForeground()));
         }
         return result;
     }
@@ -2,6 +2,7 @@ package sheep.ui.graphical;
 
 import sheep.core.SheetUpdate;
 import sheep.core.SheetView;
+import sheep.core.UpdateResponse;
 import sheep.core.ViewElement;
 import sheep.ui.*;
 
@@ -11,9 +12,14 @@ import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyBoundsAdapter;
+import java.awt.event.HierarchyEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Graphical interface for the spreadsheet program.
@@ -58,18 +64,58 @@ public class GUI extends UI {
 
         table.addKeyListener(new Shortcuts(table));
 
+        // Report the visible cells whenever they may change,
+        // so that they are recalculated before the rest of the sheet.
+        table.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                reportViewport(table);
+            }
+
+            @Override
+            public void componentMoved(ComponentEvent e) {
+                reportViewport(table);
+            }
+        });
+        table.addHierarchyBoundsListener(new HierarchyBoundsAdapter() {
+            @Override
+            public void ancestorResized(HierarchyEvent e) {
+                reportViewport(table);
+            }
+        });
+
         Prompt prompt = new MessagePrompt();
         new Timer(tickSpeed, (e) -> {
-            for (Tick tick : tickCallbacks) {
-                if (tick.onTick(prompt)) {
-                    refreshUI(table);
+            // The updates of every tick callback are applied together once the tick ends.
+            boolean changed = false;
+            updater.beginFrame();
+            try {
+                for (Tick tick : tickCallbacks) {
+                    changed |= tick.onTick(prompt);
                 }
+            } finally {
+                endFrame(prompt);
+            }
+            if (changed) {
+                refreshUI(table);
             }
         }).start();
 
         // When the model is updated, re-render the table and
         // call any change callbacks (notably, saving).
         model.addTableModelListener((e -> refreshUI(table)));
+
+        // Values recalculated in the background are published to the
+        // event thread in batches, with at most one refresh waiting at a time.
+        AtomicBoolean refreshing = new AtomicBoolean(false);
+        view.onRecalculated(() -> {
+            if (refreshing.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(() -> {
+                    refreshing.set(false);
+                    table.repaint();
+                });
+            }
+        });
         for (OnChange callback : changeCallbacks) {
             model.addTableModelListener(e -> callback.change(prompt));
         }
@@ -99,6 +145,42 @@ public class GUI extends UI {
         return column;
     }
 
+    /**
+     * End a frame of updates, displaying a message if the updates could not be applied.
+     */
+    private void endFrame(Prompt prompt) {
+        UpdateResponse response = updater.endFrame();
+        if (!response.isSuccess()) {
+            prompt.message(response.getMessage());
+        }
+    }
+
+    /**
+     * Report the cells of the sheet that are visible in the table to the view.
+     */
+    private void reportViewport(JTable table) {
+        Rectangle visible = table.getVisibleRect();
+        if (visible.isEmpty()) {
+            return;
+        }
+        Point last = new Point(visible.x + visible.width - 1, visible.y + visible.height - 1);
+        int firstRow = table.rowAtPoint(visible.getLocation());
+        int firstColumn = table.columnAtPoint(visible.getLocation());
+        int lastRow = table.rowAtPoint(last);
+        int lastColumn = table.columnAtPoint(last);
+        if (firstRow < 0 || firstColumn < 0) {
+            return;
+        }
+        if (lastRow < 0) {
+            lastRow = table.getRowCount() - 1;
+        }
+        if (lastColumn < 0) {
+            lastColumn = table.getColumnCount() - 1;
+        }
+        // Offset by one to account for headers.
+        view.viewportChanged(firstRow - 1, firstColumn - 1, lastRow - 1, lastColumn - 1);
+    }
+
     private void refreshUI(JTable table) {
         int size = table.getColumnCount() - 1;
         if (size > view.getColumns()) {
@@ -132,9 +214,14 @@ public class GUI extends UI {
             if (!keys.containsKey(keyId)) {
                 return;
             }
-            for (Feature action : keys.get(keyId)) {
-                action.action()
-                        .perform(table.getSelectedRow() - 1, table.getSelectedColumn() - 1, prompt);
+            updater.beginFrame();
+            try {
+                for (Feature action : keys.get(keyId)) {
+                    action.action()
+                            .perform(table.getSelectedRow() - 1, table.getSelectedColumn() - 1, prompt);
+                }
+            } finally {
+                endFrame(prompt);
             }
             refreshUI(table);
         }
@@ -3,6 +3,7 @@ package sheep.ui.graphical;
 import sheep.core.SheetUpdate;
 import sheep.core.SheetView;
 import sheep.core.UpdateResponse;
+import sheep.sheets.CellLocation;
 
 import javax.swing.*;
 import javax.swing.event.TableModelEvent;
@@ -81,7 +82,7 @@ class SheetModel implements TableModel {
             return "";
         }
         if (rowIndex == 0) {
-            return Character.toString(columnIndex + 64);
+            return CellLocation.columnName(columnIndex - 1);
         }
         if (columnIndex == 0) {
             return rowIndex - 1;
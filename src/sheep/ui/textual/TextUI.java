@@ -3,6 +3,7 @@ package sheep.ui.textual;
 import sheep.core.UpdateResponse;
 import sheep.core.SheetUpdate;
 import sheep.core.SheetView;
+import sheep.sheets.CellLocation;
 import sheep.ui.UI;
 
 import java.io.PrintStream;
@@ -28,34 +29,22 @@ public class TextUI extends UI {
         this.output = output;
     }
 
-    private String columnHeaders(int columns) {
+    private String[] columnHeaders(int columns) {
         String[] values = new String[columns];
         for (int column = 0; column < columns; column++) {
-            values[column] = String.valueOf(Character.valueOf((char) (column + 65)));
+            values[column] = CellLocation.columnName(column);
         }
-        return renderRow(-1, values);
+        return values;
     }
 
-    private int maxWidth(int column) {
-        int max = 0;
-        for (int row = 0; row < view.getRows(); row++) {
-            int width = view.valueAt(row, column).getContent().length();
-            if (width > max) {
-                max = width;
-            }
-        }
-        return max;
-    }
-
-    private String renderRow(int row, String[] values) {
+    private String renderRow(int row, String[] values, int[] widths) {
         StringJoiner renderedRow = new StringJoiner(" | ");
         String rowHeader = row == -1 ? "" : "" + (row + 1);
-        int headerPadding = (view.getRows() / 10) - rowHeader.length();
+        int headerPadding = Math.max(0, (view.getRows() / 10) - rowHeader.length());
         renderedRow.add(rowHeader + " ".repeat(headerPadding));
         for (int column = 0; column < view.getColumns(); column++) {
-            int maxWidth = maxWidth(column);
             String cellValue = values[column];
-            int padding = maxWidth - cellValue.length();
+            int padding = widths[column] - cellValue.length();
             renderedRow.add(cellValue + " ".repeat(padding));
         }
         renderedRow.add("");
@@ -63,29 +52,48 @@ public class TextUI extends UI {
     }
 
     public String renderSheet() {
-        StringJoiner rendered = new StringJoiner("\n");
-        rendered.add(columnHeaders(view.getColumns()));
+        // every cell is read once and the column widths are found
+        // before rendering, so wide sheets render in a single pass
+        String[] headers = columnHeaders(view.getColumns());
+        String[][] values = new String[view.getRows()][view.getColumns()];
+        int[] widths = new int[view.getColumns()];
+        for (int column = 0; column < view.getColumns(); column++) {
+            widths[column] = headers[column].length();
+        }
         for (int row = 0; row < view.getRows(); row++) {
-            String[] values = new String[view.getColumns()];
             for (int column = 0; column < view.getColumns(); column++) {
-                values[column] = view.valueAt(row, column).getContent();
+                values[row][column] = view.valueAt(row, column).getContent();
+                widths[column] = Math.max(widths[column], values[row][column].length());
             }
-            rendered.add(renderRow(row, values));
+        }
+        StringJoiner rendered = new StringJoiner("\n");
+        rendered.add(renderRow(-1, headers, widths));
+        for (int row = 0; row < view.getRows(); row++) {
+            rendered.add(renderRow(row, values[row], widths));
         }
         return rendered.toString();
     }
 
+    private int columnLength(String input) {
+        int length = 0;
+        while (length < input.length() && Character.isAlphabetic(input.charAt(length))) {
+            length++;
+        }
+        return length;
+    }
+
     private Optional<Integer> readRow(String input) {
         try {
-            return Optional.of(Integer.parseInt(input.substring(1)));
+            return Optional.of(Integer.parseInt(input.substring(columnLength(input))));
         } catch (NumberFormatException e) {
             return Optional.empty();
         }
     }
 
     private Optional<Integer> readColumn(String input) {
-        if (Character.isAlphabetic(input.charAt(0))) {
-            return Optional.of(input.charAt(0) - 64);
+        int column = CellLocation.parseColumn(input.substring(0, columnLength(input)));
+        if (column >= 0) {
+            return Optional.of(column + 1);
         }
         return Optional.empty();
     }
@@ -0,0 +1,66 @@
+package sheep.expression;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.expression.basic.Reference;
+import sheep.parsing.ParseException;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+
+import static org.junit.Assert.*;
+
+public class InterningFactoryTest {
+    private InterningFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new InterningFactory();
+    }
+
+    /**
+     * Assert that the factory creates the same expressions as the core factory.
+     */
+    @Test
+    public void testSameAsCore() throws InvalidExpression {
+        CoreFactory core = new CoreFactory();
+        assertEquals(core.createReference("A1"), factory.createReference("A1"));
+        assertEquals(core.createConstant(5), factory.createConstant(5));
+        assertEquals(core.createConstant(1L << 40), factory.createConstant(1L << 40));
+        assertTrue(factory.createEmpty() instanceof Nothing);
+        Object[] args = {new Reference("A1"), new Constant(2)};
+        assertEquals(core.createOperator("+", args), factory.createOperator("+", args));
+    }
+
+    /**
+     * Assert that equal basic expressions are the same instance.
+     */
+    @Test
+    public void testShared() {
+        assertSame(factory.createReference("A1"), factory.createReference("A1"));
+        assertSame(factory.createConstant(7), factory.createConstant(7));
+        assertSame(factory.createConstant(-100000), factory.createConstant(-100000));
+        assertSame(factory.createEmpty(), factory.createEmpty());
+        assertNotSame(factory.createReference("A1"), factory.createReference("A2"));
+    }
+
+    /**
+     * Assert that formulas parsed separately share equal sub-expressions.
+     */
+    @Test
+    public void testSharedSubexpressions() throws ParseException {
+        Parser parser = new SimpleParser(factory);
+        Expression first = parser.parse("A1 + 2 * B3");
+        Expression second = parser.parse("  A1+2*B3 ");
+        assertSame(first, second);
+        assertSame(parser.parse("2 * B3"), parser.parse("2*B3"));
+        assertNotSame(first, parser.parse("A1 + 2 * B4"));
+        assertNotSame(parser.parse("1 + 2"), parser.parse("1 - 2"));
+    }
+
+    @Test(expected = InvalidExpression.class)
+    public void testInvalid() throws InvalidExpression {
+        factory.createOperator("^", new Object[]{factory.createConstant(1)});
+    }
+}
@@ -6,11 +6,13 @@ import sheep.expression.Expression;
 import sheep.expression.TypeError;
 import sheep.expression.basic.Constant;
 import sheep.expression.basic.Reference;
+import sheep.sheets.CellLocation;
 
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -57,6 +59,32 @@ public class ArithmeticTest {
         assertEquals(new HashSet<>(List.of("Hello", "Hi")), base.dependencies());
     }
 
+    @Test
+    public void testCellReferences() {
+        base = new Exp(new Expression[]{new Exp(new Expression[]{new Reference("A1")}),
+                new Reference("B2"), new Reference("Hi"), new Reference("A1")});
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(2, 1)), base.cellReferences());
+        assertSame(base.cellReferences(), base.cellReferences());
+    }
+
+    /**
+     * Assert that arithmetic expressions are equal if they are the same operation
+     * with equal sub-expressions in the same order.
+     */
+    @Test
+    public void testEquals() {
+        Expression[] arguments = {new Reference("A1"), new Constant(2)};
+        Arithmetic plus = Arithmetic.plus(arguments);
+        Arithmetic same = Arithmetic.plus(new Expression[]{new Reference("A1"), new Constant(2)});
+        assertEquals(plus, same);
+        assertEquals(plus.hashCode(), same.hashCode());
+        assertNotEquals(plus, Arithmetic.times(arguments));
+        assertNotEquals(plus, Arithmetic.plus(new Expression[]{new Constant(2), new Reference("A1")}));
+        assertNotEquals(plus, Arithmetic.plus(new Expression[]{new Reference("A1")}));
+        assertEquals(new Exp(arguments), new Exp(arguments));
+        assertNotEquals(base, new Exp(arguments));
+    }
+
     /**
      * Assert that the result of `Arithmetic.divide` is an instance of the `Divide` class.
      */
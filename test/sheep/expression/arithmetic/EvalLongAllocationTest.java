@@ -0,0 +1,83 @@
+package sheep.expression.arithmetic;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Reference;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Allocation benchmark for {@link Expression#evalLong(Map)}.
+ * <p>
+ * Measures the bytes allocated by the current thread while repeatedly
+ * evaluating a formula using every arithmetic operation,
+ * which should be none at all.
+ */
+public class EvalLongAllocationTest {
+    private static final int ITERATIONS = 100_000;
+
+    private Expression formula;
+    private Map<String, Expression> state;
+
+    @Before
+    public void setUp() {
+        state = new HashMap<>();
+        state.put("A0", new Constant(12));
+        state.put("A1", new Constant(3));
+        state.put("A2", new Reference("A1"));
+
+        // ((A0 + A1 - 2) * A2 / 3) < 100 = (A0 = 12)
+        Expression sum = Arithmetic.minus(new Expression[]{
+                Arithmetic.plus(new Expression[]{new Reference("A0"), new Reference("A1")}),
+                new Constant(2)});
+        Expression quotient = Arithmetic.divide(new Expression[]{
+                Arithmetic.times(new Expression[]{sum, new Reference("A2")}), new Constant(3)});
+        formula = Arithmetic.equal(new Expression[]{
+                Arithmetic.less(new Expression[]{quotient, new Constant(100)}),
+                Arithmetic.equal(new Expression[]{new Reference("A0"), new Constant(12)})});
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Assert that evalLong gives the same result as evaluating with value.
+     */
+    @Test
+    public void testSameAsValue() throws TypeError {
+        assertEquals(formula.value(state).value(), formula.evalLong(state));
+        assertEquals(1, formula.evalLong(state));
+    }
+
+    /**
+     * Assert that evaluating a formula with evalLong allocates nothing.
+     */
+    @Test
+    public void testZeroAllocation() throws TypeError {
+        long result = 0;
+        // warm up so that class loading and compilation are not measured
+        for (int i = 0; i < ITERATIONS; i++) {
+            result += formula.evalLong(state);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            result += formula.evalLong(state);
+        }
+        long allocated = allocatedBytes() - before;
+
+        assertEquals(2L * ITERATIONS, result);
+        // allow for the measurement itself, but not for a single object per evaluation
+        assertTrue("evalLong allocated " + allocated + " bytes, "
+                + (double) allocated / ITERATIONS + " bytes/op", allocated < ITERATIONS);
+    }
+}
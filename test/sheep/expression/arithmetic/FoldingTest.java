@@ -0,0 +1,174 @@
+package sheep.expression.arithmetic;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.expression.basic.Reference;
+import sheep.expression.compiled.FormulaCompiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that simplifying constant sub-expressions never changes
+ * how an arithmetic expression renders or what it evaluates to.
+ */
+public class FoldingTest {
+    private Map<String, Expression> state;
+
+    @Before
+    public void setUp() {
+        state = new HashMap<>();
+        state.put("A1", new Constant(7));
+        state.put("A2", new Nothing());
+    }
+
+    private static Expression[] args(Expression... arguments) {
+        return arguments;
+    }
+
+    private static Constant constant(long value) {
+        return new Constant(value);
+    }
+
+    private static Reference reference(String name) {
+        return new Reference(name);
+    }
+
+    /**
+     * Assert that a constant-only expression renders as written.
+     */
+    @Test
+    public void testConstantRender() {
+        Arithmetic plus = Arithmetic.plus(args(constant(1), constant(2),
+                Arithmetic.times(args(constant(3), constant(4)))));
+        assertEquals("1 + 2 + 3 * 4", plus.render());
+        assertEquals("1 + 2 + 3 * 4", plus.toString());
+    }
+
+    /**
+     * Assert that a constant-only expression evaluates to its value.
+     */
+    @Test
+    public void testConstantValue() throws TypeError {
+        Arithmetic minus = Arithmetic.minus(args(constant(20),
+                Arithmetic.divide(args(constant(9), constant(2))), constant(1)));
+        assertEquals(15, minus.evalLong(state));
+        assertEquals(new Constant(15), minus.value(state));
+        assertEquals(15, minus.evalLong(new HashMap<>()));
+    }
+
+    /**
+     * Assert that constant arguments of plus and times are merged without
+     * changing the result or the rendering.
+     */
+    @Test
+    public void testMerged() throws TypeError {
+        Arithmetic plus = Arithmetic.plus(args(constant(2), reference("A1"), constant(3)));
+        assertEquals(12, plus.evalLong(state));
+        assertEquals("2 + A1 + 3", plus.render());
+
+        Arithmetic times = Arithmetic.times(args(constant(2), reference("A1"), constant(3)));
+        assertEquals(42, times.evalLong(state));
+        assertEquals("2 * A1 * 3", times.render());
+    }
+
+    /**
+     * Assert that merged constants overflow the same way as evaluating in order.
+     */
+    @Test
+    public void testMergedOverflow() throws TypeError {
+        Arithmetic plus = Arithmetic.plus(args(constant(Long.MAX_VALUE),
+                reference("A1"), constant(1)));
+        assertEquals(Long.MAX_VALUE + 7 + 1, plus.evalLong(state));
+    }
+
+    /**
+     * Assert that identity arguments are not evaluated but are still rendered.
+     */
+    @Test
+    public void testIdentity() throws TypeError {
+        assertEquals(7, Arithmetic.plus(args(reference("A1"), constant(0))).evalLong(state));
+        assertEquals(7, Arithmetic.times(args(constant(1), reference("A1"))).evalLong(state));
+        assertEquals(7, Arithmetic.minus(args(reference("A1"), constant(0))).evalLong(state));
+        assertEquals(7, Arithmetic.divide(args(reference("A1"), constant(1))).evalLong(state));
+        assertEquals(-7, Arithmetic.minus(args(constant(0), reference("A1"))).evalLong(state));
+        assertEquals(0, Arithmetic.divide(args(constant(1), reference("A1"))).evalLong(state));
+        assertEquals("A1 - 0", Arithmetic.minus(args(reference("A1"), constant(0))).render());
+    }
+
+    /**
+     * Assert that dividing by a constant zero still fails when evaluated,
+     * not when the expression is constructed.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testDivideByZero() throws TypeError {
+        Arithmetic divide = Arithmetic.divide(args(constant(4), constant(0)));
+        assertEquals("4 / 0", divide.render());
+        divide.evalLong(state);
+    }
+
+    /**
+     * Assert that an empty argument is still a type error after simplification.
+     */
+    @Test(expected = TypeError.class)
+    public void testNothing() throws TypeError {
+        Arithmetic.plus(args(constant(0), reference("A2"), constant(1))).evalLong(state);
+    }
+
+    /**
+     * Assert that simplified expressions compile to the same value.
+     */
+    @Test
+    public void testCompile() throws TypeError {
+        FormulaCompiler compiler = new FormulaCompiler(new HashMap<>());
+        Arithmetic constant = Arithmetic.times(args(constant(6), constant(7)));
+        assertEquals(42, compiler.compile(constant).orElseThrow().evaluate((row, column) -> 0));
+
+        Arithmetic plus = Arithmetic.plus(args(constant(0), reference("A0"), constant(2), constant(3)));
+        assertEquals(15, compiler.compile(plus).orElseThrow().evaluate((row, column) -> 10));
+    }
+
+    /**
+     * Assert that simplification does not affect equality, which is by the arguments as written.
+     */
+    @Test
+    public void testEquality() {
+        Arithmetic written = Arithmetic.plus(args(constant(2), constant(3)));
+        assertNotEquals(Arithmetic.plus(args(constant(5))), written);
+        assertEquals(Arithmetic.plus(args(constant(2), constant(3))), written);
+    }
+
+    /**
+     * Assert that operations defined outside the package are always performed.
+     */
+    @Test
+    public void testCustomOperation() throws TypeError {
+        Arithmetic custom = new Arithmetic("^", args(constant(2), constant(3))) {
+            @Override
+            protected long perform(long[] arguments) {
+                return arguments[0] * 100 + arguments[1];
+            }
+        };
+        assertEquals(203, custom.evalLong(state));
+        Arithmetic plus = Arithmetic.plus(args(custom, constant(1)));
+        assertEquals(204, plus.evalLong(state));
+    }
+
+    /**
+     * Assert that a type error of a later argument is thrown in preference
+     * to a division by zero of an earlier one.
+     */
+    @Test
+    public void testTypeErrorBeforeDivisionByZero() {
+        Arithmetic divide = Arithmetic.divide(args(reference("A1"), constant(0), reference("A2")));
+        assertThrows(TypeError.class, () -> divide.evalLong(state));
+        Arithmetic zero = Arithmetic.divide(args(reference("A1"), constant(0)));
+        assertThrows(ArithmeticException.class, () -> zero.evalLong(state));
+    }
+}
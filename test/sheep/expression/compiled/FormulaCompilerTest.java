@@ -0,0 +1,118 @@
+package sheep.expression.compiled;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.arithmetic.Arithmetic;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.expression.basic.Reference;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FormulaCompilerTest {
+    private FormulaCompiler compiler;
+    private CellValues cells;
+
+    @Before
+    public void setUp() {
+        Map<String, Expression> builtins = new HashMap<>();
+        builtins.put("hundred", new Constant(100));
+        builtins.put("alias", new Reference("A0"));
+        compiler = new FormulaCompiler(builtins);
+
+        // A0 = 3, A1 = 4, every other cell is empty
+        cells = (row, column) -> {
+            if (column == 0 && row == 0) {
+                return 3;
+            }
+            if (column == 0 && row == 1) {
+                return 4;
+            }
+            throw new TypeError();
+        };
+    }
+
+    private long evaluate(Expression formula) throws TypeError {
+        return compiler.compile(formula).orElseThrow().evaluate(cells);
+    }
+
+    /**
+     * Assert that constants and arithmetic compile to their numeric value.
+     */
+    @Test
+    public void testConstant() throws TypeError {
+        assertEquals(42, evaluate(new Constant(42)));
+        assertEquals(15, evaluate(Arithmetic.plus(new Expression[]{
+                new Constant(4), new Constant(5), new Constant(6)})));
+    }
+
+    /**
+     * Assert that references to cells read the values of the cells.
+     */
+    @Test
+    public void testCellReference() throws TypeError {
+        assertEquals(7, evaluate(Arithmetic.plus(new Expression[]{
+                new Reference("A0"), new Reference("A1")})));
+        assertEquals(-1, evaluate(Arithmetic.minus(new Expression[]{
+                new Reference("A0"), new Reference("A1")})));
+    }
+
+    /**
+     * Assert that built-ins without dependencies are replaced by their value.
+     */
+    @Test
+    public void testBuiltIn() throws TypeError {
+        assertEquals(300, evaluate(Arithmetic.times(new Expression[]{
+                new Reference("hundred"), new Reference("A0")})));
+    }
+
+    /**
+     * Assert that every operation matches the result of perform.
+     */
+    @Test
+    public void testOperations() throws TypeError {
+        Expression[] arguments = {new Constant(64), new Reference("A1"), new Constant(2)};
+        assertEquals(70, evaluate(Arithmetic.plus(arguments)));
+        assertEquals(58, evaluate(Arithmetic.minus(arguments)));
+        assertEquals(512, evaluate(Arithmetic.times(arguments)));
+        assertEquals(8, evaluate(Arithmetic.divide(arguments)));
+        assertEquals(0, evaluate(Arithmetic.less(arguments)));
+        assertEquals(1, evaluate(Arithmetic.less(new Expression[]{
+                new Constant(1), new Reference("A0"), new Reference("A1")})));
+        assertEquals(0, evaluate(Arithmetic.equal(arguments)));
+        assertEquals(1, evaluate(Arithmetic.equal(new Expression[]{
+                new Constant(4), new Reference("A1")})));
+    }
+
+    /**
+     * Assert that arithmetic over non-numeric values throws a type error.
+     */
+    @Test(expected = TypeError.class)
+    public void testEmptyCell() throws TypeError {
+        evaluate(Arithmetic.plus(new Expression[]{new Reference("A0"), new Reference("B0")}));
+    }
+
+    /**
+     * Assert that arithmetic over unknown identifiers throws a type error.
+     */
+    @Test(expected = TypeError.class)
+    public void testUnknownIdentifier() throws TypeError {
+        evaluate(Arithmetic.plus(new Expression[]{new Reference("A0"), new Reference("unknown")}));
+    }
+
+    /**
+     * Assert that formulas whose value may not be numeric are not compiled.
+     */
+    @Test
+    public void testNotCompiled() {
+        assertTrue(compiler.compile(new Reference("A0")).isEmpty());
+        assertTrue(compiler.compile(new Nothing()).isEmpty());
+        assertTrue(compiler.compile(Arithmetic.plus(new Expression[]{
+                new Reference("alias"), new Constant(1)})).isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package sheep.fun;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.SheetUpdate;
+import sheep.core.UpdateResponse;
+import sheep.expression.CoreFactory;
+import sheep.parsing.SimpleParser;
+import sheep.sheets.CellLocation;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetBuilder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Regression benchmark for long chains of references.
+ * <p>
+ * Each Fibonacci row references the two rows above it, so filling
+ * many rows creates a reference chain the length of the sheet.
+ * Updating the first row then propagates through the entire chain.
+ */
+public class FibonacciBenchmarkTest {
+    private static final int ROWS = 100_000;
+
+    private Sheet sheet;
+
+    @Before
+    public void setUp() {
+        CoreFactory factory = new CoreFactory();
+        sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(ROWS, 1);
+    }
+
+    /**
+     * Assert that drawing 100k rows as a single fill neither overflows the stack
+     * nor re-evaluates upstream cells for every new row.
+     */
+    @Test(timeout = 30_000)
+    public void testDraw() throws FunException {
+        long start = System.nanoTime();
+        new Fibonacci(ROWS).draw(sheet);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("draw took " + elapsed + "ms", "1", sheet.valueAt(2, 0).getContent());
+        assertEquals("2", sheet.valueAt(3, 0).getContent());
+        assertEquals("55", sheet.valueAt(10, 0).getContent());
+    }
+
+    /**
+     * Assert that drawing 100k rows with an update of each cell in turn,
+     * as on a sheet that cannot fill or batch updates, neither overflows the stack
+     * nor re-evaluates upstream cells for every new row.
+     */
+    @Test(timeout = 30_000)
+    public void testDrawPerCell() throws FunException {
+        SheetUpdate cells = (row, column, input) -> sheet.update(row, column, input);
+        long start = System.nanoTime();
+        new Fibonacci(ROWS).draw(cells);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("draw took " + elapsed + "ms", "1", sheet.valueAt(2, 0).getContent());
+        assertEquals("A9 + A8", sheet.formulaAt(10, 0).getContent());
+        assertEquals("55", sheet.valueAt(10, 0).getContent());
+        assertEquals(ROWS - 3, sheet.usedBy(new CellLocation(2, 0)).size());
+    }
+
+    /**
+     * Assert that changing the head of the chain recalculates all 100k rows
+     * in constant stack depth.
+     */
+    @Test(timeout = 30_000)
+    public void testPropagate() throws FunException {
+        new Fibonacci(ROWS).draw(sheet);
+
+        long start = System.nanoTime();
+        UpdateResponse response = sheet.update(1, 0, "2");
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("propagate took " + elapsed + "ms", response.isSuccess());
+        assertEquals("1", sheet.valueAt(2, 0).getContent());
+        assertEquals("3", sheet.valueAt(3, 0).getContent());
+        assertEquals("4", sheet.valueAt(4, 0).getContent());
+        assertEquals(ROWS - 3, sheet.usedBy(new CellLocation(2, 0)).size());
+    }
+}
@@ -0,0 +1,53 @@
+package sheep.fun;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.SheetUpdate;
+import sheep.expression.CoreFactory;
+import sheep.parsing.SimpleParser;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetBuilder;
+
+import static org.junit.Assert.*;
+
+public class FibonacciTest {
+    private Sheet sheet;
+
+    @Before
+    public void setUp() {
+        CoreFactory factory = new CoreFactory();
+        sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(10, 2);
+    }
+
+    /**
+     * Assert that filling the rows gives the same formulas as updating each row.
+     */
+    @Test
+    public void testSameAsPerCell() throws FunException {
+        CoreFactory factory = new CoreFactory();
+        Sheet cells = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(10, 2);
+        new Fibonacci(10).draw(sheet);
+        new Fibonacci(10).draw((SheetUpdate) (row, column, input) -> cells.update(row, column, input));
+        for (int row = 0; row < 10; row++) {
+            assertEquals(cells.formulaAt(row, 0).getContent(), sheet.formulaAt(row, 0).getContent());
+            assertEquals(cells.valueAt(row, 0).getContent(), sheet.valueAt(row, 0).getContent());
+        }
+        assertEquals("34", sheet.valueAt(9, 0).getContent());
+    }
+
+    /**
+     * Assert that a drawing that does not fit in the sheet leaves the sheet unchanged,
+     * including the first rows.
+     */
+    @Test
+    public void testTooManyRows() {
+        sheet.update(0, 0, "7");
+        FunException error = assertThrows(FunException.class, () -> new Fibonacci(20).draw(sheet));
+        assertTrue(error.getMessage().contains("out of bounds"));
+        assertEquals("7", sheet.formulaAt(0, 0).getContent());
+        assertEquals("", sheet.formulaAt(1, 0).getContent());
+        assertEquals("", sheet.formulaAt(9, 0).getContent());
+    }
+}
@@ -0,0 +1,100 @@
+package sheep.parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class CachingParserTest {
+    private Parser simple;
+    private CachingParser parser;
+
+    @Before
+    public void setUp() {
+        simple = new SimpleParser(new CoreFactory());
+        parser = new CachingParser(simple, 3);
+    }
+
+    /**
+     * Assert that parsing the same string twice returns the same expression.
+     */
+    @Test
+    public void testHit() throws ParseException {
+        Expression first = parser.parse("A1 + 2");
+        assertSame(first, parser.parse("A1 + 2"));
+        assertEquals(1, parser.getHits());
+        assertEquals(1, parser.getMisses());
+        assertEquals(simple.parse("A1 + 2").render(), first.render());
+    }
+
+    /**
+     * Assert that the least recently used string is forgotten once the cache is full.
+     */
+    @Test
+    public void testEviction() throws ParseException {
+        Expression one = parser.parse("1");
+        parser.parse("2");
+        parser.parse("3");
+        parser.parse("1");
+        parser.parse("4");
+        assertEquals(3, parser.size());
+        // 2 was the least recently used, 1 was used again before 4 was added
+        assertSame(one, parser.parse("1"));
+        parser.parse("2");
+        assertEquals(2, parser.getHits());
+        assertEquals(5, parser.getMisses());
+    }
+
+    /**
+     * Assert that inputs which cannot be parsed still fail and are not remembered.
+     */
+    @Test
+    public void testFailure() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                parser.parse("1 + $");
+                fail("Expected a parse exception");
+            } catch (ParseException expected) {
+                // expected
+            }
+        }
+        assertEquals(0, parser.size());
+        assertEquals(2, parser.getMisses());
+    }
+
+    /**
+     * Assert that many threads may share the cache.
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        CachingParser shared = new CachingParser(simple, 64);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        String input = "A" + (i % 100) + " + 1";
+                        assertEquals(input, shared.parse(input).render());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(40000, shared.getHits() + shared.getMisses());
+        assertTrue(shared.size() <= 64);
+    }
+}
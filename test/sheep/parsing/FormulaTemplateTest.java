@@ -0,0 +1,130 @@
+package sheep.parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.sheets.CellLocation;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FormulaTemplateTest {
+    private Parser parser;
+
+    @Before
+    public void setUp() {
+        parser = new SimpleParser(new CoreFactory());
+    }
+
+    /**
+     * Assert that a placed template renders with its references moved.
+     */
+    @Test
+    public void testRender() throws ParseException {
+        FormulaTemplate template = FormulaTemplate.parse(parser, "A2+A1", 3, 0);
+        assertEquals("A2 + A1", template.at(3, 0).render());
+        assertEquals("A9 + A8", template.at(10, 0).render());
+        assertEquals("B9 + B8", template.at(10, 1).render());
+        assertEquals("A9+A8", template.inputAt(10, 0));
+    }
+
+    /**
+     * Assert that a placed template renders the same as parsing its moved input.
+     */
+    @Test
+    public void testSameAsParsed() throws ParseException {
+        String input = "(A1 + hundred) * B2 - 3 = Z10";
+        FormulaTemplate template = FormulaTemplate.parse(parser, input, 5, 5);
+        Expression parsed = parser.parse("(B6 + hundred) * C7 - 3 = AA15");
+        RelativeFormula formula = template.at(10, 6);
+        assertEquals(parsed.render(), formula.render());
+        assertEquals(parsed, formula.expression());
+        assertEquals(parsed.dependencies(), formula.dependencies());
+        assertEquals(parsed.cellReferences(), formula.cellReferences());
+    }
+
+    /**
+     * Assert that multi-letter columns are moved.
+     */
+    @Test
+    public void testWideColumns() throws ParseException {
+        FormulaTemplate template = FormulaTemplate.parse(parser, "Z0 + 1", 0, 25);
+        assertEquals("AA0 + 1", template.at(0, 26).render());
+        assertEquals(Set.of(new CellLocation(4, 27)), template.at(4, 27).cellReferences());
+    }
+
+    /**
+     * Assert that a template does not fit where a reference moves before the first cell.
+     */
+    @Test
+    public void testFits() throws ParseException {
+        FormulaTemplate template = FormulaTemplate.parse(parser, "A1 + B2", 3, 1);
+        assertTrue(template.fits(2, 1));
+        assertFalse(template.fits(1, 1));
+        assertFalse(template.fits(3, 0));
+        assertTrue(FormulaTemplate.parse(parser, "5", 3, 1).fits(0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfBounds() throws ParseException {
+        FormulaTemplate.parse(parser, "A1 + B2", 3, 1).at(0, 1);
+    }
+
+    /**
+     * Assert that a placed template evaluates as its moved formula.
+     */
+    @Test
+    public void testValue() throws ParseException, TypeError {
+        Map<String, Expression> state = new HashMap<>();
+        state.put("A5", new Constant(3));
+        state.put("A6", new Constant(4));
+        FormulaTemplate template = FormulaTemplate.parse(parser, "A0 * A1", 2, 0);
+        assertEquals(12, template.at(7, 0).evalLong(state));
+        assertEquals(new Constant(12), template.at(7, 0).value(state));
+    }
+
+    /**
+     * Assert that a sheet filled with placed templates
+     * has the same values as a sheet filled with written formulas.
+     */
+    @Test
+    public void testSheet() throws ParseException, TypeError {
+        int rows = 50;
+        Sheet written = new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(rows, 2);
+        Sheet placed = new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(rows, 2);
+        FormulaTemplate template = FormulaTemplate.parse(parser, "A1 + A0 + B1", 2, 0);
+        FormulaTemplate reference = FormulaTemplate.parse(parser, "A0", 0, 1);
+        for (Sheet sheet : new Sheet[]{written, placed}) {
+            sheet.update(new CellLocation(0, 0), new Constant(0));
+            sheet.update(new CellLocation(1, 0), new Constant(1));
+        }
+        for (int row = 0; row < rows; row++) {
+            written.update(new CellLocation(row, 1), parser.parse(reference.inputAt(row, 1)));
+            placed.update(new CellLocation(row, 1), reference.at(row, 1));
+        }
+        for (int row = 2; row < rows; row++) {
+            written.update(new CellLocation(row, 0), parser.parse(template.inputAt(row, 0)));
+            placed.update(new CellLocation(row, 0), template.at(row, 0));
+        }
+        assertEquals(written.encode(), placed.encode());
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < 2; column++) {
+                assertEquals(written.valueAt(row, column).getContent(),
+                        placed.valueAt(row, column).getContent());
+            }
+        }
+        assertEquals(written.usedBy(new CellLocation(1, 0)), placed.usedBy(new CellLocation(1, 0)));
+
+        written.update(new CellLocation(0, 0), new Constant(5));
+        placed.update(new CellLocation(0, 0), new Constant(5));
+        assertEquals(written.valueAt(rows - 1, 0).getContent(), placed.valueAt(rows - 1, 0).getContent());
+    }
+}
@@ -0,0 +1,129 @@
+package sheep.parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.Expression;
+import sheep.expression.ExpressionFactory;
+import sheep.expression.InvalidExpression;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.expression.basic.Reference;
+
+import static org.junit.Assert.*;
+
+public class SimpleParserTest {
+    private Parser parser;
+    private Parser structure;
+
+    /**
+     * A factory that records the structure of parsed expressions as a string,
+     * e.g. 1 + A2 * 3 is recorded as (+ 1 A2 (* 3)).
+     */
+    private static class StructureFactory implements ExpressionFactory {
+        @Override
+        public Expression createReference(String identifier) {
+            return new Reference(identifier);
+        }
+
+        @Override
+        public Expression createConstant(long value) {
+            return new Reference("" + value);
+        }
+
+        @Override
+        public Expression createEmpty() {
+            return new Reference("_");
+        }
+
+        @Override
+        public Expression createOperator(String name, Object[] args) throws InvalidExpression {
+            if (args.length < 1) {
+                throw new InvalidExpression("No arguments provided");
+            }
+            StringBuilder builder = new StringBuilder("(").append(name);
+            for (Object arg : args) {
+                builder.append(' ').append(((Reference) arg).getIdentifier());
+            }
+            return new Reference(builder.append(')').toString());
+        }
+    }
+
+    @Before
+    public void setUp() {
+        parser = new SimpleParser(new CoreFactory());
+        structure = new SimpleParser(new StructureFactory());
+    }
+
+    private String parse(String input) throws ParseException {
+        return ((Reference) structure.parse(input)).getIdentifier();
+    }
+
+    @Test
+    public void testBasic() throws ParseException {
+        assertEquals(new Constant(42), parser.parse("  42  "));
+        assertEquals(new Reference("HEY"), parser.parse("HEY "));
+        assertTrue(parser.parse("   ") instanceof Nothing);
+        assertEquals(new Constant(-5), parser.parse("-5"));
+        assertEquals(new Constant(5), parser.parse("+5"));
+    }
+
+    /**
+     * Assert that operators of the same precedence are flattened into a single expression.
+     */
+    @Test
+    public void testFlattened() throws ParseException {
+        assertEquals("(+ 4 5 (* 7 12) 3)",
+                parse("4 + 5 + 7 * 12 + 3"));
+        assertEquals("(= (< A1 2) 1)", parse("A1 < 2 = 1"));
+        assertEquals("(- 1 2 3)", parse("1 - 2 - 3"));
+    }
+
+    /**
+     * Assert that the results of the original splitting parser are preserved,
+     * including the precedence of + over - and empty operands.
+     */
+    @Test
+    public void testCompatible() throws ParseException {
+        assertEquals("(+ (- 1 2) 3)", parse("1 - 2 + 3"));
+        assertEquals("(+ 3 -5)", parse("3 + -5"));
+        assertEquals("(- (* 3) 5)", parse("3 * -5"));
+        assertEquals("(- _ 5)", parse("- 5"));
+        assertEquals("(+ 1 _ 2)", parse("1 ++ 2"));
+        assertEquals("(+ 1)", parse("1 + "));
+        assertEquals(new Reference("99999999999999999999"), parser.parse("99999999999999999999"));
+    }
+
+    @Test
+    public void testParentheses() throws ParseException {
+        assertEquals("(* (+ 4 5) 6)", parse("(4 + 5) * 6"));
+        assertEquals("(- 1 (- 2 3))", parse("1 - (2 - 3)"));
+        assertEquals(new Reference("A1"), parser.parse(" ( (A1) ) "));
+        assertEquals("(+ 1 -2)", parse("1 + (-2)"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnknownInput() throws ParseException {
+        parser.parse("1 + $");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testNoOperands() throws ParseException {
+        parser.parse(" + ");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnclosed() throws ParseException {
+        parser.parse("(1 + 2");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnopened() throws ParseException {
+        parser.parse("1 + 2)");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testAdjacent() throws ParseException {
+        parser.parse("2 (3)");
+    }
+}
@@ -0,0 +1,233 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.ViewElement;
+import sheep.expression.CoreFactory;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BackgroundSheetTest {
+    private Parser parser;
+    // tasks given to the worker, only run when the test chooses
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final AtomicInteger published = new AtomicInteger();
+    private Sheet sheet;
+
+    @Before
+    public void setUp() {
+        parser = new SimpleParser(new CoreFactory());
+        sheet = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .background(tasks::add, 4)
+                .empty(20, 2);
+        sheet.onRecalculated(published::incrementAndGet);
+    }
+
+    private void runWorker() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+
+    /**
+     * Assert that updated cells render their previous values as stale until the worker runs.
+     */
+    @Test
+    public void testStaleUntilRecalculated() {
+        sheet.update(0, 0, "1");
+        for (int row = 1; row < 20; row++) {
+            sheet.update(row, 0, "A" + (row - 1) + " + 1");
+        }
+        runWorker();
+        assertEquals("20", sheet.valueAt(19, 0).getContent());
+
+        sheet.update(0, 0, "5");
+        ViewElement stale = sheet.valueAt(19, 0);
+        assertTrue(stale.isStale());
+        assertEquals("20", stale.getContent());
+        assertEquals(1, tasks.size());
+
+        published.set(0);
+        runWorker();
+        ViewElement fresh = sheet.valueAt(19, 0);
+        assertFalse(fresh.isStale());
+        assertEquals("24", fresh.getContent());
+        // 20 cells in batches of 4
+        assertEquals(5, published.get());
+    }
+
+    /**
+     * Assert that the worker is only started once for updates made while it is waiting.
+     */
+    @Test
+    public void testUpdatesShareWorker() {
+        sheet.update(0, 0, "1");
+        sheet.update(1, 0, "A0 * 2");
+        sheet.update(0, 0, "3");
+        assertEquals(1, tasks.size());
+        runWorker();
+        assertEquals("6", sheet.valueAt(1, 0).getContent());
+        assertFalse(sheet.isOutOfDate(new CellLocation(1, 0)));
+    }
+
+    /**
+     * Assert that reading a value evaluates it without waiting for the worker.
+     */
+    @Test
+    public void testReadBeforeWorker() {
+        sheet.update(0, 0, "2");
+        sheet.update(0, 1, "A0 + A0");
+        assertEquals("4", sheet.valueAt(new CellLocation(0, 1)).render());
+        assertFalse(sheet.valueAt(0, 1).isStale());
+        runWorker();
+        assertEquals("4", sheet.valueAt(0, 1).getContent());
+    }
+
+    /**
+     * Fill column A with cells that each use A0, and evaluate them.
+     */
+    private void fan() {
+        sheet.update(0, 0, "1");
+        for (int row = 1; row < 20; row++) {
+            sheet.update(row, 0, "A0 + " + row);
+        }
+        runWorker();
+    }
+
+    /**
+     * The cells of column A that are out of date.
+     */
+    private int outOfDate() {
+        int count = 0;
+        for (int row = 0; row < 20; row++) {
+            if (sheet.isOutOfDate(new CellLocation(row, 0))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Assert that cells within the viewport are evaluated before the other cells.
+     */
+    @Test
+    public void testViewportFirst() {
+        sheet.viewportChanged(15, 0, 19, 1);
+        fan();
+        List<Integer> remaining = new ArrayList<>();
+        sheet.onRecalculated(() -> remaining.add(outOfDate()));
+        sheet.update(0, 0, "2");
+        runWorker();
+        // the visible cells and A0, which they use, are evaluated first
+        assertEquals(14, (int) remaining.get(0));
+        assertEquals("21", sheet.valueAt(19, 0).getContent());
+        assertEquals(0, outOfDate());
+    }
+
+    /**
+     * Assert that moving the viewport moves the cells now visible ahead of waiting cells.
+     */
+    @Test
+    public void testViewportMoved() {
+        fan();
+        List<Boolean> visibleFirst = new ArrayList<>();
+        sheet.onRecalculated(() -> visibleFirst.add(
+                !sheet.isOutOfDate(new CellLocation(12, 0))
+                        && sheet.isOutOfDate(new CellLocation(3, 0))));
+        sheet.update(0, 0, "2");
+        sheet.viewportChanged(11, 0, 12, 0);
+        runWorker();
+        assertTrue(visibleFirst.get(0));
+        assertEquals("14", sheet.valueAt(12, 0).getContent());
+        assertEquals(0, outOfDate());
+    }
+
+    /**
+     * Assert that a callback that throws does not stop later updates from being recalculated.
+     */
+    @Test
+    public void testCallbackThrows() {
+        fan();
+        AtomicInteger failures = new AtomicInteger(1);
+        sheet.onRecalculated(() -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("repaint failed");
+            }
+        });
+        sheet.update(0, 0, "2");
+        assertThrows(IllegalStateException.class, () -> tasks.poll().run());
+        // the batches after the failed callback are given to a new worker
+        assertEquals(1, tasks.size());
+        runWorker();
+        assertEquals(0, outOfDate());
+
+        sheet.update(0, 0, "3");
+        assertEquals(1, tasks.size());
+        runWorker();
+        assertFalse(sheet.valueAt(19, 0).isStale());
+        assertEquals("22", sheet.valueAt(19, 0).getContent());
+    }
+
+    /**
+     * Assert that an executor rejecting the worker does not stop later updates
+     * from being recalculated.
+     */
+    @Test
+    public void testWorkerRejected() {
+        AtomicInteger rejections = new AtomicInteger(1);
+        Sheet rejecting = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .background(task -> {
+                    if (rejections.getAndDecrement() > 0) {
+                        throw new RejectedExecutionException();
+                    }
+                    tasks.add(task);
+                }, 4)
+                .empty(20, 2);
+        assertTrue(rejecting.update(0, 0, "1").isSuccess());
+        assertTrue(tasks.isEmpty());
+        assertTrue(rejecting.update(0, 1, "A0 + 1").isSuccess());
+        assertEquals(1, tasks.size());
+        runWorker();
+        assertFalse(rejecting.isOutOfDate(new CellLocation(0, 0)));
+        assertFalse(rejecting.valueAt(0, 1).isStale());
+        assertEquals("2", rejecting.valueAt(0, 1).getContent());
+    }
+
+    /**
+     * Assert that a long recalculation on a worker thread
+     * reaches the same values while the sheet is read and updated.
+     */
+    @Test
+    public void testWorkerThread() throws InterruptedException {
+        int rows = 100000;
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        Sheet large = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .background(worker, 1000)
+                .empty(rows, 2);
+        large.update(0, 0, "0");
+        large.update(0, 1, "0");
+        large.fill(1, 0, rows - 1, 0, "A0 + 1");
+        for (int i = 1; i <= 20; i++) {
+            assertTrue(large.update(0, 0, String.valueOf(i)).isSuccess());
+            assertTrue(large.update(i, 1, "B" + (i - 1) + " + 1").isSuccess());
+            large.valueAt(rows / 2, 0);
+        }
+        worker.shutdown();
+        assertTrue(worker.awaitTermination(1, TimeUnit.MINUTES));
+        assertFalse(large.valueAt(rows - 1, 0).isStale());
+        assertEquals(String.valueOf(rows - 1 + 20), large.valueAt(rows - 1, 0).getContent());
+        assertEquals("20", large.valueAt(20, 1).getContent());
+    }
+}
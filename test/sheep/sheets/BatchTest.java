@@ -0,0 +1,203 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.UpdateResponse;
+import sheep.expression.CoreFactory;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.parsing.SimpleParser;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BatchTest {
+    private Sheet sheet;
+
+    /**
+     * A formula that adds A0 and B0, counting how many times it is evaluated.
+     */
+    private static class Counter extends Expression {
+        private int evaluations = 0;
+
+        @Override
+        public Set<String> dependencies() {
+            return Set.of("A0", "B0");
+        }
+
+        @Override
+        public long value() throws TypeError {
+            throw new TypeError();
+        }
+
+        @Override
+        public Expression value(Map<String, Expression> state) throws TypeError {
+            evaluations++;
+            return new Constant(state.get("A0").value() + state.get("B0").value());
+        }
+
+        @Override
+        public String render() {
+            return "counter";
+        }
+    }
+
+    @Before
+    public void setUp() {
+        CoreFactory factory = new CoreFactory();
+        sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(10, 3);
+        sheet.update(0, 0, "1");
+        sheet.update(0, 1, "2");
+        sheet.update(1, 0, "A0 + 1");
+        sheet.update(2, 0, "A1 * 2");
+        sheet.update(1, 1, "B0 + A2");
+    }
+
+    private String formula(int row, int column) {
+        return sheet.formulaAt(row, column).getContent();
+    }
+
+    private String value(int row, int column) {
+        return sheet.valueAt(row, column).getContent();
+    }
+
+    /**
+     * Assert that updates only take effect when the batch is committed, all at once.
+     */
+    @Test
+    public void testCommit() {
+        Batch batch = sheet.begin();
+        assertTrue(batch.update(0, 0, "5").isSuccess());
+        assertTrue(batch.update(0, 1, "A0 + 10").isSuccess());
+        assertTrue(batch.update(0, 0, "3").isSuccess());
+        assertEquals(2, batch.size());
+        assertEquals("1", value(0, 0));
+
+        assertTrue(batch.commit().isSuccess());
+        assertEquals(0, batch.size());
+        assertEquals("3", formula(0, 0));
+        assertEquals("13", value(0, 1));
+        assertEquals("8", value(2, 0));
+        assertEquals("21", value(1, 1));
+    }
+
+    /**
+     * Assert that a cell depending on several updated cells is recalculated once per commit.
+     */
+    @Test
+    public void testSingleRecalculation() throws TypeError {
+        Counter counter = new Counter();
+        sheet.update(new CellLocation(0, 2), counter);
+        assertEquals(1, counter.evaluations);
+
+        Batch batch = sheet.begin();
+        batch.update(0, 0, "4");
+        batch.update(0, 1, "6");
+        assertTrue(batch.commit().isSuccess());
+        assertEquals(2, counter.evaluations);
+        assertEquals("10", value(0, 2));
+    }
+
+    /**
+     * Assert that inputs that cannot be added are rejected without affecting the batch.
+     */
+    @Test
+    public void testRejectedInput() {
+        Batch batch = sheet.begin();
+        assertTrue(batch.update(0, 0, "7").isSuccess());
+        assertFalse(batch.update(20, 0, "1").isSuccess());
+        assertFalse(batch.update(3, 0, "1 + $").isSuccess());
+        assertEquals(1, batch.size());
+        assertTrue(batch.commit().isSuccess());
+        assertEquals("7", value(0, 0));
+    }
+
+    /**
+     * Assert that a type error partway through a batch restores the formula
+     * and value of every cell, whether updated or recalculated.
+     */
+    @Test
+    public void testRollback() {
+        Batch batch = sheet.begin();
+        batch.update(0, 0, "9");
+        batch.update(3, 0, "A0 + 1");
+        batch.update(0, 1, "A3 + 1");
+        batch.update(4, 0, "A0 + C9");
+        batch.update(5, 0, "7");
+        UpdateResponse response = batch.commit();
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().startsWith("Type error"));
+        assertEquals(0, batch.size());
+
+        assertEquals("1", formula(0, 0));
+        assertEquals("2", formula(0, 1));
+        assertEquals("A0 + 1", formula(1, 0));
+        assertEquals("", formula(3, 0));
+        assertEquals("", formula(4, 0));
+        assertEquals("", formula(5, 0));
+        assertEquals("1", value(0, 0));
+        assertEquals("2", value(0, 1));
+        assertEquals("2", value(1, 0));
+        assertEquals("4", value(2, 0));
+        assertEquals("6", value(1, 1));
+        assertEquals("", value(3, 0));
+        assertEquals("", value(5, 0));
+
+        // the sheet still recalculates normally after the rollback
+        assertTrue(sheet.update(0, 0, "2").isSuccess());
+        assertEquals("6", value(2, 0));
+    }
+
+    /**
+     * Assert that a batch closing a reference loop is rolled back entirely.
+     */
+    @Test
+    public void testRollbackLoop() {
+        Batch batch = sheet.begin();
+        batch.update(0, 1, "7");
+        batch.update(0, 0, "B1");
+        assertFalse(batch.commit().isSuccess());
+        assertEquals("1", formula(0, 0));
+        assertEquals("2", formula(0, 1));
+        assertEquals("6", value(1, 1));
+    }
+
+    /**
+     * Assert that a fill is committed together with the other updates of the batch.
+     */
+    @Test
+    public void testFill() {
+        Batch batch = sheet.begin();
+        assertTrue(batch.update(5, 0, "10").isSuccess());
+        assertTrue(batch.fill(6, 0, 9, 0, "A5 + 1").isSuccess());
+        assertEquals(5, batch.size());
+        assertEquals("", value(9, 0));
+        assertTrue(batch.commit().isSuccess());
+        assertEquals("A8 + 1", formula(9, 0));
+        assertEquals("14", value(9, 0));
+    }
+
+    /**
+     * Assert that a fill that cannot be added leaves the batch unchanged,
+     * and that a fill failing on commit rolls back the whole batch.
+     */
+    @Test
+    public void testFillRollback() {
+        Batch batch = sheet.begin();
+        batch.update(0, 0, "6");
+        assertFalse(batch.fill(6, 0, 10, 0, "A5 + 1").isSuccess());
+        assertFalse(batch.fill(0, 2, 3, 2, "1 + $").isSuccess());
+        assertFalse(batch.fill(1, 2, 0, 2, "C0 + 1").isSuccess());
+        assertEquals(1, batch.size());
+
+        assertTrue(batch.fill(6, 0, 9, 0, "A5 + 1").isSuccess());
+        assertFalse(batch.commit().isSuccess());
+        assertEquals("1", formula(0, 0));
+        assertEquals("", formula(6, 0));
+        assertEquals("4", value(2, 0));
+    }
+}
@@ -0,0 +1,71 @@
+package sheep.sheets;
+
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.parsing.SimpleParser;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class CellLocationTest {
+    /**
+     * Assert that columns after Z are named with multiple letters.
+     */
+    @Test
+    public void testColumnName() {
+        assertEquals("A", CellLocation.columnName(0));
+        assertEquals("Z", CellLocation.columnName(25));
+        assertEquals("AA", CellLocation.columnName(26));
+        assertEquals("AZ", CellLocation.columnName(51));
+        assertEquals("BA", CellLocation.columnName(52));
+        assertEquals("ZZ", CellLocation.columnName(701));
+        assertEquals("AAA", CellLocation.columnName(702));
+        assertEquals("XFD", CellLocation.columnName(16383));
+    }
+
+    /**
+     * Assert that every column name up to 16k columns parses back to its index.
+     */
+    @Test
+    public void testColumnRoundTrip() {
+        for (int column = 0; column < 20000; column++) {
+            assertEquals(column, CellLocation.parseColumn(CellLocation.columnName(column)));
+        }
+        assertEquals(-1, CellLocation.parseColumn(""));
+        assertEquals(-1, CellLocation.parseColumn("A1"));
+        assertEquals(-1, CellLocation.parseColumn("ZZZZZZZZ"));
+    }
+
+    /**
+     * Assert that multi-letter references are parsed and printed.
+     */
+    @Test
+    public void testMultiLetterReference() {
+        assertEquals(Optional.of(new CellLocation(7, 27)), CellLocation.maybeReference("AB7"));
+        assertEquals("AB7", new CellLocation(7, 27).toString());
+        assertEquals(Optional.of(new CellLocation(1, 16383)), CellLocation.maybeReference("XFD1"));
+        assertEquals(Optional.empty(), CellLocation.maybeReference("AB"));
+        assertEquals(Optional.empty(), CellLocation.maybeReference("A1B"));
+        assertEquals(Optional.empty(), CellLocation.maybeReference("Ab1"));
+    }
+
+    /**
+     * Assert that a sheet with 16k columns can reference its last column.
+     */
+    @Test
+    public void testWideSheet() throws TypeError {
+        CoreFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .sparse(true)
+                .empty(10, 16384);
+        assertTrue(sheet.update(0, 16383, "5").isSuccess());
+        assertTrue(sheet.update(1, 30, "XFD0 + 1").isSuccess());
+        assertTrue(sheet.update(2, 0, "AE1 * 2").isSuccess());
+        assertEquals(new Constant(12), sheet.valueAt(new CellLocation(2, 0)));
+        assertTrue(sheet.update(0, 16383, "10").isSuccess());
+        assertEquals(new Constant(22), sheet.valueAt(new CellLocation(2, 0)));
+    }
+}
@@ -0,0 +1,149 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CellMapTest {
+    private CellMap<String> map;
+
+    @Before
+    public void setUp() {
+        map = new CellMap<>();
+    }
+
+    /**
+     * Assert that packing a cell into a key and back gives the same cell.
+     */
+    @Test
+    public void testKeyRoundTrip() {
+        long key = CellLocation.key(70000, 3);
+        assertEquals(70000, CellLocation.row(key));
+        assertEquals(3, CellLocation.column(key));
+        assertEquals(new CellLocation(70000, 3), CellLocation.ofKey(key));
+        assertEquals(key, new CellLocation(70000, 3).key());
+        assertNotEquals(CellLocation.key(0, 1), CellLocation.key(1, 0));
+    }
+
+    /**
+     * Assert that parsing a key agrees with maybeReference.
+     */
+    @Test
+    public void testParseKey() {
+        assertEquals(CellLocation.key(2, 0), CellLocation.parseKey("A2"));
+        assertEquals(CellLocation.key(123, 25), CellLocation.parseKey("Z123"));
+        assertEquals(CellLocation.NOT_A_REFERENCE, CellLocation.parseKey("2A"));
+        assertEquals(CellLocation.NOT_A_REFERENCE, CellLocation.parseKey("A"));
+        assertEquals(CellLocation.NOT_A_REFERENCE, CellLocation.parseKey("a2"));
+        assertEquals(CellLocation.NOT_A_REFERENCE, CellLocation.parseKey("A99999999999"));
+        assertEquals(Optional.empty(), CellLocation.maybeReference("A99999999999"));
+        assertEquals(Optional.of(new CellLocation(2, 0)), CellLocation.maybeReference("A2"));
+    }
+
+    /**
+     * Assert that formatting a cell is unchanged.
+     */
+    @Test
+    public void testFormat() {
+        assertEquals("C23", new CellLocation(23, 2).toString());
+        assertEquals("x A0", new CellLocation(0, 0).appendTo(new StringBuilder("x ")).toString());
+    }
+
+    /**
+     * Assert that cells within the cache are interned and equal to new instances.
+     */
+    @Test
+    public void testInterned() {
+        assertSame(CellLocation.of(5, 2), CellLocation.of(5, 2));
+        assertEquals(new CellLocation(5, 2), CellLocation.of(5, 2));
+        assertEquals(new CellLocation(5, 2).hashCode(), CellLocation.of(5, 2).hashCode());
+        assertEquals(new CellLocation(-1, 2), CellLocation.of(-1, 2));
+        assertSame(CellLocation.of(1023, 63), CellLocation.of(1023, 63));
+    }
+
+    /**
+     * Assert that cells outside the small cached region are not kept alive by the cache.
+     */
+    @Test
+    public void testNotInterned() {
+        assertNotSame(CellLocation.of(1024, 0), CellLocation.of(1024, 0));
+        assertNotSame(CellLocation.of(0, 64), CellLocation.of(0, 64));
+        assertNotSame(CellLocation.of(500_000, 9_000), CellLocation.of(500_000, 9_000));
+        assertEquals(new CellLocation(500_000, 9_000), CellLocation.of(500_000, 9_000));
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        assertTrue(map.isEmpty());
+        assertNull(map.put(CellLocation.key(1, 1), "B1"));
+        assertEquals("B1", map.put(CellLocation.key(1, 1), "other"));
+        assertEquals("other", map.get(new CellLocation(1, 1)));
+        assertTrue(map.containsKey(CellLocation.key(1, 1)));
+        assertFalse(map.containsKey(CellLocation.key(1, 0)));
+        assertEquals(1, map.size());
+        assertEquals("other", map.remove(CellLocation.key(1, 1)));
+        assertNull(map.get(CellLocation.key(1, 1)));
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Assert that the map agrees with a hash map over many random operations,
+     * exercising collisions, resizing and removal.
+     */
+    @Test
+    public void testAgreesWithHashMap() {
+        Map<CellLocation, String> expected = new HashMap<>();
+        Random random = new Random(12);
+        for (int i = 0; i < 20000; i++) {
+            CellLocation cell = new CellLocation(random.nextInt(300), random.nextInt(80));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(cell), map.remove(cell));
+            } else {
+                assertEquals(expected.put(cell, cell + ":" + i), map.put(cell, cell + ":" + i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        Map<CellLocation, String> actual = new HashMap<>();
+        map.forEach((key, value) -> actual.put(CellLocation.ofKey(key), value));
+        assertEquals(expected, actual);
+
+        map.removeIf((key, value) -> CellLocation.row(key) >= 100);
+        expected.keySet().removeIf(cell -> cell.getRow() >= 100);
+        for (CellLocation cell : expected.keySet()) {
+            assertEquals(expected.get(cell), map.get(cell));
+        }
+        assertEquals(expected.size(), map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(CellLocation.key(0, 0)));
+    }
+
+    /**
+     * Assert that a dense block of cells on a sheet far wider than the alphabet
+     * does not pile up into long probe sequences.
+     */
+    @Test(timeout = 5_000)
+    public void testWideBlock() {
+        for (int row = 0; row < 13; row++) {
+            for (int column = 0; column < 16_384; column++) {
+                map.put(CellLocation.key(row, column), "");
+            }
+        }
+        assertEquals(13 * 16_384, map.size());
+        for (int row = 0; row < 13; row++) {
+            for (int column = 0; column < 16_384; column++) {
+                assertTrue(map.containsKey(CellLocation.key(row, column)));
+            }
+        }
+        assertFalse(map.containsKey(CellLocation.key(13, 0)));
+        map.removeIf((key, value) -> CellLocation.column(key) % 2 == 0);
+        assertEquals(13 * 8_192, map.size());
+        assertNotNull(map.get(CellLocation.key(12, 16_383)));
+    }
+}
@@ -0,0 +1,81 @@
+package sheep.sheets;
+
+import sheep.core.SheetUpdate;
+import sheep.core.SheetView;
+import sheep.expression.CoreFactory;
+import sheep.parsing.SimpleParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Throughput benchmark for many writers updating their own regions of a sheet.
+ * <p>
+ * Each writer owns a band of rows holding a chain of references,
+ * and repeatedly updates the head of its chain, recalculating the band.
+ * The bands of a concurrent sheet are locked separately, whereas writers
+ * of a sheet share its single lock.
+ * <p>
+ * Timings depend on the machine, so this is run by hand rather than as a unit test.
+ * The correctness of concurrent writers is tested by {@link ConcurrentSheetTest}.
+ */
+public class ConcurrentSheetBenchmark {
+    private static final int MAX_WRITERS = 8;
+    private static final int BAND_ROWS = 500;
+    private static final int UPDATES = 200;
+
+    private static <S extends SheetView & SheetUpdate> S chains(S sheet) {
+        for (int row = 0; row < sheet.getRows(); row++) {
+            sheet.update(row, 0, row % BAND_ROWS == 0 ? "0" : "A" + (row - 1) + " + 1");
+        }
+        return sheet;
+    }
+
+    /**
+     * Run the writers at once, returning the updates made per second.
+     */
+    private static double run(SheetUpdate sheet, int writers) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            int head = writer * BAND_ROWS;
+            threads.add(new Thread(() -> {
+                for (int i = 1; i <= UPDATES; i++) {
+                    sheet.update(head, 0, String.valueOf(i));
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        return writers * UPDATES / (elapsed / 1e9);
+    }
+
+    /**
+     * Report the throughput of a concurrent sheet and a sheet with a single lock
+     * for 1 to {@value #MAX_WRITERS} writers.
+     *
+     * @param args Unused.
+     * @throws InterruptedException If interrupted while waiting for the writers.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        CoreFactory factory = new CoreFactory();
+        SheetBuilder builder = new SheetBuilder(new SimpleParser(factory), factory.createEmpty());
+        int rows = MAX_WRITERS * BAND_ROWS;
+        // warm up the evaluation of both sheets
+        run(chains(builder.concurrent(rows, 1, BAND_ROWS)), MAX_WRITERS);
+        run(chains(builder.empty(rows, 1)), MAX_WRITERS);
+
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+        for (int writers = 1; writers <= MAX_WRITERS; writers *= 2) {
+            double striped = run(chains(builder.concurrent(rows, 1, BAND_ROWS)), writers);
+            double locked = run(chains(builder.empty(rows, 1)), writers);
+            System.out.printf("%d writers: concurrent %.0f updates/s, single lock %.0f updates/s%n",
+                    writers, striped, locked);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.UpdateResponse;
+import sheep.expression.CoreFactory;
+import sheep.expression.Expression;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Reference;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentSheetTest {
+    private Parser parser;
+    private ConcurrentSheet sheet;
+
+    /**
+     * A built-in that waits to be released each time it is evaluated.
+     * It depends on another identifier so that it is neither compiled nor cached.
+     */
+    private static class Pause extends Expression {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public Set<String> dependencies() {
+            return Set.of("unused");
+        }
+
+        @Override
+        public long value() {
+            return 0;
+        }
+
+        @Override
+        public Expression value(Map<String, Expression> state) {
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Constant(1);
+        }
+
+        @Override
+        public String render() {
+            return "pause";
+        }
+    }
+
+    @Before
+    public void setUp() {
+        parser = new SimpleParser(new CoreFactory());
+        sheet = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .concurrent(40, 2, 10);
+    }
+
+    private String value(int row, int column) {
+        return sheet.valueAt(row, column).getContent();
+    }
+
+    /**
+     * Assert that updates propagate through cells of other bands.
+     */
+    @Test
+    public void testAcrossBands() {
+        assertEquals(4, sheet.getBands());
+        sheet.update(0, 0, "1");
+        sheet.update(15, 0, "A0 + 1");
+        sheet.update(25, 0, "A15 * 2");
+        sheet.update(35, 0, "A25 + A0");
+        assertEquals("5", value(35, 0));
+
+        sheet.update(0, 0, "5");
+        assertEquals("6", value(15, 0));
+        assertEquals("12", value(25, 0));
+        assertEquals("17", value(35, 0));
+
+        // removing a reference between bands stops propagation through it
+        sheet.update(15, 0, "3");
+        sheet.update(0, 0, "10");
+        assertEquals("6", value(25, 0));
+        assertEquals("16", value(35, 0));
+        assertEquals("A25 + A0", sheet.formulaAt(35, 0).getContent());
+    }
+
+    /**
+     * Assert that reference loops through other bands are rejected.
+     */
+    @Test
+    public void testLoopAcrossBands() {
+        sheet.update(25, 0, "1");
+        assertTrue(sheet.update(15, 0, "A25 + 1").isSuccess());
+        assertTrue(sheet.update(0, 0, "A15").isSuccess());
+        UpdateResponse response = sheet.update(25, 0, "A0");
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().contains("Reference cycle between A25, A15, A0"));
+        assertEquals("1", sheet.formulaAt(25, 0).getContent());
+        assertEquals("2", value(0, 0));
+
+        // the loop is reported with every member, including those within one band
+        assertTrue(sheet.update(5, 0, "A0").isSuccess());
+        CycleError error = assertThrows(CycleError.class,
+                () -> sheet.update(new CellLocation(25, 0), new Reference("A5")));
+        assertEquals(List.of(new CellLocation(25, 0), new CellLocation(15, 0),
+                new CellLocation(0, 0), new CellLocation(5, 0)), error.getCycle());
+        assertEquals("1", sheet.formulaAt(25, 0).getContent());
+        assertEquals("2", value(5, 0));
+
+        // loops within a band are still rejected by the band
+        assertFalse(sheet.update(1, 0, "A1").isSuccess());
+    }
+
+    /**
+     * Assert that an update rejected by another band is rolled back in every band.
+     */
+    @Test
+    public void testRejectedByOtherBand() {
+        sheet.update(0, 0, "1");
+        sheet.update(15, 0, "A0 + 1");
+        sheet.update(16, 0, "A15 + 1");
+        assertFalse(sheet.update(0, 0, "").isSuccess());
+        assertEquals("1", sheet.formulaAt(0, 0).getContent());
+        assertEquals("2", value(15, 0));
+        assertEquals("3", value(16, 0));
+        sheet.update(0, 0, "4");
+        assertEquals("6", value(16, 0));
+    }
+
+    /**
+     * Assert that an update failing with an exception in another band
+     * is rolled back in every band, as in a sheet.
+     */
+    @Test
+    public void testExceptionInOtherBand() {
+        ConcurrentSheet narrow = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .concurrent(4, 1, 1);
+        narrow.update(0, 0, "2");
+        narrow.update(1, 0, "5 / A0");
+        try {
+            narrow.update(0, 0, "0");
+            fail("division by zero was not reported");
+        } catch (ArithmeticException expected) {
+            // rejected in the same way as a sheet
+        }
+        assertEquals("2", narrow.formulaAt(0, 0).getContent());
+        assertEquals("2", narrow.valueAt(1, 0).getContent());
+        narrow.update(0, 0, "1");
+        assertEquals("5", narrow.valueAt(1, 0).getContent());
+    }
+
+    /**
+     * Assert that a writer is not blocked by a writer of an unlinked band,
+     * while a writer of a linked band waits.
+     */
+    @Test(timeout = 30_000)
+    public void testIndependentBandsInParallel() throws Exception {
+        Pause pause = new Pause();
+        ConcurrentSheet paused = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .includeBuiltIn("pause", pause)
+                .concurrent(40, 2, 10);
+        paused.update(0, 1, "1");
+        paused.update(25, 0, "B0 + 1");
+        CompletableFuture<UpdateResponse> slow =
+                CompletableFuture.supplyAsync(() -> paused.update(0, 0, "pause"));
+        pause.entered.await();
+
+        // band 1 is not linked to band 0, so it is updated while band 0 is locked
+        assertTrue(CompletableFuture.supplyAsync(() -> paused.update(15, 0, "7"))
+                .get(10, TimeUnit.SECONDS).isSuccess());
+        assertEquals("7", paused.valueAt(15, 0).getContent());
+
+        // band 0 is mirrored into band 2, so band 2 waits for band 0
+        CompletableFuture<UpdateResponse> linked =
+                CompletableFuture.supplyAsync(() -> paused.update(0, 1, "2"));
+        Thread.sleep(100);
+        assertFalse(linked.isDone());
+
+        pause.released.countDown();
+        assertTrue(slow.get(10, TimeUnit.SECONDS).isSuccess());
+        assertTrue(linked.get(10, TimeUnit.SECONDS).isSuccess());
+        assertEquals("3", paused.valueAt(25, 0).getContent());
+    }
+
+    /**
+     * Assert that no update is lost while writers repeatedly update their own bands at once.
+     */
+    @Test(timeout = 60_000)
+    public void testWritersOwnBands() throws Exception {
+        int writers = 4;
+        int bandRows = 100;
+        int updates = 200;
+        ConcurrentSheet chains = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .concurrent(writers * bandRows, 1, bandRows);
+        for (int row = 0; row < chains.getRows(); row++) {
+            chains.update(row, 0, row % bandRows == 0 ? "0" : "A" + (row - 1) + " + 1");
+        }
+
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            int head = writer * bandRows;
+            threads.add(new Thread(() -> {
+                for (int i = 1; i <= updates; i++) {
+                    if (!chains.update(head, 0, String.valueOf(i)).isSuccess()) {
+                        failure.compareAndSet(null, "A" + head + " = " + i);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        for (int writer = 0; writer < writers; writer++) {
+            int last = (writer + 1) * bandRows - 1;
+            assertEquals(String.valueOf(updates + bandRows - 1), chains.valueAt(last, 0).getContent());
+        }
+    }
+
+    /**
+     * Assert that many writers, updating their own bands and adding and removing
+     * references between bands, neither deadlock nor lose updates.
+     */
+    @Test(timeout = 60_000)
+    public void testStress() throws Exception {
+        int writers = 8;
+        int bandRows = 25;
+        int rows = writers * bandRows;
+        ConcurrentSheet stressed = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .concurrent(rows, 2, bandRows);
+        for (int row = 0; row < rows; row++) {
+            stressed.update(row, 0, row % bandRows == 0 ? "0" : "A" + (row - 1) + " + 1");
+            stressed.update(row, 1, "0");
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            int first = writer * bandRows;
+            Random random = new Random(writer);
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 300; i++) {
+                        int row = first + random.nextInt(bandRows);
+                        String formula = switch (random.nextInt(4)) {
+                            case 0 -> String.valueOf(random.nextInt(100));
+                            // reference the band before, or the band after, which may form loops
+                            case 1 -> "A" + (first + rows - 1) % rows + " + 1";
+                            case 2 -> "B" + (first + bandRows + random.nextInt(bandRows)) % rows + " * 2";
+                            default -> "A" + (row == first ? row : row - 1) + " + 1";
+                        };
+                        UpdateResponse response = stressed.update(row, 1, formula);
+                        if (!response.isSuccess() && !response.getMessage().contains("Reference cycle")) {
+                            throw new AssertionError(formula + ": " + response.getMessage());
+                        }
+                        assertTrue(stressed.update(first, 0, String.valueOf(i)).isSuccess());
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+
+        // the final formulas evaluate to the same values in a single threaded sheet
+        Sheet expected = new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(rows, 2);
+        for (int row = 0; row < rows; row++) {
+            expected.update(row, 0, stressed.formulaAt(row, 0).getContent());
+        }
+        Map<CellLocation, Expression> formulas = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            formulas.put(new CellLocation(row, 1), parser.parse(stressed.formulaAt(row, 1).getContent()));
+        }
+        expected.update(formulas);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < 2; column++) {
+                assertEquals(expected.valueAt(row, column).getContent(),
+                        stressed.valueAt(row, column).getContent());
+            }
+        }
+    }
+}
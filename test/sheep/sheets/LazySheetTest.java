@@ -0,0 +1,157 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+
+import static org.junit.Assert.*;
+
+public class LazySheetTest {
+    private Parser parser;
+    private Sheet sheet;
+
+    @Before
+    public void setUp() {
+        CoreFactory factory = new CoreFactory();
+        parser = new SimpleParser(factory);
+        sheet = new SheetBuilder(parser, factory.createEmpty())
+                .lazy(true)
+                .empty(20, 4);
+    }
+
+    private String value(int row, int column) {
+        return sheet.valueAt(row, column).getContent();
+    }
+
+    private boolean outOfDate(int row, int column) {
+        return sheet.isOutOfDate(new CellLocation(row, column));
+    }
+
+    /**
+     * Assert that updates only mark the cells that use them as out of date.
+     */
+    @Test
+    public void testMarkedOutOfDate() {
+        sheet.update(0, 0, "1");
+        sheet.update(1, 0, "A0 + 1");
+        sheet.update(2, 0, "A1 + 1");
+        sheet.update(0, 1, "5");
+        assertTrue(outOfDate(0, 0));
+        assertTrue(outOfDate(2, 0));
+        assertFalse(outOfDate(3, 0));
+
+        assertEquals("3", value(2, 0));
+        assertFalse(outOfDate(0, 0));
+        assertFalse(outOfDate(1, 0));
+        assertFalse(outOfDate(2, 0));
+        // cells that are not used by the cell read are left out of date
+        assertTrue(outOfDate(0, 1));
+
+        sheet.update(0, 0, "10");
+        assertTrue(outOfDate(1, 0));
+        assertTrue(outOfDate(2, 0));
+        assertEquals("11", value(1, 0));
+        assertTrue(outOfDate(2, 0));
+        assertEquals("12", value(2, 0));
+    }
+
+    /**
+     * Assert that a lazy sheet reads the same values as an eager sheet.
+     */
+    @Test
+    public void testSameAsEager() {
+        Sheet eager = new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(20, 4);
+        for (Sheet target : new Sheet[]{sheet, eager}) {
+            target.update(0, 0, "2");
+            target.update(0, 1, "3");
+            for (int row = 1; row < 20; row++) {
+                target.update(row, 0, "A" + (row - 1) + " * 2 - B0");
+                target.update(row, 1, "B" + (row - 1) + " + A" + row);
+            }
+            target.update(0, 0, "4");
+        }
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 4; column++) {
+                assertEquals(eager.valueAt(row, column).getContent(), value(row, column));
+            }
+        }
+    }
+
+    /**
+     * Assert that recalculating evaluates every out of date cell.
+     */
+    @Test
+    public void testRecalculate() {
+        sheet.update(0, 0, "1");
+        for (int row = 1; row < 20; row++) {
+            sheet.update(row, 0, "A" + (row - 1) + " + 1");
+            sheet.update(row, 1, "A" + row + " * 2");
+        }
+        sheet.recalculate();
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 2; column++) {
+                assertFalse(outOfDate(row, column));
+            }
+        }
+        assertEquals("20", value(19, 0));
+        assertEquals("40", value(19, 1));
+    }
+
+    /**
+     * Assert that a long chain of references is evaluated without overflowing the stack.
+     */
+    @Test
+    public void testLongChain() throws TypeError {
+        int rows = 100000;
+        Sheet chain = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .lazy(true)
+                .empty(rows, 1);
+        chain.update(new CellLocation(0, 0), new Constant(0));
+        for (int row = 1; row < rows; row++) {
+            chain.update(row, 0, "A" + (row - 1) + " + 1");
+        }
+        assertEquals(String.valueOf(rows - 1), chain.valueAt(rows - 1, 0).getContent());
+    }
+
+    /**
+     * Assert that cells which cannot be evaluated are left empty rather than rejected.
+     */
+    @Test
+    public void testTypeError() {
+        sheet.update(0, 0, "1");
+        assertTrue(sheet.update(1, 0, "A0 + B0").isSuccess());
+        assertEquals("", value(1, 0));
+        assertFalse(outOfDate(1, 0));
+        sheet.update(0, 1, "2");
+        assertEquals("3", value(1, 0));
+    }
+
+    /**
+     * Assert that reference loops are still rejected.
+     */
+    @Test
+    public void testCycle() {
+        sheet.update(0, 0, "A1");
+        assertFalse(sheet.update(1, 0, "A0").isSuccess());
+        assertFalse(outOfDate(1, 0));
+        assertEquals("", value(0, 0));
+    }
+
+    /**
+     * Assert that eager sheets are never out of date.
+     */
+    @Test
+    public void testEagerByDefault() {
+        Sheet eager = new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(5, 5);
+        eager.update(0, 0, "1");
+        eager.update(1, 0, "A0 + 1");
+        assertFalse(eager.isOutOfDate(new CellLocation(1, 0)));
+        assertFalse(eager.update(2, 0, "A0 + C0").isSuccess());
+        eager.recalculate();
+        assertEquals("2", eager.valueAt(1, 0).getContent());
+    }
+}
@@ -0,0 +1,88 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ParallelSheetTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private Parser parser;
+    private Sheet sheet;
+
+    @Before
+    public void setUp() {
+        parser = new SimpleParser(new CoreFactory());
+        sheet = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .parallel(POOL, 1)
+                .empty(50, 3);
+    }
+
+    /**
+     * Fill a sheet with cells that fan out from A0, using references to filled
+     * and empty cells.
+     */
+    private static void fan(Sheet target) {
+        target.update(0, 0, "1");
+        for (int row = 1; row < 50; row++) {
+            target.update(row, 0, "A0");
+            target.update(row, 1, "A" + row + " * " + row);
+            target.update(row, 2, row % 2 == 0 ? "B" + row + " + A0" : "C0");
+        }
+    }
+
+    /**
+     * Assert that levels evaluated on the pool reach the same values as a serial sheet.
+     */
+    @Test(timeout = 10_000)
+    public void testSameAsSerial() {
+        Sheet serial = new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(50, 3);
+        fan(sheet);
+        fan(serial);
+        assertTrue(sheet.update(0, 0, "3").isSuccess());
+        assertTrue(serial.update(0, 0, "3").isSuccess());
+        for (int row = 0; row < 50; row++) {
+            for (int column = 0; column < 3; column++) {
+                assertEquals(serial.valueAt(row, column).getContent(),
+                        sheet.valueAt(row, column).getContent());
+            }
+        }
+        assertEquals("147", sheet.valueAt(49, 1).getContent());
+    }
+
+    /**
+     * Assert that an update failing within a parallel level is rolled back.
+     */
+    @Test(timeout = 10_000)
+    public void testRollback() {
+        fan(sheet);
+        assertFalse(sheet.update(0, 0, "").isSuccess());
+        assertEquals("1", sheet.formulaAt(0, 0).getContent());
+        assertEquals("1", sheet.valueAt(10, 0).getContent());
+        assertEquals("11", sheet.valueAt(10, 2).getContent());
+    }
+
+    /**
+     * Assert that the bands of a concurrent sheet evaluate in parallel.
+     */
+    @Test(timeout = 10_000)
+    public void testConcurrentBands() {
+        ConcurrentSheet concurrent = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .parallel(POOL, 1)
+                .concurrent(40, 2, 10);
+        concurrent.update(0, 0, "2");
+        for (int row = 1; row < 40; row++) {
+            assertTrue(concurrent.update(row, 0, "A0").isSuccess());
+            assertTrue(concurrent.update(row, 1, "A" + row + " + 1").isSuccess());
+        }
+        assertTrue(concurrent.update(0, 0, "5").isSuccess());
+        assertEquals("5", concurrent.valueAt(39, 0).getContent());
+        assertEquals("6", concurrent.valueAt(25, 1).getContent());
+    }
+}
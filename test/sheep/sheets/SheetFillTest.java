@@ -0,0 +1,189 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.UpdateResponse;
+import sheep.expression.CoreFactory;
+import sheep.expression.TypeError;
+import sheep.parsing.FormulaTemplate;
+import sheep.parsing.ParseException;
+import sheep.parsing.Parser;
+import sheep.parsing.RelativeFormula;
+import sheep.parsing.SimpleParser;
+
+import static org.junit.Assert.*;
+
+public class SheetFillTest {
+    private Parser parser;
+    private Sheet sheet;
+
+    @Before
+    public void setUp() {
+        CoreFactory factory = new CoreFactory();
+        parser = new SimpleParser(factory);
+        sheet = new SheetBuilder(parser, factory.createEmpty())
+                .includeBuiltIn("hundred", factory.createConstant(100))
+                .empty(20, 4);
+    }
+
+    private String value(int row, int column) {
+        return sheet.valueAt(row, column).getContent();
+    }
+
+    private String formula(int row, int column) {
+        return sheet.formulaAt(row, column).getContent();
+    }
+
+    /**
+     * Assert that filling a column moves the references of each cell.
+     */
+    @Test
+    public void testFillDown() {
+        sheet.update(0, 0, "0");
+        sheet.update(1, 0, "1");
+        UpdateResponse response = sheet.fill(2, 0, 19, 0, "A1 + A0");
+        assertTrue(response.isSuccess());
+        assertEquals("A1 + A0", formula(2, 0));
+        assertEquals("A18 + A17", formula(19, 0));
+        assertEquals("55", value(10, 0));
+        assertEquals("4181", value(19, 0));
+    }
+
+    /**
+     * Assert that filled cells are recalculated when the cells they use change.
+     */
+    @Test
+    public void testPropagate() {
+        sheet.update(0, 0, "1");
+        assertTrue(sheet.fill(1, 0, 19, 0, "A0 * 2").isSuccess());
+        assertEquals("524288", value(19, 0));
+        sheet.update(0, 0, "3");
+        assertEquals("1572864", value(19, 0));
+        assertEquals(19, sheet.usedBy(new CellLocation(0, 0)).size());
+    }
+
+    /**
+     * Assert that a range in both directions is filled, with built-ins left in place.
+     */
+    @Test
+    public void testFillRange() {
+        for (int column = 0; column < 4; column++) {
+            sheet.update(0, column, String.valueOf(column));
+        }
+        assertTrue(sheet.fill(1, 0, 3, 3, "A0 + hundred").isSuccess());
+        assertEquals("D2 + hundred", formula(3, 3));
+        assertEquals("103", value(1, 3));
+        assertEquals("303", value(3, 3));
+        assertEquals("100", value(1, 0));
+        assertEquals("C0 + hundred", formula(1, 2));
+    }
+
+    /**
+     * Assert that the corners of a range may be given in any order.
+     */
+    @Test
+    public void testReversedRange() {
+        sheet.update(0, 0, "5");
+        assertTrue(sheet.fill(6, 1, 2, 1, "A6").isSuccess());
+        assertEquals("A2", formula(2, 1));
+        assertEquals("5", value(0, 0));
+        assertEquals("", value(2, 1));
+    }
+
+    /**
+     * Assert that filling from a cell keeps the cell and fills the rest of the range.
+     */
+    @Test
+    public void testFillFromCell() {
+        sheet.update(0, 0, "1");
+        sheet.update(1, 0, "A0 + 1");
+        assertTrue(sheet.fill(new CellLocation(1, 0), new CellLocation(5, 0)).isSuccess());
+        assertEquals("A4 + 1", formula(5, 0));
+        assertEquals("6", value(5, 0));
+        assertFalse(sheet.formulaAt(new CellLocation(1, 0)) instanceof RelativeFormula);
+        assertTrue(sheet.formulaAt(new CellLocation(5, 0)) instanceof RelativeFormula);
+
+        // filled cells share the template when filled again
+        assertTrue(sheet.fill(new CellLocation(5, 0), new CellLocation(8, 0)).isSuccess());
+        assertEquals("A7 + 1", formula(8, 0));
+        assertEquals("9", value(8, 0));
+        assertSame(((RelativeFormula) sheet.formulaAt(new CellLocation(5, 0))).getTemplate(),
+                ((RelativeFormula) sheet.formulaAt(new CellLocation(8, 0))).getTemplate());
+    }
+
+    /**
+     * Assert that a formula whose rendering parses differently is not filled.
+     */
+    @Test
+    public void testFillFromParenthesised() {
+        sheet.update(0, 0, "(1 + 2) * 3");
+        UpdateResponse response = sheet.fill(new CellLocation(0, 0), new CellLocation(3, 0));
+        assertFalse(response.isSuccess());
+        assertEquals("", formula(3, 0));
+    }
+
+    /**
+     * Assert that references which would move before the first cell are rejected.
+     */
+    @Test
+    public void testReferenceOutOfBounds() {
+        UpdateResponse response = sheet.fill(5, 0, 0, 0, "A4 + 1");
+        assertFalse(response.isSuccess());
+        assertEquals("Reference out of bounds: A0", response.getMessage());
+        assertEquals("", formula(5, 0));
+    }
+
+    @Test
+    public void testCellOutOfBounds() {
+        UpdateResponse response = sheet.fill(0, 0, 20, 0, "1");
+        assertFalse(response.isSuccess());
+        assertEquals("Cell out of bounds: A20", response.getMessage());
+    }
+
+    @Test
+    public void testUnparseable() {
+        UpdateResponse response = sheet.fill(0, 0, 3, 0, "1 + (2");
+        assertFalse(response.isSuccess());
+        assertEquals("Unable to parse: 1 + (2", response.getMessage());
+    }
+
+    /**
+     * Assert that a fill that fails to evaluate leaves the sheet unchanged.
+     */
+    @Test
+    public void testTypeError() {
+        sheet.update(0, 1, "3");
+        UpdateResponse response = sheet.fill(1, 1, 5, 1, "B0 + A0");
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().startsWith("Type error: "));
+        assertEquals("", formula(1, 1));
+        assertTrue(sheet.usedBy(new CellLocation(0, 1)).isEmpty());
+    }
+
+    /**
+     * Assert that a fill that creates a reference loop is rejected.
+     */
+    @Test(expected = CycleError.class)
+    public void testCycle() throws ParseException, TypeError {
+        FormulaTemplate template = FormulaTemplate.parse(parser, "A0", 0, 0);
+        sheet.fill(template, new CellLocation(0, 0), new CellLocation(1, 0));
+    }
+
+    /**
+     * Assert that filling and updating a sheet as wide as the widest column name
+     * stays fast and moves references across multi-letter columns.
+     */
+    @Test(timeout = 10_000)
+    public void testWideSheet() {
+        CoreFactory factory = new CoreFactory();
+        Sheet wide = new SheetBuilder(parser, factory.createEmpty()).empty(5, 16_384);
+        assertTrue(wide.fill(0, 0, 0, 16_383, "1").isSuccess());
+        assertTrue(wide.fill(1, 0, 4, 16_383, "A0 + 1").isSuccess());
+        assertEquals("XFD3 + 1", wide.formulaAt(4, 16_383).getContent());
+        assertEquals("5", wide.valueAt(4, 16_383).getContent());
+
+        assertTrue(wide.update(0, 16_383, "10").isSuccess());
+        assertEquals("14", wide.valueAt(4, 16_383).getContent());
+        assertEquals("5", wide.valueAt(4, 16_382).getContent());
+    }
+}
@@ -0,0 +1,177 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.UpdateResponse;
+import sheep.expression.CoreFactory;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.parsing.SimpleParser;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SheetFrameTest {
+    private Sheet sheet;
+    private Counter counter;
+
+    /**
+     * A built-in that counts how many times it is evaluated,
+     * which is once for each recalculation of a cell using it.
+     * It depends on another identifier so that it is neither compiled nor cached.
+     */
+    private static class Counter extends Expression {
+        private int count = 0;
+
+        @Override
+        public Set<String> dependencies() {
+            return Set.of("unused");
+        }
+
+        @Override
+        public long value() {
+            return 0;
+        }
+
+        @Override
+        public Expression value(Map<String, Expression> state) {
+            count++;
+            return new Constant(0);
+        }
+
+        @Override
+        public String render() {
+            return "counter";
+        }
+    }
+
+    @Before
+    public void setUp() {
+        CoreFactory factory = new CoreFactory();
+        counter = new Counter();
+        sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .includeBuiltIn("counter", counter)
+                .empty(10, 4);
+    }
+
+    /**
+     * Assert that many writes during a frame are recalculated once when the frame ends.
+     */
+    @Test
+    public void testSingleRecalculation() {
+        sheet.update(0, 0, "1");
+        sheet.update(0, 1, "A0 + counter");
+        counter.count = 0;
+
+        sheet.beginFrame();
+        for (int i = 2; i <= 20; i++) {
+            assertTrue(sheet.update(0, 0, String.valueOf(i)).isSuccess());
+        }
+        assertEquals(0, counter.count);
+        assertEquals("20", sheet.formulaAt(0, 0).getContent());
+        assertTrue(sheet.endFrame().isSuccess());
+
+        assertEquals(1, counter.count);
+        assertEquals("20", sheet.valueAt(0, 1).getContent());
+    }
+
+    /**
+     * Assert that writes of cells that nothing uses are read back
+     * during the frame without being applied.
+     */
+    @Test
+    public void testReadDuringFrame() throws TypeError {
+        sheet.update(0, 1, "counter");
+        counter.count = 0;
+
+        sheet.beginFrame();
+        sheet.update(new CellLocation(2, 2), new Constant(1));
+        sheet.update(new CellLocation(2, 2), new Nothing());
+        sheet.update(new CellLocation(3, 2), new Constant(7));
+        assertEquals("", sheet.valueAt(2, 2).getContent());
+        assertEquals(new Constant(7), sheet.valueAt(new CellLocation(3, 2)));
+        assertEquals("", sheet.valueAt(4, 2).getContent());
+        assertTrue(sheet.endFrame().isSuccess());
+
+        assertEquals(0, counter.count);
+        assertEquals("7", sheet.valueAt(3, 2).getContent());
+        assertEquals("", sheet.formulaAt(2, 2).getContent());
+    }
+
+    /**
+     * Assert that reading a cell that a deferred write may change applies the writes first.
+     */
+    @Test
+    public void testReadAppliesUsedWrites() {
+        sheet.update(0, 0, "1");
+        sheet.update(1, 0, "A0 * 2");
+
+        sheet.beginFrame();
+        sheet.update(0, 0, "5");
+        assertEquals("10", sheet.valueAt(1, 0).getContent());
+        sheet.update(2, 0, "A1 + 1");
+        assertEquals("11", sheet.valueAt(2, 0).getContent());
+        assertTrue(sheet.endFrame().isSuccess());
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(2, 0)),
+                sheet.usedBy(new CellLocation(0, 0)));
+    }
+
+    /**
+     * Assert that nested frames only apply their writes when the outermost frame ends.
+     */
+    @Test
+    public void testNested() {
+        sheet.update(0, 0, "0");
+        sheet.update(0, 1, "A0 + counter");
+        counter.count = 0;
+        sheet.beginFrame();
+        sheet.beginFrame();
+        sheet.update(0, 0, "3");
+        assertTrue(sheet.endFrame().isSuccess());
+        sheet.update(0, 0, "4");
+        assertEquals(0, counter.count);
+        assertTrue(sheet.endFrame().isSuccess());
+        assertEquals(1, counter.count);
+        assertEquals("4", sheet.valueAt(0, 1).getContent());
+    }
+
+    /**
+     * Assert that a failed write is reported when the frame ends,
+     * and that the other writes of the frame are rolled back with it.
+     */
+    @Test
+    public void testFailureReported() {
+        sheet.update(0, 0, "1");
+        sheet.beginFrame();
+        assertTrue(sheet.update(1, 0, "A0 + B0").isSuccess());
+        assertTrue(sheet.update(2, 0, "3").isSuccess());
+        UpdateResponse response = sheet.endFrame();
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().startsWith("Type error: "));
+        assertEquals("", sheet.formulaAt(1, 0).getContent());
+        assertEquals("", sheet.valueAt(2, 0).getContent());
+    }
+
+    /**
+     * Assert that an explicit flush applies the writes while the frame continues.
+     */
+    @Test
+    public void testFlush() {
+        sheet.update(0, 0, "0");
+        sheet.update(0, 1, "A0 + counter");
+        counter.count = 0;
+        sheet.beginFrame();
+        sheet.update(0, 0, "1");
+        assertTrue(sheet.flush().isSuccess());
+        assertEquals(1, counter.count);
+        sheet.update(0, 0, "2");
+        sheet.update(0, 0, "3");
+        assertTrue(sheet.endFrame().isSuccess());
+        assertEquals(2, counter.count);
+        assertEquals("3", sheet.valueAt(0, 1).getContent());
+    }
+}
@@ -0,0 +1,195 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.Transaction;
+import sheep.expression.CoreFactory;
+import sheep.expression.TypeError;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SheetSnapshotTest {
+    private Parser parser;
+    private Sheet sheet;
+
+    @Before
+    public void setUp() {
+        parser = new SimpleParser(new CoreFactory());
+        sheet = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .snapshots(true)
+                .empty(40, 40);
+    }
+
+    /**
+     * Assert that a snapshot keeps the cells it was taken with as the sheet is updated.
+     */
+    @Test
+    public void testUnchangedByUpdates() {
+        sheet.update(0, 0, "1");
+        sheet.update(1, 0, "A0 + 1");
+        sheet.update(20, 30, "7");
+        SheetSnapshot before = sheet.snapshot();
+
+        sheet.update(0, 0, "5");
+        sheet.update(20, 30, "");
+        sheet.update(39, 39, "3");
+        SheetSnapshot after = sheet.snapshot();
+
+        assertEquals("2", before.valueAt(1, 0).getContent());
+        assertEquals("A0 + 1", before.formulaAt(1, 0).getContent());
+        assertEquals("7", before.valueAt(20, 30).getContent());
+        assertEquals("", before.valueAt(39, 39).getContent());
+        assertEquals("6", after.valueAt(1, 0).getContent());
+        assertEquals("", after.valueAt(20, 30).getContent());
+        assertEquals("3", after.valueAt(39, 39).getContent());
+        assertTrue(after.getVersion() > before.getVersion());
+    }
+
+    /**
+     * Assert that a rejected update does not publish a new version.
+     */
+    @Test
+    public void testRejectedUpdate() {
+        sheet.update(0, 0, "1");
+        SheetSnapshot before = sheet.snapshot();
+        assertFalse(sheet.update(1, 0, "A0 + B0").isSuccess());
+        assertSame(before, sheet.snapshot());
+        assertEquals("", sheet.snapshot().formulaAt(1, 0).getContent());
+    }
+
+    /**
+     * Assert that a batch of updates is published as a single version.
+     */
+    @Test
+    public void testBatch() {
+        long version = sheet.snapshot().getVersion();
+        Transaction batch = sheet.begin();
+        for (int row = 0; row < 40; row++) {
+            batch.update(row, 0, String.valueOf(row));
+        }
+        assertTrue(batch.commit().isSuccess());
+        assertEquals(version + 1, sheet.snapshot().getVersion());
+        assertEquals("39", sheet.snapshot().valueAt(39, 0).getContent());
+    }
+
+    /**
+     * Assert that resizing and clearing the sheet leave earlier snapshots unchanged.
+     */
+    @Test
+    public void testResizeAndClear() {
+        for (int row = 0; row < 40; row++) {
+            sheet.update(row, row, String.valueOf(row));
+        }
+        SheetSnapshot full = sheet.snapshot();
+
+        sheet.updateDimensions(20, 25);
+        SheetSnapshot shrunk = sheet.snapshot();
+        assertEquals(20, shrunk.getRows());
+        assertEquals(25, shrunk.getColumns());
+        assertEquals("19", shrunk.valueAt(19, 19).getContent());
+
+        sheet.updateDimensions(50, 50);
+        assertEquals("", sheet.valueAt(30, 30).getContent());
+        assertEquals("15", sheet.valueAt(15, 15).getContent());
+        sheet.update(15, 15, "99");
+        sheet.clear();
+
+        assertEquals(40, full.getRows());
+        assertEquals("30", full.valueAt(30, 30).getContent());
+        assertEquals("15", full.valueAt(15, 15).getContent());
+        assertEquals("15", shrunk.valueAt(15, 15).getContent());
+        assertEquals("", sheet.snapshot().valueAt(15, 15).getContent());
+    }
+
+    /**
+     * Assert that out of date cells of a lazy sheet hold their previous
+     * values in snapshots until they are evaluated.
+     */
+    @Test
+    public void testLazy() throws TypeError {
+        Sheet lazy = new SheetBuilder(parser, new CoreFactory().createEmpty())
+                .snapshots(true)
+                .lazy(true)
+                .empty(10, 10);
+        lazy.update(0, 0, "1");
+        lazy.update(1, 0, "A0 + 1");
+        lazy.recalculate();
+        lazy.update(0, 0, "2");
+        assertEquals("2", lazy.snapshot().valueAt(1, 0).getContent());
+        assertEquals("3", lazy.valueAt(new CellLocation(1, 0)).render());
+        assertEquals("3", lazy.snapshot().valueAt(1, 0).getContent());
+    }
+
+    /**
+     * Assert that sheets do not publish snapshots unless asked to.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testNotPublished() {
+        new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(5, 5).snapshot();
+    }
+
+    /**
+     * Assert that snapshots are read while another thread holds the sheet's lock.
+     */
+    @Test
+    public void testReadWithoutLock() throws Exception {
+        sheet.update(3, 3, "4");
+        synchronized (sheet) {
+            String value = CompletableFuture
+                    .supplyAsync(() -> sheet.snapshot().valueAt(3, 3).getContent())
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals("4", value);
+        }
+    }
+
+    /**
+     * Assert that a reader only ever sees complete updates while a writer
+     * updates the cells that every other cell of the sheet uses.
+     */
+    @Test
+    public void testConsistentReads() throws Exception {
+        sheet.update(0, 0, "0");
+        for (int row = 1; row < 40; row++) {
+            for (int column = 0; column < 40; column += 7) {
+                sheet.update(row, column, "A0 + " + row);
+            }
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> inconsistency = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            long version = 0;
+            while (writing.get() && inconsistency.get() == null) {
+                SheetSnapshot snapshot = sheet.snapshot();
+                if (snapshot.getVersion() < version) {
+                    inconsistency.set("version went backwards");
+                }
+                version = snapshot.getVersion();
+                long base = Long.parseLong(snapshot.valueAt(0, 0).getContent());
+                for (int row = 1; row < 40; row++) {
+                    for (int column = 0; column < 40; column += 7) {
+                        String value = snapshot.valueAt(row, column).getContent();
+                        if (!value.equals(String.valueOf(base + row))) {
+                            inconsistency.set(value + " at " + row + ", " + column
+                                    + " with A0 = " + base);
+                        }
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 2000; i++) {
+            assertTrue(sheet.update(0, 0, String.valueOf(i)).isSuccess());
+        }
+        writing.set(false);
+        reader.join();
+        assertNull(inconsistency.get());
+        assertEquals("2039", sheet.snapshot().valueAt(39, 0).getContent());
+    }
+}
@@ -0,0 +1,174 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.core.UpdateResponse;
+import sheep.expression.CoreFactory;
+import sheep.parsing.ParseException;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SheetTest {
+    private Parser parser;
+    private Sheet sheet;
+
+    @Before
+    public void setUp() {
+        CoreFactory factory = new CoreFactory();
+        parser = new SimpleParser(factory);
+        sheet = new SheetBuilder(parser, factory.createEmpty()).empty(10, 3);
+        sheet.update(0, 0, "1");
+        sheet.update(1, 0, "A0 + 1");
+        sheet.update(2, 0, "A1 + 1");
+        sheet.update(0, 1, "A2 * 2");
+    }
+
+    private CellLocation cell(String name) {
+        return CellLocation.maybeReference(name).orElseThrow();
+    }
+
+    private String formula(int row, int column) {
+        return sheet.formulaAt(row, column).getContent();
+    }
+
+    private String value(int row, int column) {
+        return sheet.valueAt(row, column).getContent();
+    }
+
+    /**
+     * Assert that the sheet is as it was set up.
+     */
+    private void assertUnchanged() {
+        assertEquals("1", formula(0, 0));
+        assertEquals("A0 + 1", formula(1, 0));
+        assertEquals("A1 + 1", formula(2, 0));
+        assertEquals("A2 * 2", formula(0, 1));
+        assertEquals("", formula(1, 1));
+        assertEquals("1", value(0, 0));
+        assertEquals("2", value(1, 0));
+        assertEquals("3", value(2, 0));
+        assertEquals("6", value(0, 1));
+        assertEquals("", value(1, 1));
+        assertEquals(Set.of(cell("A1"), cell("A2"), cell("B0")), sheet.usedBy(cell("A0")));
+    }
+
+    /**
+     * Assert that a cell referring to itself is rejected.
+     */
+    @Test
+    public void testSelfLoop() throws ParseException {
+        CycleError error = assertThrows(CycleError.class,
+                () -> sheet.update(cell("B1"), parser.parse("B1")));
+        assertEquals(List.of(cell("B1")), error.getCycle());
+        assertTrue(error.getMessage().contains("B1"));
+        assertUnchanged();
+
+        UpdateResponse response = sheet.update(1, 1, "B1 + 1");
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().contains("Reference cycle between B1"));
+        assertUnchanged();
+    }
+
+    /**
+     * Assert that a loop through three cells is rejected, naming every member.
+     */
+    @Test
+    public void testThreeCellLoop() throws ParseException {
+        CycleError error = assertThrows(CycleError.class,
+                () -> sheet.update(cell("A0"), parser.parse("A2")));
+        assertEquals(3, error.getCycle().size());
+        assertEquals(Set.of(cell("A0"), cell("A1"), cell("A2")), new HashSet<>(error.getCycle()));
+        for (String member : List.of("A0", "A1", "A2")) {
+            assertTrue(error.getMessage().contains(member));
+        }
+        assertFalse(error.getCycle().contains(cell("B0")));
+        assertUnchanged();
+    }
+
+    /**
+     * Assert that a loop closed by a batch of updates rejects the whole batch,
+     * including the updates outside the loop.
+     */
+    @Test
+    public void testLoopClosedByBatch() throws ParseException {
+        CycleError error = assertThrows(CycleError.class, () -> sheet.update(Map.of(
+                cell("B1"), parser.parse("B0 + 1"),
+                cell("C0"), parser.parse("5"),
+                cell("A0"), parser.parse("B1"))));
+        assertEquals(Set.of(cell("A0"), cell("A1"), cell("A2"), cell("B0"), cell("B1")),
+                new HashSet<>(error.getCycle()));
+        assertEquals(5, error.getCycle().size());
+        assertUnchanged();
+        assertEquals("", formula(0, 2));
+
+        Batch batch = sheet.begin();
+        batch.update(1, 1, "B0 + 1");
+        batch.update(0, 0, "B1");
+        UpdateResponse response = batch.commit();
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().contains("Reference cycle"));
+        assertUnchanged();
+    }
+
+    /**
+     * Assert that a rejected loop leaves the dependency graph usable.
+     */
+    @Test
+    public void testUpdateAfterLoop() {
+        assertFalse(sheet.update(0, 0, "A2").isSuccess());
+        assertTrue(sheet.update(0, 0, "4").isSuccess());
+        assertEquals("6", value(2, 0));
+        assertEquals("12", value(0, 1));
+    }
+
+    /**
+     * Assert that cached dependants are recomputed when a precedent is rewired,
+     * for both the cell that lost its dependants and the cell that gained them.
+     */
+    @Test
+    public void testUsedByAfterRewiring() {
+        assertEquals(Set.of(cell("A1"), cell("A2"), cell("B0")), sheet.usedBy(cell("A0")));
+        assertEquals(Set.of(cell("A2"), cell("B0")), sheet.usedBy(cell("A1")));
+        assertTrue(sheet.update(0, 2, "3").isSuccess());
+        assertEquals(Set.of(), sheet.usedBy(cell("C0")));
+
+        // A1 now uses C0 rather than A0, which moves A1's dependants with it
+        assertTrue(sheet.update(1, 0, "C0 + 1").isSuccess());
+        assertEquals(Set.of(), sheet.usedBy(cell("A0")));
+        assertEquals(Set.of(cell("A1"), cell("A2"), cell("B0")), sheet.usedBy(cell("C0")));
+        assertEquals(Set.of(cell("A2"), cell("B0")), sheet.usedBy(cell("A1")));
+
+        // a new edge downstream of a cached closure extends it
+        assertTrue(sheet.update(1, 1, "B0").isSuccess());
+        assertEquals(Set.of(cell("A1"), cell("A2"), cell("B0"), cell("B1")), sheet.usedBy(cell("C0")));
+        assertEquals(Set.of(cell("A2"), cell("B0"), cell("B1")), sheet.usedBy(cell("A1")));
+
+        // removing an edge in the middle of a cached closure shortens it
+        assertTrue(sheet.update(2, 0, "5").isSuccess());
+        assertEquals(Set.of(cell("A1")), sheet.usedBy(cell("C0")));
+        assertEquals(Set.of(), sheet.usedBy(cell("A1")));
+        assertEquals(Set.of(cell("B0"), cell("B1")), sheet.usedBy(cell("A2")));
+    }
+
+    /**
+     * Assert that a sheet with too many cells for a dense store is built sparsely
+     * instead of failing.
+     */
+    @Test
+    public void testTooLargeForDense() {
+        CoreFactory factory = new CoreFactory();
+        Sheet huge = new SheetBuilder(parser, factory.createEmpty()).empty(65_536, 65_536);
+        assertEquals(65_536, huge.getRows());
+        assertEquals(65_536, huge.getColumns());
+        assertTrue(huge.update(65_535, 65_535, "3").isSuccess());
+        assertTrue(huge.update(0, 0, "CRXP65535 * 2").isSuccess());
+        assertEquals("6", huge.valueAt(0, 0).getContent());
+    }
+}
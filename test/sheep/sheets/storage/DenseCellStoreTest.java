@@ -0,0 +1,169 @@
+package sheep.sheets.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.expression.basic.Reference;
+
+import static org.junit.Assert.*;
+
+public class DenseCellStoreTest {
+    private Expression empty;
+    private DenseCellStore store;
+
+    @Before
+    public void setUp() {
+        empty = new Nothing();
+        store = new DenseCellStore(empty, 4, 3);
+    }
+
+    /**
+     * Assert that cells that have not been updated hold the default expression.
+     */
+    @Test
+    public void testEmpty() {
+        assertEquals(4, store.getRows());
+        assertEquals(3, store.getColumns());
+        assertSame(empty, store.formulaAt(3, 2));
+        assertSame(empty, store.valueAt(3, 2));
+        assertThrows(TypeError.class, () -> store.numberAt(3, 2));
+    }
+
+    /**
+     * Assert that a constant formula is stored as its own value.
+     */
+    @Test
+    public void testConstant() throws TypeError {
+        store.update(1, 2, new Constant(5), new Constant(5));
+        assertEquals(new Constant(5), store.formulaAt(1, 2));
+        assertEquals(new Constant(5), store.valueAt(1, 2));
+        assertEquals(5, store.numberAt(1, 2));
+        // neighbouring cells of the flat arrays are unaffected
+        assertSame(empty, store.formulaAt(1, 1));
+        assertSame(empty, store.formulaAt(2, 0));
+    }
+
+    /**
+     * Assert that a cell moves between numeric, non-numeric and empty contents.
+     */
+    @Test
+    public void testTransitions() throws TypeError {
+        Expression formula = new Reference("A0");
+        store.update(0, 1, formula, new Constant(3));
+        assertEquals(formula, store.formulaAt(0, 1));
+        assertEquals(3, store.numberAt(0, 1));
+
+        Expression text = new Reference("B0");
+        store.updateValue(0, 1, text);
+        assertEquals(formula, store.formulaAt(0, 1));
+        assertEquals(text, store.valueAt(0, 1));
+        assertThrows(TypeError.class, () -> store.numberAt(0, 1));
+
+        store.updateNumber(0, 1, 8);
+        assertEquals(formula, store.formulaAt(0, 1));
+        assertEquals(new Constant(8), store.valueAt(0, 1));
+
+        store.updateValue(0, 1, text);
+        store.update(0, 1, empty, empty);
+        assertSame(empty, store.formulaAt(0, 1));
+        assertSame(empty, store.valueAt(0, 1));
+
+        store.update(0, 1, new Constant(4), new Constant(4));
+        assertEquals(new Constant(4), store.formulaAt(0, 1));
+        assertEquals(new Constant(4), store.valueAt(0, 1));
+    }
+
+    /**
+     * Assert that a new number for a constant formula keeps the formula.
+     */
+    @Test
+    public void testUpdateNumberOfConstant() throws TypeError {
+        store.update(2, 0, new Constant(5), new Constant(5));
+        store.updateNumber(2, 0, 5);
+        assertEquals(new Constant(5), store.formulaAt(2, 0));
+        store.updateNumber(2, 0, 7);
+        assertEquals(new Constant(5), store.formulaAt(2, 0));
+        assertEquals(7, store.numberAt(2, 0));
+        store.updateNumber(3, 0, 9);
+        assertSame(empty, store.formulaAt(3, 0));
+        assertEquals(9, store.numberAt(3, 0));
+    }
+
+    /**
+     * Assert that any instance of nothing is treated as the default expression.
+     */
+    @Test
+    public void testOtherNothing() {
+        store.update(1, 1, new Nothing(), new Nothing());
+        assertSame(empty, store.formulaAt(1, 1));
+        assertSame(empty, store.valueAt(1, 1));
+    }
+
+    /**
+     * Assert that clearing the store empties every kind of cell.
+     */
+    @Test
+    public void testClear() {
+        store.update(0, 0, new Constant(1), new Constant(1));
+        store.update(1, 0, new Reference("A0"), new Constant(1));
+        store.update(2, 0, new Reference("B0"), new Reference("C0"));
+        store.clear();
+        for (int row = 0; row < 3; row++) {
+            assertSame(empty, store.formulaAt(row, 0));
+            assertSame(empty, store.valueAt(row, 0));
+        }
+        store.update(2, 0, new Constant(6), new Constant(6));
+        assertEquals(new Constant(6), store.valueAt(2, 0));
+    }
+
+    /**
+     * Assert that resizing keeps the cells within both dimensions,
+     * even though the index of each cell changes with the number of columns.
+     */
+    @Test
+    public void testResize() throws TypeError {
+        store.update(0, 0, new Constant(1), new Constant(1));
+        store.update(1, 2, new Reference("A0"), new Constant(2));
+        store.update(3, 1, new Reference("B0"), new Reference("C0"));
+        store.update(3, 2, new Constant(4), new Constant(4));
+
+        store.resize(5, 5);
+        assertEquals(5, store.getRows());
+        assertEquals(5, store.getColumns());
+        assertEquals(1, store.numberAt(0, 0));
+        assertEquals(new Reference("A0"), store.formulaAt(1, 2));
+        assertEquals(2, store.numberAt(1, 2));
+        assertEquals(new Reference("C0"), store.valueAt(3, 1));
+        assertEquals(4, store.numberAt(3, 2));
+        assertSame(empty, store.formulaAt(4, 4));
+        assertSame(empty, store.formulaAt(1, 3));
+
+        store.resize(4, 2);
+        assertEquals(1, store.numberAt(0, 0));
+        assertEquals(new Reference("C0"), store.valueAt(3, 1));
+        assertSame(empty, store.formulaAt(1, 1));
+
+        // cells removed by shrinking are empty when the store grows again
+        store.resize(4, 3);
+        assertSame(empty, store.formulaAt(1, 2));
+        assertSame(empty, store.formulaAt(3, 2));
+    }
+
+    /**
+     * Assert that a store with more cells than an array can index is rejected
+     * rather than wrapping around to a small or negative size.
+     */
+    @Test
+    public void testTooLarge() {
+        assertTrue(DenseCellStore.fits(16_384, 131_071));
+        assertFalse(DenseCellStore.fits(65_536, 65_536));
+        assertFalse(DenseCellStore.fits(200_000, 16_384));
+        assertThrows(IllegalArgumentException.class, () -> new DenseCellStore(empty, 65_536, 65_536));
+        assertThrows(IllegalArgumentException.class, () -> new DenseCellStore(empty, 200_000, 16_384));
+        assertThrows(IllegalArgumentException.class, () -> store.resize(200_000, 16_384));
+        assertEquals(4, store.getRows());
+    }
+}
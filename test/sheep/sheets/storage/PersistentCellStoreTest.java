@@ -0,0 +1,162 @@
+package sheep.sheets.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.expression.basic.Reference;
+
+import static org.junit.Assert.*;
+import static sheep.sheets.storage.PersistentCellStore.TILE_COLUMNS;
+import static sheep.sheets.storage.PersistentCellStore.TILE_ROWS;
+
+public class PersistentCellStoreTest {
+    private Expression empty;
+    private PersistentCellStore store;
+
+    @Before
+    public void setUp() {
+        empty = new Nothing();
+        store = new PersistentCellStore(empty, 1_000, 100);
+    }
+
+    /**
+     * Assert that cells that have not been updated hold the default expression.
+     */
+    @Test
+    public void testEmpty() {
+        assertEquals(1_000, store.getRows());
+        assertEquals(100, store.getColumns());
+        assertSame(empty, store.formulaAt(999, 99));
+        assertSame(empty, store.valueAt(0, 0));
+        assertThrows(TypeError.class, () -> store.numberAt(500, 50));
+    }
+
+    /**
+     * Assert that cells either side of a tile boundary hold their own contents.
+     */
+    @Test
+    public void testTileBoundaries() throws TypeError {
+        store.update(TILE_ROWS - 1, TILE_COLUMNS - 1, new Constant(1), new Constant(1));
+        store.update(TILE_ROWS, TILE_COLUMNS - 1, new Constant(2), new Constant(2));
+        store.update(TILE_ROWS - 1, TILE_COLUMNS, new Constant(3), new Constant(3));
+        store.update(TILE_ROWS, TILE_COLUMNS, new Constant(4), new Constant(4));
+        assertEquals(1, store.numberAt(TILE_ROWS - 1, TILE_COLUMNS - 1));
+        assertEquals(2, store.numberAt(TILE_ROWS, TILE_COLUMNS - 1));
+        assertEquals(3, store.numberAt(TILE_ROWS - 1, TILE_COLUMNS));
+        assertEquals(4, store.numberAt(TILE_ROWS, TILE_COLUMNS));
+        assertSame(empty, store.formulaAt(0, 0));
+    }
+
+    /**
+     * Assert that tiles far enough apart to need a deeper trie are all kept.
+     */
+    @Test
+    public void testGrowth() throws TypeError {
+        store.update(0, 0, new Constant(1), new Constant(1));
+        store.update(999, 99, new Constant(2), new Constant(2));
+        store.update(500, 50, new Reference("A0"), new Constant(3));
+        assertEquals(1, store.numberAt(0, 0));
+        assertEquals(2, store.numberAt(999, 99));
+        assertEquals(new Reference("A0"), store.formulaAt(500, 50));
+        assertEquals(3, store.numberAt(500, 50));
+    }
+
+    /**
+     * Assert that a cell moves between numeric, non-numeric and empty contents.
+     */
+    @Test
+    public void testTransitions() throws TypeError {
+        Expression formula = new Reference("A0");
+        store.update(40, 40, formula, new Constant(3));
+        Expression text = new Reference("B0");
+        store.updateValue(40, 40, text);
+        assertEquals(formula, store.formulaAt(40, 40));
+        assertEquals(text, store.valueAt(40, 40));
+        store.updateNumber(40, 40, 8);
+        assertEquals(8, store.numberAt(40, 40));
+        store.update(40, 40, empty, empty);
+        assertSame(empty, store.formulaAt(40, 40));
+        assertSame(empty, store.valueAt(40, 40));
+    }
+
+    /**
+     * Assert that updating a store after a snapshot does not change the snapshot,
+     * including cells in tiles shared with it and tiles created after it.
+     */
+    @Test
+    public void testSnapshotIsolation() throws TypeError {
+        store.update(1, 1, new Constant(1), new Constant(1));
+        store.update(1, 2, new Constant(2), new Constant(2));
+        store.update(900, 90, new Reference("A0"), new Constant(3));
+        PersistentCellStore snapshot = store.snapshot();
+
+        store.update(1, 1, new Constant(10), new Constant(10));
+        store.updateNumber(900, 90, 30);
+        store.update(300, 30, new Constant(4), new Constant(4));
+        assertEquals(1, snapshot.numberAt(1, 1));
+        assertEquals(2, snapshot.numberAt(1, 2));
+        assertEquals(3, snapshot.numberAt(900, 90));
+        assertSame(empty, snapshot.formulaAt(300, 30));
+        assertEquals(10, store.numberAt(1, 1));
+        assertEquals(2, store.numberAt(1, 2));
+        assertEquals(30, store.numberAt(900, 90));
+        assertEquals(4, store.numberAt(300, 30));
+
+        // a later snapshot sees the later updates, and neither changes again
+        PersistentCellStore later = store.snapshot();
+        store.update(1, 2, empty, empty);
+        assertEquals(2, snapshot.numberAt(1, 2));
+        assertEquals(2, later.numberAt(1, 2));
+        assertEquals(10, later.numberAt(1, 1));
+        assertSame(empty, store.formulaAt(1, 2));
+    }
+
+    /**
+     * Assert that clearing or resizing a store does not change its snapshots.
+     */
+    @Test
+    public void testSnapshotAfterClearAndResize() throws TypeError {
+        store.update(5, 5, new Constant(1), new Constant(1));
+        store.update(TILE_ROWS + 5, 5, new Constant(2), new Constant(2));
+        PersistentCellStore snapshot = store.snapshot();
+
+        store.resize(TILE_ROWS + 2, TILE_COLUMNS);
+        assertEquals(1, store.numberAt(5, 5));
+        store.update(5, 5, new Constant(9), new Constant(9));
+        store.resize(1_000, 100);
+        assertSame(empty, store.formulaAt(TILE_ROWS + 5, 5));
+        assertEquals(9, store.numberAt(5, 5));
+
+        store.clear();
+        assertSame(empty, store.formulaAt(5, 5));
+        assertEquals(1_000, snapshot.getRows());
+        assertEquals(1, snapshot.numberAt(5, 5));
+        assertEquals(2, snapshot.numberAt(TILE_ROWS + 5, 5));
+    }
+
+    /**
+     * Assert that resizing keeps the cells within both dimensions,
+     * even though the position of each tile changes with the number of columns.
+     */
+    @Test
+    public void testResize() throws TypeError {
+        store.update(0, 0, new Constant(1), new Constant(1));
+        store.update(TILE_ROWS + 1, TILE_COLUMNS + 1, new Reference("A0"), new Reference("B0"));
+        store.update(2, 3 * TILE_COLUMNS, new Constant(3), new Constant(3));
+
+        store.resize(1_000, 2 * TILE_COLUMNS + 4);
+        assertEquals(1, store.numberAt(0, 0));
+        assertEquals(new Reference("B0"), store.valueAt(TILE_ROWS + 1, TILE_COLUMNS + 1));
+        store.update(0, 2 * TILE_COLUMNS + 3, new Constant(5), new Constant(5));
+
+        store.resize(1_000, 400);
+        assertEquals(1, store.numberAt(0, 0));
+        assertEquals(new Reference("A0"), store.formulaAt(TILE_ROWS + 1, TILE_COLUMNS + 1));
+        assertEquals(5, store.numberAt(0, 2 * TILE_COLUMNS + 3));
+        assertSame(empty, store.formulaAt(2, 3 * TILE_COLUMNS));
+        assertSame(empty, store.formulaAt(999, 399));
+    }
+}
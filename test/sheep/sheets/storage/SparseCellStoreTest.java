@@ -0,0 +1,142 @@
+package sheep.sheets.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.Expression;
+import sheep.expression.TypeError;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.expression.basic.Reference;
+
+import static org.junit.Assert.*;
+import static sheep.sheets.storage.SparseCellStore.TILE_COLUMNS;
+import static sheep.sheets.storage.SparseCellStore.TILE_ROWS;
+
+public class SparseCellStoreTest {
+    private Expression empty;
+    private SparseCellStore store;
+
+    @Before
+    public void setUp() {
+        empty = new Nothing();
+        store = new SparseCellStore(empty, 1_000_000, 16_384);
+    }
+
+    /**
+     * Assert that a huge store allocates nothing until a cell is updated.
+     */
+    @Test
+    public void testEmpty() {
+        assertEquals(1_000_000, store.getRows());
+        assertEquals(16_384, store.getColumns());
+        assertSame(empty, store.formulaAt(999_999, 16_383));
+        assertSame(empty, store.valueAt(0, 0));
+        assertThrows(TypeError.class, () -> store.numberAt(500_000, 100));
+        assertEquals(0, store.allocatedTiles());
+    }
+
+    /**
+     * Assert that storing the default expression in an empty tile allocates nothing.
+     */
+    @Test
+    public void testDefaultDoesNotAllocate() {
+        store.update(10, 10, empty, empty);
+        store.update(10, 10, new Nothing(), new Nothing());
+        store.updateValue(20, 20, empty);
+        assertEquals(0, store.allocatedTiles());
+    }
+
+    /**
+     * Assert that cells either side of a tile boundary are stored in separate tiles.
+     */
+    @Test
+    public void testTileBoundaries() throws TypeError {
+        store.update(TILE_ROWS - 1, TILE_COLUMNS - 1, new Constant(1), new Constant(1));
+        assertEquals(1, store.allocatedTiles());
+        store.update(TILE_ROWS, TILE_COLUMNS - 1, new Constant(2), new Constant(2));
+        store.update(TILE_ROWS - 1, TILE_COLUMNS, new Constant(3), new Constant(3));
+        store.update(TILE_ROWS, TILE_COLUMNS, new Constant(4), new Constant(4));
+        assertEquals(4, store.allocatedTiles());
+
+        assertEquals(1, store.numberAt(TILE_ROWS - 1, TILE_COLUMNS - 1));
+        assertEquals(2, store.numberAt(TILE_ROWS, TILE_COLUMNS - 1));
+        assertEquals(3, store.numberAt(TILE_ROWS - 1, TILE_COLUMNS));
+        assertEquals(4, store.numberAt(TILE_ROWS, TILE_COLUMNS));
+        // the same position within another tile is still empty
+        assertSame(empty, store.formulaAt(2 * TILE_ROWS - 1, TILE_COLUMNS - 1));
+        assertSame(empty, store.formulaAt(0, 0));
+    }
+
+    /**
+     * Assert that a cell moves between numeric, non-numeric and empty contents within a tile.
+     */
+    @Test
+    public void testTransitions() throws TypeError {
+        Expression formula = new Reference("A0");
+        store.update(700_000, 9_000, formula, new Constant(3));
+        assertEquals(3, store.numberAt(700_000, 9_000));
+
+        Expression text = new Reference("B0");
+        store.updateValue(700_000, 9_000, text);
+        assertEquals(formula, store.formulaAt(700_000, 9_000));
+        assertEquals(text, store.valueAt(700_000, 9_000));
+
+        store.updateNumber(700_000, 9_000, 8);
+        assertEquals(formula, store.formulaAt(700_000, 9_000));
+        assertEquals(8, store.numberAt(700_000, 9_000));
+
+        store.update(700_000, 9_000, empty, empty);
+        assertSame(empty, store.formulaAt(700_000, 9_000));
+        assertSame(empty, store.valueAt(700_000, 9_000));
+    }
+
+    /**
+     * Assert that a number stored in an unallocated tile keeps the default formula.
+     */
+    @Test
+    public void testUpdateNumberOfEmpty() throws TypeError {
+        store.updateNumber(123_456, 789, 5);
+        assertEquals(1, store.allocatedTiles());
+        assertSame(empty, store.formulaAt(123_456, 789));
+        assertEquals(5, store.numberAt(123_456, 789));
+    }
+
+    /**
+     * Assert that clearing the store releases every tile.
+     */
+    @Test
+    public void testClear() {
+        store.update(0, 0, new Constant(1), new Constant(1));
+        store.update(999_999, 16_383, new Reference("A0"), new Reference("B0"));
+        store.clear();
+        assertEquals(0, store.allocatedTiles());
+        assertSame(empty, store.formulaAt(0, 0));
+        assertSame(empty, store.valueAt(999_999, 16_383));
+    }
+
+    /**
+     * Assert that shrinking releases tiles outside the new dimensions, and discards
+     * the removed cells of tiles on the new boundary, so they are empty if the store grows.
+     */
+    @Test
+    public void testResize() throws TypeError {
+        store.update(5, 5, new Constant(1), new Constant(1));
+        store.update(TILE_ROWS + 5, 5, new Constant(2), new Constant(2));
+        store.update(TILE_ROWS + 20, 5, new Constant(3), new Constant(3));
+        store.update(5, 3 * TILE_COLUMNS, new Constant(4), new Constant(4));
+        assertEquals(3, store.allocatedTiles());
+
+        store.resize(TILE_ROWS + 10, 2 * TILE_COLUMNS);
+        assertEquals(TILE_ROWS + 10, store.getRows());
+        assertEquals(2 * TILE_COLUMNS, store.getColumns());
+        assertEquals(2, store.allocatedTiles());
+        assertEquals(1, store.numberAt(5, 5));
+        assertEquals(2, store.numberAt(TILE_ROWS + 5, 5));
+
+        store.resize(1_000_000, 16_384);
+        assertEquals(1, store.numberAt(5, 5));
+        assertEquals(2, store.numberAt(TILE_ROWS + 5, 5));
+        assertSame(empty, store.formulaAt(TILE_ROWS + 20, 5));
+        assertSame(empty, store.formulaAt(5, 3 * TILE_COLUMNS));
+    }
+}